@@ -7,6 +7,8 @@ import org.commonjava.service.promote.validate.ValidationRule
 import org.commonjava.service.promote.util.ContentDigest
 import org.slf4j.LoggerFactory
 
+import java.util.concurrent.ConcurrentHashMap
+
 class NoPreExistingPaths implements ValidationRule {
 
     String validate(ValidationRequest request) throws PromotionValidationException {
@@ -18,36 +20,47 @@ class NoPreExistingPaths implements ValidationRule {
         def logger = LoggerFactory.getLogger(ValidationRule.class)
         logger.info("Check pre-existing paths in: {}, paths: {}", Arrays.asList(verifyStoreKeys), request.getSourcePaths())
 
-        tools.paralleledInBatch(request.getSourcePaths(), { it ->
-            def aref = tools.getArtifact(it);
-            if (aref != null) {
-                String sourceChecksum = null
-                tools.forEach(verifyStoreKeys, { verifyStoreKey ->
-                    try {
-                        if (tools.exists(verifyStoreKey, it)) {
-                            logger.info("Found existing path, store: {}, path: {}", verifyStoreKey, it)
-                            def sourceStoreKey = request.getPromoteRequest().getSource()
-                            if (sourceChecksum == null) {
-                                sourceChecksum = tools.digest(sourceStoreKey, it, ContentDigest.SHA_256)
-                                logger.info("Digest source: {}, checksum: {}", sourceStoreKey, sourceChecksum)
-                            }
-                            String targetChecksum = tools.digest(verifyStoreKey, it, ContentDigest.SHA_256)
-                            synchronized (errors) {
-                                if (targetChecksum == null) {
-                                    errors.add(String.format("failed to get checksum for %s in %s", it, verifyStoreKey))
-                                } else if (!targetChecksum.equals(sourceChecksum)) {
-                                    errors.add(String.format("%s is already available in %s with different checksum", it, verifyStoreKey))
-                                }
-                            }
-                        } else {
-                            logger.info("No existing path, store: {}, path: {}", verifyStoreKey, it)
+        def paths = request.getPathIndex().getArtifactPaths()
+        def sourceStoreKey = request.getPromoteRequest().getSource()
+        def sourceChecksums = new ConcurrentHashMap()
+
+        tools.forEach(verifyStoreKeys, { verifyStoreKey ->
+            def existing
+            try {
+                existing = tools.locateInBatch(verifyStoreKey, paths)
+            } catch ( Exception e ) {
+                logger.error("Rule 'no-pre-existing-paths' failed", e)
+                errors.add("Rule 'no-pre-existing-paths' failed, error: " + e)
+                return
+            }
+            logger.info("Found existing paths, store: {}, paths: {}", verifyStoreKey, existing.keySet())
+
+            tools.paralleledInBatch(existing.keySet(), { it ->
+                try {
+                    String sourceChecksum = sourceChecksums.get(it)
+                    if (sourceChecksum == null) {
+                        sourceChecksum = tools.digest(sourceStoreKey, it, ContentDigest.SHA_256, request)
+                        logger.info("Digest source: {}, path: {}, checksum: {}", sourceStoreKey, it, sourceChecksum)
+                        if (sourceChecksum != null) {
+                            sourceChecksums.put(it, sourceChecksum)
                         }
-                    } catch ( Exception e ) {
-                        logger.error("Rule 'no-pre-existing-paths' failed", e)
+                    }
+                    // digest the store serving the path, whose digest is cached unlike that of a group
+                    String targetChecksum = tools.digest(existing.get(it), it, ContentDigest.SHA_256)
+                    synchronized (errors) {
+                        if (targetChecksum == null) {
+                            errors.add(String.format("failed to get checksum for %s in %s", it, verifyStoreKey))
+                        } else if (!targetChecksum.equals(sourceChecksum)) {
+                            errors.add(String.format("%s is already available in %s with different checksum", it, verifyStoreKey))
+                        }
+                    }
+                } catch ( Exception e ) {
+                    logger.error("Rule 'no-pre-existing-paths' failed", e)
+                    synchronized (errors) {
                         errors.add("Rule 'no-pre-existing-paths' failed, error: " + e)
                     }
-                })
-            }
+                }
+            })
         })
 
         errors.isEmpty() ? null: StringUtils.join(errors, "\n")
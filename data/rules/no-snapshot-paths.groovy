@@ -12,14 +12,12 @@ class NoSnapshots implements ValidationRule {
         def errors = new ArrayList()
         def tools = request.getTools()
 
-        tools.paralleledInBatch(request.getSourcePaths(), { it ->
-            if (it.endsWith(".pom")) {
-                def ref = tools.getArtifact(it)
-                if (ref != null) {
-                    if (!ref.getVersionSpec().isRelease()) {
-                        synchronized (errors) {
-                            errors.add(String.format("%s is a variable/snapshot version.", it))
-                        }
+        tools.paralleledInBatch(request.getPathIndex().getPoms(), { it ->
+            def ref = it.getArtifact()
+            if (ref != null) {
+                if (!ref.getVersionSpec().isRelease()) {
+                    synchronized (errors) {
+                        errors.add(String.format("%s is a variable/snapshot version.", it.getPath()))
                     }
                 }
             }
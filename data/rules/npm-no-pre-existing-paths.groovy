@@ -13,12 +13,10 @@ class NPMNoPreExistingPaths implements ValidationRule {
         def errors = Collections.synchronizedList(new ArrayList());
         def tools = request.getTools()
 
-        tools.paralleledEach(request.getSourcePaths(), { it ->
-            tools.forEach(verifyStoreKeys, { verifyStoreKey ->
-                if (tools.exists(verifyStoreKey, it)) {
-                    errors.add(String.format("%s is already available in: %s", it, verifyStoreKey))
-                }
-            })
+        tools.forEach(verifyStoreKeys, { verifyStoreKey ->
+            tools.existsInBatch(verifyStoreKey, request.getSourcePaths()).each { it ->
+                errors.add(String.format("%s is already available in: %s", it, verifyStoreKey))
+            }
         })
 
         errors.isEmpty() ? null: StringUtils.join(errors, "\n")
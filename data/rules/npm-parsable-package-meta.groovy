@@ -18,7 +18,7 @@ class NPMParsablePackageMeta implements ValidationRule {
             if (it.endsWith("package.json")) {
                 logger.info("Parsing package.json from path: {}.", it)
                 try {
-                    tools.readLocalPackageJson(it, request)
+                    tools.checkLocalPackageJson(it, request)
                 }
                 catch (Exception e) {
                     errors.add(String.format("%s: Failed to parse package.json. Error was: %s", it, e))
@@ -20,10 +20,10 @@ class NPMVersionPattern implements ValidationRule {
                 logger.info("No 'versionPattern' parameter specified in rule-set: {}, will only check scoped rule for scopes: {}.", request.getRuleSet().getName(), validScope)
             }
             def tools = request.getTools()
-            tools.paralleledEach(request.getSourcePaths(), { it ->
-                def pkg = tools.getNPMPackagePath(it)
-                if (pkg.isPresent()) {
-                    def pkgPath = pkg.get()
+            tools.paralleledEach(request.getPathIndex().getNpmPackages(), { entry ->
+                def path = entry.getPath()
+                def pkgPath = entry.getNpmPackage()
+                if (pkgPath != null) {
                     def isValidScoped = pkgPath.scoped && validScope.equals(pkgPath.scopedName.substring(1))
                     if (!isValidScoped) {
                         if (versionPattern != null) {
@@ -33,7 +33,7 @@ class NPMVersionPattern implements ValidationRule {
                             def matcher = versionPattern.matcher(vs)
                             if (!matcher.matches()) {
                                 errors.add(String.format("%s is not %s scoped and does not match version pattern: '%s' (version was: '%s')",
-                                        it, validScope, versionPattern.pattern(), vs))
+                                        path, validScope, versionPattern.pattern(), vs))
                             } else {
                                 logger.info("path {} with version {} matches with version pattern {}", pkgPath, vs, versionPattern.pattern())
                             }
@@ -44,7 +44,7 @@ class NPMVersionPattern implements ValidationRule {
                         def matcher = scopedVersionPattern.matcher(vs)
                         if (!matcher.matches()) {
                             errors.add(String.format("%s is %s scoped and does not match scoped version pattern: '%s' (version was: '%s')",
-                                    it, validScope, scopedVersionPattern.pattern(), vs))
+                                    path, validScope, scopedVersionPattern.pattern(), vs))
                         } else {
                             logger.info("path {} with version {} matches with version pattern {}", pkgPath, vs, scopedVersionPattern.pattern())
                         }
@@ -13,16 +13,15 @@ class ParsablePom implements ValidationRule {
         def logger = LoggerFactory.getLogger(ValidationRule.class)
         logger.info("Parsing POMs in:\n  {}.", request.getSourcePaths().join("\n  "))
 
-        tools.paralleledInBatch(request.getSourcePaths(), { it ->
-            if (it.endsWith(".pom")) {
-                logger.info("Parsing POM from path: {}.", it)
-                try {
-                    tools.readLocalPom(it, request)
-                }
-                catch (Exception e) {
-                    synchronized(errors) {
-                        errors.add(String.format("%s: Failed to parse POM. Error was: %s", it, e))
-                    }
+        tools.paralleledInBatch(request.getPathIndex().getPoms(), { entry ->
+            def path = entry.getPath()
+            logger.info("Parsing POM from path: {}.", path)
+            try {
+                tools.readLocalPom(path, request)
+            }
+            catch (Exception e) {
+                synchronized(errors) {
+                    errors.add(String.format("%s: Failed to parse POM. Error was: %s", path, e))
                 }
             }
         })
@@ -14,14 +14,15 @@ class ProjectVersionPattern implements ValidationRule {
 
         if (versionPattern != null) {
             def tools = request.getTools()
-            tools.paralleledInBatch(request.getSourcePaths(), { it ->
-                def ref = tools.getArtifact(it)
+            tools.paralleledInBatch(request.getPathIndex().getArtifacts(), { entry ->
+                def path = entry.getPath()
+                def ref = entry.getArtifact()
                 if (ref != null) {
                     def vs = ref.getVersionString()
                     logger.info("Checking whether '{}' matches version-pattern: '{}' in rule-set: {}", vs, versionPattern, request.getRuleSet().getName())
                     
                     if (!vs.matches(versionPattern)) {
-                        def msg = String.format("%s does not match version pattern: '%s' (version was: '%s')", it, versionPattern, vs)
+                        def msg = String.format("%s does not match version pattern: '%s' (version was: '%s')", path, versionPattern, vs)
                         logger.info(msg)
                         synchronized (errors) {
                             errors.add(msg)
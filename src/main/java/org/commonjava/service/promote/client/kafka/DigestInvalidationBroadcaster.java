@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.client.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.commonjava.service.promote.core.DigestCache;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.OnOverflow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.commonjava.service.promote.util.Batcher.batch;
+
+/**
+ * Tell the other nodes which paths were promoted or deleted here, so they drop the digests they cached for them. Each
+ * node publishes to the digest-invalidation topic and consumes it in a consumer group of its own; the messages it
+ * published itself are skipped. Big path sets are split into several messages.
+ */
+@ApplicationScoped
+public class DigestInvalidationBroadcaster
+{
+    public static final String CHANNEL_DIGEST_INVALIDATION_OUT = "digest-invalidation-out";
+
+    public static final String CHANNEL_DIGEST_INVALIDATION = "digest-invalidation";
+
+    private static final int PATHS_PER_MESSAGE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String node = UUID.randomUUID().toString();
+
+    @Channel( CHANNEL_DIGEST_INVALIDATION_OUT )
+    @OnOverflow( value = OnOverflow.Strategy.BUFFER )
+    @Inject
+    Emitter<String> emitter;
+
+    @Inject
+    DigestCache digestCache;
+
+    public void publish( Collection<String> paths )
+    {
+        for ( Collection<String> b : batch( paths, PATHS_PER_MESSAGE ) )
+        {
+            try
+            {
+                ObjectNode message = objectMapper.createObjectNode();
+                message.put( "node", node );
+                ArrayNode array = message.putArray( "paths" );
+                b.forEach( array::add );
+                send( objectMapper.writeValueAsString( message ) );
+            }
+            catch ( Exception e )
+            {
+                logger.warn( "Failed to publish digest invalidation, paths: {}, error: {}", b.size(), e.toString() );
+            }
+        }
+    }
+
+    void send( String message )
+    {
+        emitter.send( message );
+    }
+
+    @Incoming( CHANNEL_DIGEST_INVALIDATION )
+    public void receive( String message )
+    {
+        final List<String> paths = new ArrayList<>();
+        try
+        {
+            JsonNode root = objectMapper.readTree( message );
+            if ( node.equals( root.path( "node" ).asText() ) )
+            {
+                return;
+            }
+            root.path( "paths" ).forEach( p -> paths.add( p.asText() ) );
+        }
+        catch ( Exception e )
+        {
+            logger.warn( "Failed to parse digest invalidation, error: {}", e.toString() );
+            return;
+        }
+        logger.trace( "Received digest invalidation, paths: {}", paths.size() );
+        digestCache.invalidateLocally( paths );
+    }
+}
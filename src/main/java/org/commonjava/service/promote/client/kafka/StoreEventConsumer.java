@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.client.kafka;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.event.store.EventStoreKey;
+import org.commonjava.event.store.IndyStoreEvent;
+import org.commonjava.service.promote.core.DigestCache;
+import org.commonjava.service.promote.core.PromotionHelper;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Consume store change events (update/delete/enablement) from repository service and drop the cached store info and
+ * digests of the changed stores, e.g. a group serves different content when its constituents change. A message that
+ * is not a store event is logged and ignored.
+ */
+@ApplicationScoped
+public class StoreEventConsumer
+{
+    public static final String CHANNEL_STORE_EVENT = "store-event";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
+
+    @Inject
+    PromotionHelper promotionHelper;
+
+    @Inject
+    DigestCache digestCache;
+
+    @Incoming( CHANNEL_STORE_EVENT )
+    public void receive( String message )
+    {
+        logger.trace( "Received store event: {}", message );
+        final IndyStoreEvent event;
+        try
+        {
+            event = objectMapper.readValue( message, IndyStoreEvent.class );
+        }
+        catch ( Exception e )
+        {
+            logger.warn( "Ignore unparsable store event, error: {}, message: {}", e.toString(), message );
+            return;
+        }
+
+        Set<StoreKey> keys = toStoreKeys( event.getKeys() );
+        if ( keys.isEmpty() )
+        {
+            logger.warn( "Ignore store event without stores, type: {}", event.getEventType() );
+            return;
+        }
+        keys.forEach( promotionHelper::invalidateStoreInfo );
+        keys.forEach( digestCache::invalidate );
+    }
+
+    private Set<StoreKey> toStoreKeys( Collection<EventStoreKey> eventKeys )
+    {
+        Set<StoreKey> keys = new HashSet<>();
+        if ( eventKeys == null )
+        {
+            return keys;
+        }
+        for ( EventStoreKey k : eventKeys )
+        {
+            StoreType type = StoreType.get( String.valueOf( k.getStoreType() ) );
+            if ( k.getPackageType() == null || type == null || k.getStoreName() == null )
+            {
+                logger.warn( "Ignore invalid store key in store event: {}", k );
+                continue;
+            }
+            keys.add( new StoreKey( k.getPackageType(), type, k.getStoreName() ) );
+        }
+        return keys;
+    }
+}
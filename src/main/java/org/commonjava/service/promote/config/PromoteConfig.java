@@ -17,10 +17,12 @@ package org.commonjava.service.promote.config;
 
 import io.quarkus.runtime.Startup;
 import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
 import io.smallrye.config.WithName;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import java.io.File;
+import java.util.Optional;
 
 @Startup
 @ConfigMapping( prefix = "promote" )
@@ -34,4 +36,140 @@ public interface PromoteConfig
     // callbackUri is used by async promotion
     @WithName( "callbackUri" )
     String callbackUri();
-}
\ No newline at end of file
+
+    // Max paths sent to storage service in one copy request. Large promotions are split into chunks of this size.
+    @WithName( "copyChunkSize" )
+    @WithDefault( "1000" )
+    int copyChunkSize();
+
+    // Max copy chunks of one promotion in flight at the same time.
+    @WithName( "copyMaxInFlight" )
+    @WithDefault( "4" )
+    int copyMaxInFlight();
+
+    // Max batch existence checks of one promotion in flight at the same time.
+    @WithName( "existCheckMaxInFlight" )
+    @WithDefault( "4" )
+    int existCheckMaxInFlight();
+
+    // How long repository store info (path style, timeout) is cached. 0 to disable the cache.
+    @WithName( "storeCache.ttlSeconds" )
+    @WithDefault( "300" )
+    int storeCacheTtlSeconds();
+
+    // Max number of cached store info entries.
+    @WithName( "storeCache.maxSize" )
+    @WithDefault( "1000" )
+    int storeCacheMaxSize();
+
+    // Max paths being promoted at the same time. Sync requests beyond it get 429, async ones wait. 0 to disable.
+    @WithName( "admission.maxInFlightPaths" )
+    @WithDefault( "200000" )
+    long admissionMaxInFlightPaths();
+
+    // Max paths of async requests waiting for admission. Requests beyond it get 429.
+    @WithName( "admission.maxQueuedPaths" )
+    @WithDefault( "1000000" )
+    long admissionMaxQueuedPaths();
+
+    // Retry-After of 429 responses.
+    @WithName( "admission.retryAfterSeconds" )
+    @WithDefault( "30" )
+    int admissionRetryAfterSeconds();
+
+    // Hold back new promotions while a promotion pool has more tasks waiting for a thread than this. 0 to ignore.
+    @WithName( "admission.maxPoolQueueDepth" )
+    @WithDefault( "16" )
+    int admissionMaxPoolQueueDepth();
+
+    // Content read by validation rules is kept in memory up to it, the rest is spilled to temp files. Shared by all
+    // validations running on the node.
+    @WithName( "validation.fetchCache.memoryBytes" )
+    @WithDefault( "268435456" )
+    long validationFetchCacheMemoryBytes();
+
+    // Max digests (checksums) of store content cached in memory. 0 to disable the digest cache.
+    @WithName( "digestCache.maxSize" )
+    @WithDefault( "100000" )
+    int digestCacheMaxSize();
+
+    // How long a cached digest is trusted. Promotions and deletes invalidate digests right away, on other nodes via
+    // the digest-invalidation topic; the TTL bounds what a node misses, e.g., while it is down.
+    @WithName( "digestCache.ttlSeconds" )
+    @WithDefault( "600" )
+    int digestCacheTtlSeconds();
+
+    // If set, cached digests are also kept in this directory and survive restarts.
+    @WithName( "digestCache.dir" )
+    Optional<File> digestCacheDir();
+
+    // Compile rule scripts with @CompileStatic. Scripts using dynamic features fall back to dynamic compilation.
+    @WithName( "rules.compileStatic" )
+    @WithDefault( "false" )
+    boolean ruleCompileStatic();
+
+    // If set, compiled rule classes are kept in this directory by script hash and loaded directly on later boots.
+    @WithName( "rules.classCacheDir" )
+    Optional<File> ruleClassCacheDir();
+
+    // Watch the rules and rule-sets dirs and reload changed files without restart.
+    @WithName( "rules.watch" )
+    @WithDefault( "true" )
+    boolean ruleWatch();
+
+    // Run the shipped rules as built-in Java code while their scripts are unchanged. Edited scripts always run as is.
+    @WithName( "rules.nativeBuiltins" )
+    @WithDefault( "true" )
+    boolean ruleNativeBuiltins();
+
+    // Threads of the work-stealing pool behind paralleledEach/paralleledInBatch. 0 to use promote-rules-batch-executor.
+    @WithName( "rules.forkJoinParallelism" )
+    @WithDefault( "16" )
+    int ruleForkJoinParallelism();
+
+    // Rule profile histograms served by the admin resource cover this many last minutes.
+    @WithName( "rules.profileWindowMinutes" )
+    @WithDefault( "15" )
+    int ruleProfileWindowMinutes();
+
+    // readLocalPom checks well-formedness and coordinates with a pull parser instead of building the Maven model.
+    // Opt-in, it accepts unknown elements that the strict Maven reader rejects.
+    @WithName( "rules.streamingPomCheck" )
+    @WithDefault( "false" )
+    boolean ruleStreamingPomCheck();
+
+    // checkLocalPackageJson binds the full PackageMetadata instead of streaming the fields of PackageJsonSummary.
+    @WithName( "rules.fullPackageJsonBinding" )
+    @WithDefault( "false" )
+    boolean ruleFullPackageJsonBinding();
+
+    // Max concurrent calls from this node to storage service, independent of thread pool sizes. 0 for no limit.
+    @WithName( "downstream.storage.maxConcurrent" )
+    @WithDefault( "32" )
+    int storageMaxConcurrent();
+
+    // Max concurrent calls from this node to content service. 0 for no limit.
+    @WithName( "downstream.content.maxConcurrent" )
+    @WithDefault( "64" )
+    int contentMaxConcurrent();
+
+    // Max concurrent calls from this node to repository service. 0 for no limit.
+    @WithName( "downstream.repository.maxConcurrent" )
+    @WithDefault( "16" )
+    int repositoryMaxConcurrent();
+
+    // How long a call waits for a downstream permit before failing. 0 to wait forever.
+    @WithName( "downstream.acquireTimeoutSeconds" )
+    @WithDefault( "300" )
+    int downstreamAcquireTimeoutSeconds();
+
+    // Path reservation backend for conflict check of 'failWhenExists' promotions, 'memory' or 'cassandra'.
+    @WithName( "reservation.backend" )
+    @WithDefault( "memory" )
+    String reservationBackend();
+
+    // Lease of path reservations. Reservations not released (e.g., node crashed) expire after it.
+    @WithName( "reservation.leaseSeconds" )
+    @WithDefault( "3600" )
+    int reservationLeaseSeconds();
+}
@@ -33,6 +33,14 @@ public interface ServiceWeftConfig
 
     String PROMOTE_RULES_BATCH_EXECUTOR = "promote-rules-batch-executor";
 
+    String PROMOTE_COPY_EXECUTOR = "promote-copy-executor";
+
+    String PROMOTE_REDOWNLOAD_EXECUTOR = "promote-redownload-executor";
+
+    String PROMOTE_EXIST_EXECUTOR = "promote-exist-executor";
+
+    String PROMOTE_STORE_EXECUTOR = "promote-store-executor";
+
     @WithName( PROMOTE_RUNNER )
     @WithDefault( "8" )
     int promoteRunner();
@@ -44,4 +52,20 @@ public interface ServiceWeftConfig
     @WithName( PROMOTE_RULES_BATCH_EXECUTOR )
     @WithDefault( "16" )
     int promoteRulesBatchExecutor();
+
+    @WithName( PROMOTE_COPY_EXECUTOR )
+    @WithDefault( "16" )
+    int promoteCopyExecutor();
+
+    @WithName( PROMOTE_REDOWNLOAD_EXECUTOR )
+    @WithDefault( "8" )
+    int promoteRedownloadExecutor();
+
+    @WithName( PROMOTE_EXIST_EXECUTOR )
+    @WithDefault( "8" )
+    int promoteExistExecutor();
+
+    @WithName( PROMOTE_STORE_EXECUTOR )
+    @WithDefault( "4" )
+    int promoteStoreExecutor();
 }
@@ -38,6 +38,10 @@ public class ServiceWeftConfigProvider
         ret.configureThreads( PROMOTE_RUNNER, serviceWeftConfig.promoteRunner() );
         ret.configureThreads( PROMOTE_RULES_RUNNER, serviceWeftConfig.promoteRulesRunner() );
         ret.configureThreads( PROMOTE_RULES_BATCH_EXECUTOR, serviceWeftConfig.promoteRulesBatchExecutor() );
+        ret.configureThreads( PROMOTE_COPY_EXECUTOR, serviceWeftConfig.promoteCopyExecutor() );
+        ret.configureThreads( PROMOTE_REDOWNLOAD_EXECUTOR, serviceWeftConfig.promoteRedownloadExecutor() );
+        ret.configureThreads( PROMOTE_EXIST_EXECUTOR, serviceWeftConfig.promoteExistExecutor() );
+        ret.configureThreads( PROMOTE_STORE_EXECUTOR, serviceWeftConfig.promoteStoreExecutor() );
         return ret;
     }
 
@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.config.PromoteConfig;
+import org.commonjava.service.promote.exception.PromotionOverloadException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Admission control of promotions, weighted by the number of paths rather than the number of requests. At most
+ * {@link PromoteConfig#admissionMaxInFlightPaths()} paths are being promoted at the same time. When that is reached,
+ * sync requests are rejected, and async requests wait in a FIFO queue bounded by
+ * {@link PromoteConfig#admissionMaxQueuedPaths()} paths. Rejected requests get a {@link PromotionOverloadException},
+ * which is sent to the client as 429 with Retry-After.
+ *
+ * Besides the paths, the backlog of the pools doing the promotions is taken into account: while any registered pool
+ * has more than {@link PromoteConfig#admissionMaxPoolQueueDepth()} tasks waiting for a thread, new promotions are held
+ * back as if the path limit was reached, since admitting more would only make the queue longer.
+ *
+ * A request is always admitted when nothing is in flight, so a request bigger than the limit is not starved.
+ */
+@ApplicationScoped
+public class AdmissionController
+{
+    // weight of promote-all requests, whose size is not known until the source is listed
+    static final long UNKNOWN_SIZE_WEIGHT = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    PromoteConfig config;
+
+    private long maxInFlightPaths;
+
+    private long maxQueuedPaths;
+
+    private int retryAfterSeconds;
+
+    private int maxPoolQueueDepth;
+
+    private final Map<String, IntSupplier> poolQueues = new ConcurrentHashMap<>();
+
+    private long inFlightPaths;
+
+    private long queuedPaths;
+
+    private final Deque<Pending> queue = new ArrayDeque<>();
+
+    private final LongAdder admitted = new LongAdder();
+
+    private final LongAdder deferred = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    protected AdmissionController()
+    {
+    }
+
+    public AdmissionController( long maxInFlightPaths, long maxQueuedPaths, int retryAfterSeconds )
+    {
+        this( maxInFlightPaths, maxQueuedPaths, retryAfterSeconds, 0 );
+    }
+
+    public AdmissionController( long maxInFlightPaths, long maxQueuedPaths, int retryAfterSeconds,
+                                int maxPoolQueueDepth )
+    {
+        this.maxInFlightPaths = maxInFlightPaths;
+        this.maxQueuedPaths = maxQueuedPaths;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.maxPoolQueueDepth = maxPoolQueueDepth;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        maxInFlightPaths = config.admissionMaxInFlightPaths();
+        maxQueuedPaths = config.admissionMaxQueuedPaths();
+        retryAfterSeconds = config.admissionRetryAfterSeconds();
+        maxPoolQueueDepth = config.admissionMaxPoolQueueDepth();
+        logger.info( "Admission control, maxInFlightPaths: {}, maxQueuedPaths: {}, retryAfterSeconds: {}, "
+                             + "maxPoolQueueDepth: {}", maxInFlightPaths, maxQueuedPaths, retryAfterSeconds,
+                     maxPoolQueueDepth );
+    }
+
+    /**
+     * Take the queue depth of the pool into account when admitting promotions.
+     * @param queueDepth number of tasks waiting for a thread of the pool
+     */
+    public void registerPool( String name, IntSupplier queueDepth )
+    {
+        poolQueues.put( name, queueDepth );
+    }
+
+    public static long weightOf( Collection<String> paths )
+    {
+        return paths == null || paths.isEmpty() ? UNKNOWN_SIZE_WEIGHT : paths.size();
+    }
+
+    /**
+     * Start the task if it is admitted. If not, defer it when deferrable and the wait queue has room, otherwise reject.
+     * The weight is held until the future returned by the task completes.
+     *
+     * @return the task result, which completes after the task is started and finished. If a deferred task fails to
+     * start, it completes exceptionally with that failure, so the caller must handle it for requests already answered
+     * @throws PromotionOverloadException if rejected
+     */
+    public <T> CompletableFuture<T> admit( final long weight, final boolean deferrable,
+                                           final Supplier<CompletableFuture<T>> task )
+            throws PromotionOverloadException
+    {
+        if ( maxInFlightPaths <= 0 )
+        {
+            return task.get();
+        }
+
+        final CompletableFuture<T> deferredResult = new CompletableFuture<>();
+        final Pending pending = new Pending( weight, () -> {
+            try
+            {
+                start( weight, task ).whenComplete( ( ret, e ) -> {
+                    if ( e != null )
+                    {
+                        deferredResult.completeExceptionally( e );
+                    }
+                    else
+                    {
+                        deferredResult.complete( ret );
+                    }
+                } );
+            }
+            catch ( RuntimeException e )
+            {
+                logger.warn( "Deferred promotion failed to start, weight: {}", weight, e );
+                deferredResult.completeExceptionally( e );
+            }
+        } );
+
+        synchronized ( this )
+        {
+            if ( queue.isEmpty() && fits( weight ) )
+            {
+                inFlightPaths += weight;
+                admitted.increment();
+            }
+            else if ( deferrable && queuedPaths + weight <= maxQueuedPaths )
+            {
+                queue.add( pending );
+                queuedPaths += weight;
+                deferred.increment();
+                logger.info( "Promotion deferred, weight: {}, inFlightPaths: {}, queuedPaths: {}", weight,
+                             inFlightPaths, queuedPaths );
+                return deferredResult;
+            }
+            else
+            {
+                rejected.increment();
+                String msg = String.format( "Too many paths in promotion, weight: %s, inFlightPaths: %s, "
+                                                    + "queuedPaths: %s, poolQueues: %s. Please retry after %s seconds",
+                                            weight, inFlightPaths, queuedPaths, getPoolQueueDepths(),
+                                            retryAfterSeconds );
+                logger.warn( msg );
+                throw new PromotionOverloadException( msg, retryAfterSeconds );
+            }
+        }
+        return start( weight, task );
+    }
+
+    private boolean fits( long weight )
+    {
+        return inFlightPaths == 0 || ( inFlightPaths + weight <= maxInFlightPaths && !isAnyPoolBacklogged() );
+    }
+
+    private boolean isAnyPoolBacklogged()
+    {
+        if ( maxPoolQueueDepth <= 0 )
+        {
+            return false;
+        }
+        for ( IntSupplier queueDepth : poolQueues.values() )
+        {
+            if ( queueDepth.getAsInt() > maxPoolQueueDepth )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Integer> getPoolQueueDepths()
+    {
+        Map<String, Integer> ret = new TreeMap<>();
+        poolQueues.forEach( ( name, queueDepth ) -> ret.put( name, queueDepth.getAsInt() ) );
+        return ret;
+    }
+
+    /**
+     * Run an admitted task. The weight must already be counted in flight.
+     */
+    private <T> CompletableFuture<T> start( final long weight, final Supplier<CompletableFuture<T>> task )
+    {
+        final CompletableFuture<T> future;
+        try
+        {
+            future = task.get();
+        }
+        catch ( RuntimeException e )
+        {
+            release( weight );
+            throw e;
+        }
+        return future.whenComplete( ( ret, e ) -> release( weight ) );
+    }
+
+    private void release( long weight )
+    {
+        final List<Pending> toStart = new ArrayList<>();
+        synchronized ( this )
+        {
+            inFlightPaths -= weight;
+            while ( !queue.isEmpty() && fits( queue.peek().weight ) )
+            {
+                Pending p = queue.poll();
+                queuedPaths -= p.weight;
+                inFlightPaths += p.weight;
+                admitted.increment();
+                toStart.add( p );
+            }
+        }
+        toStart.forEach( p -> p.start.run() );
+    }
+
+    public synchronized Map<String, Long> getStats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put( "inFlightPaths", inFlightPaths );
+        stats.put( "queuedPaths", queuedPaths );
+        stats.put( "queuedRequests", (long) queue.size() );
+        stats.put( "admitted", admitted.sum() );
+        stats.put( "deferred", deferred.sum() );
+        stats.put( "rejected", rejected.sum() );
+        getPoolQueueDepths().forEach( ( name, depth ) -> stats.put( "poolQueue." + name, (long) depth ) );
+        return stats;
+    }
+
+    private static final class Pending
+    {
+        final long weight;
+
+        final Runnable start;
+
+        Pending( long weight, Runnable start )
+        {
+            this.weight = weight;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.tracking.cassandra.CassandraClient;
+import org.commonjava.service.promote.tracking.cassandra.CassandraConfiguration;
+import org.commonjava.service.promote.tracking.cassandra.SchemaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.commonjava.service.promote.tracking.cassandra.SchemaUtils.TABLE_PATH_RESERVATION;
+
+/**
+ * Cluster-wide reservation backed by Cassandra lightweight transactions. Reservation rows are partitioned by
+ * (target, bucket) so that the paths of one bucket can be reserved by a single conditional batch (conditional batches
+ * must not span partitions). Each row is written with the lease as TTL, so reservations of a crashed node go away by
+ * themselves.
+ *
+ * All batches of one request are sent in parallel. If any of them is not applied, the applied ones are released and
+ * the request is refused. Two overlapping requests may both be refused in a rare race; that is the safe side.
+ */
+@ApplicationScoped
+public class CassandraPathReservationService
+        implements PathReservationService
+{
+    static final int BUCKETS = 64;
+
+    // keep conditional batches well below the Cassandra batch size threshold
+    static final int MAX_BATCH_ROWS = 100;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    CassandraClient client;
+
+    @Inject
+    CassandraConfiguration config;
+
+    private Session session;
+
+    private PreparedStatement preparedReserve;
+
+    private PreparedStatement preparedRelease;
+
+    public CassandraPathReservationService()
+    {
+    }
+
+    public CassandraPathReservationService( CassandraClient client, CassandraConfiguration config )
+    {
+        this.client = client;
+        this.config = config;
+        init();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if ( !config.isEnabled() )
+        {
+            logger.info( "Cassandra not enabled, skip path reservation init." );
+            return;
+        }
+
+        String keySpace = config.getKeyspace();
+        session = client.getSession( keySpace );
+        if ( session == null )
+        {
+            logger.info( "Failed to get Cassandra session" );
+            return;
+        }
+
+        session.execute( SchemaUtils.getSchemaCreateKeyspace( keySpace, config.getKeyspaceReplicas() ) );
+        session.execute( SchemaUtils.getSchemaCreateTablePathReservation( keySpace ) );
+
+        preparedReserve = session.prepare( "INSERT INTO " + keySpace + "." + TABLE_PATH_RESERVATION
+                                                   + " (target, bucket, path, owner) VALUES (?, ?, ?, ?)"
+                                                   + " IF NOT EXISTS USING TTL ?" );
+
+        preparedRelease = session.prepare( "DELETE FROM " + keySpace + "." + TABLE_PATH_RESERVATION
+                                                   + " WHERE target=? AND bucket=? AND path=? IF owner=?" );
+    }
+
+    public boolean isAvailable()
+    {
+        return session != null && !session.isClosed() && preparedReserve != null;
+    }
+
+    @Override
+    public boolean reserve( StoreKey target, Collection<String> paths, String owner, int leaseSeconds )
+    {
+        checkAvailable();
+        final String tgt = target.toString();
+        final List<Chunk> chunks = toChunks( paths );
+
+        final List<ResultSetFuture> futures = new ArrayList<>( chunks.size() );
+        for ( Chunk chunk : chunks )
+        {
+            BatchStatement batch = new BatchStatement();
+            chunk.paths.forEach( p -> batch.add( preparedReserve.bind( tgt, chunk.bucket, p, owner, leaseSeconds ) ) );
+            futures.add( session.executeAsync( batch ) );
+        }
+
+        final List<Chunk> applied = new ArrayList<>();
+        RuntimeException error = null;
+        for ( int i = 0; i < futures.size(); i++ )
+        {
+            try
+            {
+                ResultSet rs = futures.get( i ).getUninterruptibly();
+                if ( rs.wasApplied() )
+                {
+                    applied.add( chunks.get( i ) );
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                error = e;
+            }
+        }
+
+        if ( error != null || applied.size() < chunks.size() )
+        {
+            release( tgt, applied, owner );
+            if ( error != null )
+            {
+                throw error;
+            }
+            logger.warn( "Conflict detected, key: {}, owner: {}, refused chunks: {}/{}", target, owner,
+                         chunks.size() - applied.size(), chunks.size() );
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void release( StoreKey target, Collection<String> paths, String owner )
+    {
+        checkAvailable();
+        release( target.toString(), toChunks( paths ), owner );
+    }
+
+    @Override
+    public long inUseCount()
+    {
+        return -1;
+    }
+
+    private void release( String target, List<Chunk> chunks, String owner )
+    {
+        final List<ResultSetFuture> futures = new ArrayList<>( chunks.size() );
+        for ( Chunk chunk : chunks )
+        {
+            BatchStatement batch = new BatchStatement();
+            chunk.paths.forEach( p -> batch.add( preparedRelease.bind( target, chunk.bucket, p, owner ) ) );
+            futures.add( session.executeAsync( batch ) );
+        }
+
+        for ( int i = 0; i < futures.size(); i++ )
+        {
+            try
+            {
+                if ( !futures.get( i ).getUninterruptibly().wasApplied() )
+                {
+                    // some rows in the chunk are not ours any more (lease expired), release the rest one by one
+                    Chunk chunk = chunks.get( i );
+                    chunk.paths.forEach( p -> session.executeAsync(
+                            preparedRelease.bind( target, chunk.bucket, p, owner ) ) );
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                // the rows will expire by the lease
+                logger.warn( "Release reservation failed, target: {}, owner: {}, error: {}", target, owner,
+                             e.toString() );
+            }
+        }
+    }
+
+    private void checkAvailable()
+    {
+        if ( !isAvailable() )
+        {
+            throw new IllegalStateException( "Cassandra path reservation is not available" );
+        }
+    }
+
+    private List<Chunk> toChunks( Collection<String> paths )
+    {
+        final Map<Integer, List<String>> buckets = new TreeMap<>();
+        paths.forEach( p -> buckets.computeIfAbsent( bucketOf( p ), k -> new ArrayList<>() ).add( p ) );
+
+        final List<Chunk> chunks = new ArrayList<>();
+        buckets.forEach( ( bucket, bucketPaths ) -> {
+            for ( int i = 0; i < bucketPaths.size(); i += MAX_BATCH_ROWS )
+            {
+                chunks.add( new Chunk( bucket, bucketPaths.subList( i,
+                                                                    Math.min( i + MAX_BATCH_ROWS,
+                                                                              bucketPaths.size() ) ) ) );
+            }
+        } );
+        return chunks;
+    }
+
+    static int bucketOf( String path )
+    {
+        return Math.floorMod( path.hashCode(), BUCKETS );
+    }
+
+    private static final class Chunk
+    {
+        final int bucket;
+
+        final List<String> paths;
+
+        Chunk( int bucket, List<String> paths )
+        {
+            this.bucket = bucket;
+            this.paths = paths;
+        }
+    }
+}
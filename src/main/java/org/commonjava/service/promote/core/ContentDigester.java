@@ -15,10 +15,11 @@
  */
 package org.commonjava.service.promote.core;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.commonjava.service.promote.client.content.ContentService;
 import org.commonjava.service.promote.model.StoreKey;
 import org.commonjava.service.promote.util.ContentDigest;
+import org.commonjava.service.promote.util.DigestBundle;
+import org.commonjava.service.promote.util.StreamingDigester;
 import org.commonjava.service.promote.util.ResponseHelper;
 import org.commonjava.service.promote.validate.PromotionValidationException;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
@@ -30,9 +31,12 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
 
 import java.io.InputStream;
+import java.util.Set;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.CONTENT;
+import static org.commonjava.service.promote.util.StreamingDigester.withCommon;
 
 @ApplicationScoped
 public class ContentDigester
@@ -46,42 +50,67 @@ public class ContentDigester
     @Inject
     ResponseHelper responseHelper;
 
+    @Inject
+    DownstreamLimiter limiter;
+
+    @Inject
+    DigestCache digestCache;
+
     public ContentDigester() {
     }
 
+    public ContentDigester( DigestCache digestCache ) {
+        this.digestCache = digestCache;
+    }
+
+    /**
+     * Get the digest of the path from the digest cache, the checksum file, or by downloading and digesting the file.
+     * @return the checksum, or null if the path does not exist.
+     */
     public String digest(StoreKey key, String path, ContentDigest digest) throws Exception
     {
-        // Retrieve the checksum file if it exists
-        try(Response resp = contentService.retrieve(key.getPackageType(), key.getType().getName(), key.getName(),
-                path + digest.getFileExt()) )
+        String checksum = digestCache.get(key, path, digest);
+        if ( checksum != null )
         {
-            if ( resp.getStatus() == SC_OK )
-            {
-                String content = resp.readEntity(String.class);
-                if ( isNotBlank( content ))
-                {
-                    String checksum = content.trim();
-                    logger.debug("Get checksum {}:{}{}, {}", key, path, digest.getFileExt(), checksum);
-                    return checksum;
-                }
-            }
+            logger.debug("Get cached checksum {}:{}, {}", key, path, checksum);
+            return checksum;
         }
-        catch ( Exception e )
+
+        long begin = digestCache.begin(key, path);
+        checksum = getChecksumFile(key, path, digest);
+        if ( checksum != null )
         {
-            ignore404(e);
+            digestCache.put(key, path, digest, checksum, begin);
+            return checksum;
+        }
+
+        // Retrieve the raw file, calculate the common digests in one pass and cache all of them
+        DigestBundle bundle = digestAll(key, path, withCommon(digest));
+        if ( bundle == null )
+        {
+            return null;
         }
+        bundle.getDigests().forEach((d, hex) -> digestCache.put(key, path, d, hex, begin));
+        return bundle.get(digest);
+    }
 
-        // Retrieve the raw file and calculate checksum
-        try( Response resp = contentService.retrieve(key.getPackageType(), key.getType().getName(),
+    /**
+     * Retrieve the raw file and calculate the digests in one pass.
+     * @return the digests, or null if the path does not exist.
+     */
+    public DigestBundle digestAll(StoreKey key, String path, Set<ContentDigest> digests) throws Exception
+    {
+        try( DownstreamLimiter.Permit permit = limiter.acquire( CONTENT );
+             Response resp = contentService.retrieve(key.getPackageType(), key.getType().getName(),
                 key.getName(), path) )
         {
             if (resp.getStatus() == SC_OK)
             {
                 try (InputStream is = resp.readEntity(InputStream.class))
                 {
-                    String checksum = DigestUtils.sha256Hex(is);
-                    logger.debug("Retrieve and digest {}:{}, {}", key, path, checksum);
-                    return checksum;
+                    DigestBundle bundle = StreamingDigester.digest(is, digests);
+                    logger.debug("Retrieve and digest {}:{}, {}", key, path, bundle);
+                    return bundle;
                 }
             }
             else
@@ -99,6 +128,34 @@ public class ContentDigester
         return null;
     }
 
+    /**
+     * Retrieve the checksum file (e.g., foo.jar.sha256) of the path.
+     * @return the checksum, or null if the checksum file does not exist or is blank.
+     */
+    public String getChecksumFile(StoreKey key, String path, ContentDigest digest) throws Exception
+    {
+        try(DownstreamLimiter.Permit permit = limiter.acquire( CONTENT );
+            Response resp = contentService.retrieve(key.getPackageType(), key.getType().getName(), key.getName(),
+                path + digest.getFileExt()) )
+        {
+            if ( resp.getStatus() == SC_OK )
+            {
+                String content = resp.readEntity(String.class);
+                if ( isNotBlank( content ))
+                {
+                    String checksum = content.trim();
+                    logger.debug("Get checksum {}:{}{}, {}", key, path, digest.getFileExt(), checksum);
+                    return checksum;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            ignore404(e);
+        }
+        return null;
+    }
+
     private void ignore404(Exception e) throws Exception
     {
         if ( responseHelper.isRest404Exception(e) )
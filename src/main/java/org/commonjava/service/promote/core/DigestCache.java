@@ -0,0 +1,592 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.commonjava.service.promote.client.kafka.DigestInvalidationBroadcaster;
+import org.commonjava.service.promote.config.PromoteConfig;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
+import org.commonjava.service.promote.util.ContentDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Cache of content digests keyed by store, path and digest algorithm, so the checksums of the same content (e.g., in
+ * hosted:build-1) are not downloaded and computed again for every promotion. The memory tier is LRU bounded
+ * by {@link PromoteConfig#digestCacheMaxSize()}. If {@link PromoteConfig#digestCacheDir()} is set, digests are also
+ * written to disk and survive restarts. Entries expire after {@link PromoteConfig#digestCacheTtlSeconds()}.
+ *
+ * Digests of groups are not cached: what a group serves for a path depends on its membership and the content of all
+ * its constituents, which change without the group itself being touched. Validation rules digest the constituent
+ * serving the path instead, as found by {@code locateInBatch} of the validation tools.
+ *
+ * Promoting or deleting a path changes it in the store and in every group containing the store, so paths are
+ * invalidated across all stores. A digest computed while its path or store was invalidated is not cached, see
+ * {@link #begin(StoreKey, String)}. Path invalidations are broadcast to the other nodes (see
+ * {@link DigestInvalidationBroadcaster}), store invalidations come to every node with the store events. Store
+ * invalidations are also written to the disk tier, so the digests written before them are still ignored after a
+ * restart.
+ */
+@ApplicationScoped
+public class DigestCache
+{
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private static final String STORE_INVALIDATIONS_FILE = "store-invalidations";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    PromoteConfig config;
+
+    @Inject
+    DigestInvalidationBroadcaster broadcaster;
+
+    private final Object[] fileLocks = new Object[LOCK_STRIPES];
+
+    // bumped by path invalidations, by stripe of the path
+    private final AtomicLong[] pathGenerations = new AtomicLong[GENERATION_STRIPES];
+
+    // bumped by store invalidations
+    private final Map<StoreKey, AtomicLong> storeGenerations = new ConcurrentHashMap<>();
+
+    private final Map<StoreKey, Long> storeInvalidated = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private Map<Key, Entry> entries = new LinkedHashMap<>();
+
+    private final Map<String, Set<Key>> keysByPath = new HashMap<>();
+
+    private int maxSize;
+
+    private long ttlMillis;
+
+    private File dir;
+
+    protected DigestCache()
+    {
+    }
+
+    public DigestCache( int maxSize, int ttlSeconds, File dir )
+    {
+        configure( maxSize, ttlSeconds, dir );
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        configure( config.digestCacheMaxSize(), config.digestCacheTtlSeconds(), config.digestCacheDir().orElse( null ) );
+        logger.info( "Digest cache, enabled: {}, maxSize: {}, ttlSeconds: {}, dir: {}", isEnabled(), maxSize,
+                     ttlMillis / 1000, dir );
+        purgeExpiredFiles();
+    }
+
+    private void configure( int maxSize, int ttlSeconds, File dir )
+    {
+        for ( int i = 0; i < LOCK_STRIPES; i++ )
+        {
+            fileLocks[i] = new Object();
+        }
+        for ( int i = 0; i < GENERATION_STRIPES; i++ )
+        {
+            pathGenerations[i] = new AtomicLong();
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.dir = dir;
+        readStoreInvalidations();
+        this.entries = new LinkedHashMap<Key, Entry>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Key, Entry> eldest )
+            {
+                if ( size() > DigestCache.this.maxSize )
+                {
+                    unindex( eldest.getKey() );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled()
+    {
+        return maxSize > 0 && ttlMillis > 0;
+    }
+
+    private boolean isCached( StoreKey store )
+    {
+        return isEnabled() && store.getType() != StoreType.group;
+    }
+
+    /**
+     * Get the cached digest, or null if not cached.
+     */
+    public String get( StoreKey store, String path, ContentDigest digest )
+    {
+        if ( !isCached( store ) )
+        {
+            return null;
+        }
+
+        final Key key = new Key( store, path, digest );
+        final long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized ( this )
+        {
+            entry = entries.get( key );
+            if ( entry != null && !isValid( store, entry.created, now ) )
+            {
+                remove( key );
+                entry = null;
+            }
+        }
+
+        if ( entry == null && dir != null )
+        {
+            entry = readFile( key, now );
+            if ( entry != null )
+            {
+                putEntry( key, entry );
+            }
+        }
+
+        if ( entry == null )
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.checksum;
+    }
+
+    /**
+     * Call it before computing the digest of the path in the store and pass the result to {@link #put}. If the path or
+     * the store is invalidated in between, the digest may be computed from the old content and is not cached.
+     * Invalidations of other stores do not matter, nor do those of other paths unless they share a stripe.
+     */
+    public long begin( StoreKey store, String path )
+    {
+        // both only grow, so the sum changes whenever either does
+        AtomicLong storeGeneration = storeGenerations.get( store );
+        return pathGeneration( path ).get() + ( storeGeneration == null ? 0 : storeGeneration.get() );
+    }
+
+    private AtomicLong pathGeneration( String path )
+    {
+        return pathGenerations[Math.floorMod( path.hashCode(), GENERATION_STRIPES )];
+    }
+
+    public void put( StoreKey store, String path, ContentDigest digest, String checksum, long begin )
+    {
+        if ( !isCached( store ) || checksum == null )
+        {
+            return;
+        }
+
+        final Key key = new Key( store, path, digest );
+        final Entry entry = new Entry( checksum, System.currentTimeMillis() );
+        synchronized ( this )
+        {
+            if ( begin != begin( store, path ) )
+            {
+                return;
+            }
+            putEntry( key, entry );
+        }
+        if ( dir != null )
+        {
+            writeFile( key, entry, begin );
+        }
+    }
+
+    /**
+     * Drop the digests of the paths in all stores, e.g., when the paths are promoted or deleted, on this node and on
+     * the other nodes.
+     */
+    public void invalidate( Collection<String> paths )
+    {
+        if ( !isEnabled() || paths == null || paths.isEmpty() )
+        {
+            return;
+        }
+        invalidateLocally( paths );
+        if ( broadcaster != null )
+        {
+            broadcaster.publish( paths );
+        }
+    }
+
+    /**
+     * Drop the digests of the paths in all stores on this node only, e.g., when another node broadcasts them.
+     */
+    public void invalidateLocally( Collection<String> paths )
+    {
+        if ( !isEnabled() || paths == null || paths.isEmpty() )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            paths.forEach( p -> {
+                pathGeneration( p ).incrementAndGet();
+                Set<Key> keys = keysByPath.remove( p );
+                if ( keys != null )
+                {
+                    keys.forEach( entries::remove );
+                }
+            } );
+        }
+        if ( dir != null )
+        {
+            paths.forEach( p -> {
+                synchronized ( fileLock( p ) )
+                {
+                    getFile( p ).delete();
+                }
+            } );
+        }
+        logger.debug( "Invalidate digests, paths: {}", paths.size() );
+    }
+
+    /**
+     * Drop the digests of the store, e.g., when the store (or the membership of a group) is changed.
+     */
+    public void invalidate( StoreKey store )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            storeGenerations.computeIfAbsent( store, k -> new AtomicLong() ).incrementAndGet();
+            // disk entries are not rewritten, the ones created before this time are ignored when read
+            storeInvalidated.put( store, System.currentTimeMillis() );
+            new ArrayList<>( entries.keySet() ).stream().filter( k -> k.store.equals( store ) ).forEach( this::remove );
+        }
+        writeStoreInvalidations();
+        logger.debug( "Invalidate digests, store: {}", store );
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put( "enabled", isEnabled() );
+        synchronized ( this )
+        {
+            ret.put( "size", entries.size() );
+        }
+        ret.put( "maxSize", maxSize );
+        ret.put( "hits", hits.get() );
+        ret.put( "misses", misses.get() );
+        ret.put( "dir", dir == null ? null : dir.getPath() );
+        return ret;
+    }
+
+    private synchronized void putEntry( Key key, Entry entry )
+    {
+        entries.put( key, entry );
+        keysByPath.computeIfAbsent( key.path, p -> new HashSet<>() ).add( key );
+    }
+
+    private void remove( Key key )
+    {
+        entries.remove( key );
+        unindex( key );
+    }
+
+    private void unindex( Key key )
+    {
+        Set<Key> keys = keysByPath.get( key.path );
+        if ( keys != null )
+        {
+            keys.remove( key );
+            if ( keys.isEmpty() )
+            {
+                keysByPath.remove( key.path );
+            }
+        }
+    }
+
+    private boolean isValid( StoreKey store, long created, long now )
+    {
+        if ( created + ttlMillis <= now )
+        {
+            return false;
+        }
+        Long invalidated = storeInvalidated.get( store );
+        return invalidated == null || created > invalidated;
+    }
+
+    /*
+     * One file per path with a line per store and digest: '<store> <digest> <created> <checksum>'
+     */
+    private File getFile( String path )
+    {
+        String name = DigestUtils.sha1Hex( path );
+        return new File( new File( dir, name.substring( 0, 2 ) ), name );
+    }
+
+    private Object fileLock( String path )
+    {
+        return fileLocks[Math.floorMod( path.hashCode(), LOCK_STRIPES )];
+    }
+
+    private Entry readFile( Key key, long now )
+    {
+        synchronized ( fileLock( key.path ) )
+        {
+            for ( String[] line : readLines( getFile( key.path ) ) )
+            {
+                if ( line[0].equals( key.store.toString() ) && line[1].equals( key.digest.name() ) )
+                {
+                    long created = Long.parseLong( line[2] );
+                    return isValid( key.store, created, now ) ? new Entry( line[3], created ) : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeFile( Key key, Entry entry, long begin )
+    {
+        final File file = getFile( key.path );
+        synchronized ( fileLock( key.path ) )
+        {
+            if ( begin != begin( key.store, key.path ) )
+            {
+                return; // invalidated after the entry was put in memory
+            }
+            final List<String> lines = new ArrayList<>();
+            for ( String[] line : readLines( file ) )
+            {
+                if ( !( line[0].equals( key.store.toString() ) && line[1].equals( key.digest.name() ) ) )
+                {
+                    lines.add( String.join( " ", line ) );
+                }
+            }
+            lines.add( key.store + " " + key.digest.name() + " " + entry.created + " " + entry.checksum );
+
+            try
+            {
+                file.getParentFile().mkdirs();
+                Path tmp = Files.createTempFile( file.getParentFile().toPath(), file.getName(), ".tmp" );
+                Files.write( tmp, lines, StandardCharsets.UTF_8 );
+                Files.move( tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to write digest file: {}, error: {}", file, e.toString() );
+            }
+        }
+    }
+
+    private List<String[]> readLines( File file )
+    {
+        final List<String[]> ret = new ArrayList<>();
+        if ( !file.isFile() )
+        {
+            return ret;
+        }
+        try
+        {
+            for ( String line : Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) )
+            {
+                String[] parts = line.trim().split( " " );
+                if ( parts.length == 4 )
+                {
+                    ret.add( parts );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to read digest file: {}, error: {}", file, e.toString() );
+        }
+        return ret;
+    }
+
+    /*
+     * One line per store: '<store> <invalidated>'. Only the ones younger than the TTL matter, older disk entries are
+     * expired anyway.
+     */
+    private synchronized void readStoreInvalidations()
+    {
+        storeInvalidated.clear();
+        if ( dir == null )
+        {
+            return;
+        }
+        final File file = new File( dir, STORE_INVALIDATIONS_FILE );
+        if ( !file.isFile() )
+        {
+            return;
+        }
+        try
+        {
+            for ( String line : Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) )
+            {
+                String[] parts = line.trim().split( " " );
+                if ( parts.length == 2 )
+                {
+                    storeInvalidated.put( StoreKey.fromString( parts[0] ), Long.parseLong( parts[1] ) );
+                }
+            }
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            // without the markers the disk entries can not be trusted
+            logger.warn( "Failed to read store invalidations: {}, dropping the disk tier, error: {}", file,
+                         e.toString() );
+            deleteFiles( f -> true );
+        }
+    }
+
+    private synchronized void writeStoreInvalidations()
+    {
+        if ( dir == null )
+        {
+            return;
+        }
+        final long expired = System.currentTimeMillis() - ttlMillis;
+        storeInvalidated.values().removeIf( t -> t < expired );
+        final List<String> lines = new ArrayList<>();
+        storeInvalidated.forEach( ( store, time ) -> lines.add( store + " " + time ) );
+        final File file = new File( dir, STORE_INVALIDATIONS_FILE );
+        try
+        {
+            dir.mkdirs();
+            Path tmp = Files.createTempFile( dir.toPath(), STORE_INVALIDATIONS_FILE, ".tmp" );
+            Files.write( tmp, lines, StandardCharsets.UTF_8 );
+            Files.move( tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to write store invalidations: {}, error: {}", file, e.toString() );
+        }
+    }
+
+    private void purgeExpiredFiles()
+    {
+        if ( !isEnabled() || dir == null || !dir.isDirectory() )
+        {
+            return;
+        }
+        final long expired = System.currentTimeMillis() - ttlMillis;
+        deleteFiles( f -> f.lastModified() < expired );
+    }
+
+    private void deleteFiles( Predicate<File> filter )
+    {
+        if ( dir == null || !dir.isDirectory() )
+        {
+            return;
+        }
+        try (Stream<Path> files = Files.walk( dir.toPath() ))
+        {
+            files.map( Path::toFile )
+                 .filter( f -> f.isFile() && !f.getName().equals( STORE_INVALIDATIONS_FILE ) && filter.test( f ) )
+                 .forEach( File::delete );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to delete digest files, dir: {}, error: {}", dir, e.toString() );
+        }
+    }
+
+    private static final class Key
+    {
+        final StoreKey store;
+
+        final String path;
+
+        final ContentDigest digest;
+
+        Key( StoreKey store, String path, ContentDigest digest )
+        {
+            this.store = store;
+            this.path = path;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+            Key that = (Key) o;
+            return store.equals( that.store ) && path.equals( that.path ) && digest == that.digest;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( store, path, digest );
+        }
+    }
+
+    private static final class Entry
+    {
+        final String checksum;
+
+        final long created;
+
+        Entry( String checksum, long created )
+        {
+            this.checksum = checksum;
+            this.created = created;
+        }
+    }
+}
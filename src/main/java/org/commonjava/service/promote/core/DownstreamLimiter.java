@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.config.PromoteConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limit concurrent calls from this node to each downstream service. The limits are independent of the thread pool
+ * sizes, so pools can be sized for the (mostly blocking) work they run without overloading storage, content or
+ * repository service.
+ *
+ * A permit should be held until the response body is consumed, e.g.,
+ * <pre>
+ * try ( Permit p = limiter.acquire( CONTENT ); Response resp = contentService.retrieve( ... ) ) { ... }
+ * </pre>
+ */
+@ApplicationScoped
+public class DownstreamLimiter
+{
+    public enum Downstream
+    {
+        STORAGE, CONTENT, REPOSITORY
+    }
+
+    private static final Permit NO_PERMIT = () -> {
+    };
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    PromoteConfig config;
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>( Downstream.class );
+
+    private long acquireTimeoutSeconds;
+
+    protected DownstreamLimiter()
+    {
+    }
+
+    public DownstreamLimiter( int storage, int content, int repository, long acquireTimeoutSeconds )
+    {
+        configure( storage, content, repository, acquireTimeoutSeconds );
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        configure( config.storageMaxConcurrent(), config.contentMaxConcurrent(), config.repositoryMaxConcurrent(),
+                   config.downstreamAcquireTimeoutSeconds() );
+        logger.info( "Downstream limits, storage: {}, content: {}, repository: {}, acquireTimeoutSeconds: {}",
+                     config.storageMaxConcurrent(), config.contentMaxConcurrent(), config.repositoryMaxConcurrent(),
+                     acquireTimeoutSeconds );
+    }
+
+    private void configure( int storage, int content, int repository, long acquireTimeoutSeconds )
+    {
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+        setLimit( Downstream.STORAGE, storage );
+        setLimit( Downstream.CONTENT, content );
+        setLimit( Downstream.REPOSITORY, repository );
+    }
+
+    private void setLimit( Downstream downstream, int limit )
+    {
+        if ( limit > 0 )
+        {
+            permits.put( downstream, new Semaphore( limit, true ) );
+        }
+    }
+
+    /**
+     * Wait for a permit to call the downstream. The returned permit must be closed when the call is done.
+     * @throws IllegalStateException if no permit is available within the acquire timeout, or the thread is interrupted
+     */
+    public Permit acquire( Downstream downstream )
+    {
+        final Semaphore semaphore = permits.get( downstream );
+        if ( semaphore == null )
+        {
+            return NO_PERMIT;
+        }
+
+        try
+        {
+            boolean acquired = acquireTimeoutSeconds > 0 ?
+                    semaphore.tryAcquire( acquireTimeoutSeconds, TimeUnit.SECONDS ) :
+                    acquireNow( semaphore );
+            if ( !acquired )
+            {
+                throw new IllegalStateException(
+                        "Downstream " + downstream + " is busy, no permit within " + acquireTimeoutSeconds + "s" );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for downstream " + downstream );
+        }
+
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if ( released.compareAndSet( false, true ) )
+            {
+                semaphore.release();
+            }
+        };
+    }
+
+    private boolean acquireNow( Semaphore semaphore ) throws InterruptedException
+    {
+        semaphore.acquire();
+        return true;
+    }
+
+    /**
+     * @return per downstream, the available permits and the number of threads waiting for one
+     */
+    public Map<String, Map<String, Integer>> getStats()
+    {
+        Map<String, Map<String, Integer>> ret = new LinkedHashMap<>();
+        permits.forEach( ( downstream, semaphore ) -> {
+            Map<String, Integer> stats = new LinkedHashMap<>();
+            stats.put( "available", semaphore.availablePermits() );
+            stats.put( "waiting", semaphore.getQueueLength() );
+            ret.put( downstream.name().toLowerCase(), stats );
+        } );
+        return ret;
+    }
+
+    @FunctionalInterface
+    public interface Permit
+            extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.model.StoreKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM-local reservation index of (target, path) -> owner. Paths are reserved by putIfAbsent in sorted order. With a
+ * global order, two overlapping requests can not both fail because of each other - at least one of them wins.
+ */
+@ApplicationScoped
+public class InMemoryPathReservationService
+        implements PathReservationService
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<String, Lease> inUse = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean reserve( StoreKey target, Collection<String> paths, String owner, int leaseSeconds )
+    {
+        final String prefix = toKeyPrefix( target );
+        final List<String> claimed = new ArrayList<>( paths.size() );
+        for ( String path : paths.stream().sorted().toArray( String[]::new ) )
+        {
+            final String key = prefix + path;
+            final long now = System.currentTimeMillis();
+            final Lease lease = new Lease( owner, now + leaseSeconds * 1000L );
+            final Lease holder = inUse.compute( key, ( k, v ) -> v == null || v.expires < now ? lease : v );
+            if ( holder != lease )
+            {
+                logger.warn( "Conflict detected, key: {}, path: {}, owner: {}", target, path, holder.owner );
+                releaseKeys( claimed, owner );
+                return false;
+            }
+            claimed.add( key );
+        }
+        return true;
+    }
+
+    @Override
+    public void release( StoreKey target, Collection<String> paths, String owner )
+    {
+        final String prefix = toKeyPrefix( target );
+        paths.forEach( path -> inUse.computeIfPresent( prefix + path, ( k, v ) -> owner.equals( v.owner ) ? null : v ) );
+    }
+
+    @Override
+    public long inUseCount()
+    {
+        return inUse.size();
+    }
+
+    private void releaseKeys( List<String> keys, String owner )
+    {
+        keys.forEach( key -> inUse.computeIfPresent( key, ( k, v ) -> owner.equals( v.owner ) ? null : v ) );
+    }
+
+    private String toKeyPrefix( StoreKey target )
+    {
+        return target.toString() + "#";
+    }
+
+    private static final class Lease
+    {
+        final String owner;
+
+        final long expires;
+
+        Lease( String owner, long expires )
+        {
+            this.owner = owner;
+            this.expires = expires;
+        }
+    }
+}
@@ -15,104 +15,188 @@
  */
 package org.commonjava.service.promote.core;
 
+import org.commonjava.service.promote.config.PromoteConfig;
 import org.commonjava.service.promote.model.PathsPromoteResult;
-import org.commonjava.service.promote.model.StoreKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
-import java.util.HashMap;
-import java.util.HashSet;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
-import static java.util.Collections.disjoint;
-
 /**
  * This class is used to check whether the are more than one promotion requests promoting some paths to same target repo.
  *
- * TODO: conflict manager will not work as expected when moved to promotion service, as different nodes cannot sync
- * with each other. We may need a third party service to hold the 'inUseMap'. This again needs a locking mechanism that
- * were designed for a cluster environment.
+ * Each check reserves its paths via a {@link PathReservationService} under a unique owner id, and releases them when
+ * done. The backend is chosen by 'promote.reservation.backend':
+ * <ul>
+ *     <li>memory (default) - JVM-local index, only detects conflicts of promotions on the same node.</li>
+ *     <li>cassandra - cluster-wide reservation with Cassandra lightweight transactions, so replicas behind a load
+ *     balancer see each other's promotions. If Cassandra is not available, it falls back to the local index.</li>
+ * </ul>
  *
  * On a second look, this conflict manager serves the 'failWhenExists'. Actually this flag is not meant to check concurrent
  * promotions. Rather, it is to check conflict paths in target repo (e.g, 'pnc-builds' needs the flag to be ture,
  * while 'shared-imports' does not care. This kind of conflict checks are carried over by validation rules.)
- * Given this understanding, checking the in-memory concurrent promotion conflicts has little meaning at all.
- *
- * Probably we can just abandon this class in future. At this moment, I just keep it as is.
  * ruhan Sep 22, 2022.
  */
 @ApplicationScoped
 public class PathConflictManager
 {
+    public static final String BACKEND_MEMORY = "memory";
+
+    public static final String BACKEND_CASSANDRA = "cassandra";
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
-    private final Map<StoreKey, Set<StoreKeyPaths>> inUseMap = new HashMap<>();
+    @Inject
+    PromoteConfig config;
+
+    @Inject
+    InMemoryPathReservationService localReservations;
+
+    @Inject
+    Instance<CassandraPathReservationService> cassandraReservations;
+
+    private PathReservationService reservations;
+
+    private int leaseSeconds = DEFAULT_LEASE_SECONDS;
+
+    private final LongAdder checks = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder claimedPaths = new LongAdder();
+
+    private final LongAdder reservationErrors = new LongAdder();
+
+    static final int DEFAULT_LEASE_SECONDS = 3600;
+
+    protected PathConflictManager()
+    {
+    }
+
+    public PathConflictManager( PathReservationService reservations )
+    {
+        this.localReservations = new InMemoryPathReservationService();
+        this.reservations = reservations;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        leaseSeconds = config.reservationLeaseSeconds();
+        reservations = localReservations;
+        if ( BACKEND_CASSANDRA.equalsIgnoreCase( config.reservationBackend() ) )
+        {
+            CassandraPathReservationService cassandra = cassandraReservations.get();
+            if ( cassandra.isAvailable() )
+            {
+                reservations = cassandra;
+            }
+            else
+            {
+                logger.warn( "Cassandra path reservation not available, use local reservation" );
+            }
+        }
+        logger.info( "Path conflict manager use reservation backend: {}, lease: {}s",
+                     reservations.getClass().getSimpleName(), leaseSeconds );
+    }
 
     public PathsPromoteResult checkAnd(StoreKeyPaths k, Function<StoreKeyPaths, PathsPromoteResult> function,
                                        Function<StoreKeyPaths, PathsPromoteResult> conflictedFunction )
     {
-        Set<StoreKeyPaths> inUse = null;
-        boolean conflicted = false;
+        final String owner = UUID.randomUUID().toString();
+        PathReservationService reserved = null;
         try
         {
-            logger.debug( "Check paths conflict for {}", k );
-            synchronized ( inUseMap )
-            {
-                inUse = inUseMap.get( k.getTarget() );
-                if ( inUse == null )
-                {
-                    inUse = new HashSet<>();
-                    inUse.add( k );
-                    inUseMap.put( k.getTarget(), inUse );
-                }
-                else
-                {
-                    conflicted = hasConflict( k.getPaths(), inUse );
-                    if ( !conflicted )
-                    {
-                        inUse.add( k );
-                    }
-                }
-            }
+            logger.debug( "Check paths conflict for {}, owner: {}", k, owner );
+            checks.increment();
+            reserved = reserve( k, owner );
+            boolean conflicted = reserved == null;
 
             logger.debug( "Check done, conflicted: {}", conflicted );
             if ( conflicted )
             {
+                conflicts.increment();
                 return conflictedFunction.apply( k );
             }
             else
             {
+                claimedPaths.add( k.getPaths().size() );
                 return function.apply( k );
             }
         }
         finally
         {
             // clean up
-            synchronized ( inUseMap )
+            if ( reserved != null )
             {
-                inUse.remove( k );
-                if ( inUse.isEmpty() )
-                {
-                    inUseMap.remove( k.getTarget() );
-                }
+                release( reserved, k, owner );
             }
         }
     }
 
-    private boolean hasConflict( Set<String> paths, Set<StoreKeyPaths> inUse )
+    /**
+     * @return the backend holding the reservation, or null if conflicted
+     */
+    private PathReservationService reserve( StoreKeyPaths k, String owner )
     {
-        for ( StoreKeyPaths keyPaths : inUse )
+        PathReservationService backend = reservations;
+        try
+        {
+            return backend.reserve( k.getTarget(), k.getPaths(), owner, leaseSeconds ) ? backend : null;
+        }
+        catch ( RuntimeException e )
         {
-            Set<String> s = keyPaths.getPaths();
-            if ( !disjoint( paths, s ) )
+            if ( backend == localReservations )
             {
-                logger.warn( "Conflict detected, key: {}, paths: {}, inUse: {}", keyPaths.getTarget(), paths, s );
-                return true;
+                throw e;
             }
+            reservationErrors.increment();
+            logger.error( "Reserve paths failed, fall back to local reservation, target: " + k.getTarget(), e );
+            return localReservations.reserve( k.getTarget(), k.getPaths(), owner, leaseSeconds ) ?
+                    localReservations :
+                    null;
+        }
+    }
+
+    private void release( PathReservationService backend, StoreKeyPaths k, String owner )
+    {
+        try
+        {
+            backend.release( k.getTarget(), k.getPaths(), owner );
+        }
+        catch ( RuntimeException e )
+        {
+            // the reservation expires by the lease
+            reservationErrors.increment();
+            logger.warn( "Release paths failed, target: {}, owner: {}, error: {}", k.getTarget(), owner,
+                         e.toString() );
+        }
+    }
+
+    /**
+     * Contention statistics since startup, and the number of paths currently in use if the backend knows it.
+     */
+    public Map<String, Long> getStats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put( "checks", checks.sum() );
+        stats.put( "conflicts", conflicts.sum() );
+        stats.put( "claimedPaths", claimedPaths.sum() );
+        stats.put( "reservationErrors", reservationErrors.sum() );
+        long inUse = reservations.inUseCount();
+        if ( inUse >= 0 )
+        {
+            stats.put( "inUsePaths", inUse );
         }
-        return false;
+        return stats;
     }
 }
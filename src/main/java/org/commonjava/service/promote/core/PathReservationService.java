@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.model.StoreKey;
+
+import java.util.Collection;
+
+/**
+ * Reserve target paths for a promotion so that concurrent promotions to the same paths of the same target can be
+ * detected. A reservation is held by an owner (unique per promotion check) and expires after the lease, so paths of a
+ * crashed node will not stay reserved forever.
+ */
+public interface PathReservationService
+{
+    /**
+     * Reserve all the paths for the owner. It is all-or-nothing - if any path is reserved by another owner, the paths
+     * reserved by this call are released and false is returned.
+     *
+     * @param leaseSeconds how long the reservation lives if not released
+     * @return true if all paths are reserved
+     */
+    boolean reserve( StoreKey target, Collection<String> paths, String owner, int leaseSeconds );
+
+    /**
+     * Release the paths if they are still held by the owner.
+     */
+    void release( StoreKey target, Collection<String> paths, String owner );
+
+    /**
+     * @return the number of paths currently reserved, or -1 if it is not known by this backend
+     */
+    long inUseCount();
+}
@@ -15,40 +15,74 @@
  */
 package org.commonjava.service.promote.core;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.model.core.PathStyle;
+import org.commonjava.indy.model.util.DefaultPathGenerator;
 import org.commonjava.service.promote.client.repository.RepositoryService;
 import org.commonjava.service.promote.client.storage.*;
+import org.commonjava.service.promote.config.PromoteConfig;
+import org.commonjava.service.promote.exception.PromotionException;
 import org.commonjava.service.promote.model.PathsPromoteRequest;
 import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import static java.util.regex.Pattern.compile;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.commonjava.indy.model.core.PathStyle.plain;
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.REPOSITORY;
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.STORAGE;
 
 @ApplicationScoped
 public class PromotionHelper
 {
     public static final int DEFAULT_STORAGE_SERVICE_EXIST_CHECK_BATCH_SIZE = 1000;
 
+    public static final int DEFAULT_LIST_PAGE_SIZE = 1000;
+
+    private static final String TYPE_FILE = "file"; // for listing
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final ObjectMapper STORE_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>()
+    {
+    };
+
     final static String PATH_STYLE_PROPERTY = "path_style";
 
     final static String TIMEOUT_SECONDS_PROPERTY = "cache_timeout_seconds";
 
+    final static String CONSTITUENTS_PROPERTY = "constituents";
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     public static Predicate<String> isMetadataPredicate()
@@ -70,10 +104,36 @@ public class PromotionHelper
     @RestClient
     RepositoryService repositoryService;
 
+    @Inject
+    PromoteConfig config;
+
+    @Inject
+    DownstreamLimiter limiter;
+
+    @Inject
+    DigestCache digestCache;
+
+    @WeftManaged
+    @Inject
+    @ExecutorConfig( named = "promote-store-executor", threads = 4, priority = 8 )
+    WeftExecutorService storeExecutor;
+
+    private StoreInfoCache storeInfoCache = new StoreInfoCache( 0, 0 );
+
+    private final DefaultPathGenerator pathGenerator = new DefaultPathGenerator();
+
     public PromotionHelper()
     {
     }
 
+    @PostConstruct
+    public void init()
+    {
+        storeInfoCache = new StoreInfoCache( config.storeCacheTtlSeconds(), config.storeCacheMaxSize() );
+        logger.info( "Store info cache, enabled: {}, ttlSeconds: {}, maxSize: {}", storeInfoCache.isEnabled(),
+                     config.storeCacheTtlSeconds(), config.storeCacheMaxSize() );
+    }
+
     public void purgeSourceQuietly( StoreKey store, Set<String> paths )
     {
         delete( store, paths );
@@ -84,20 +144,132 @@ public class PromotionHelper
      * @return Error messages.
      */
     public Set<String> delete(StoreKey store, Set<String> paths ) {
+        digestCache.invalidate( paths );
         BatchDeleteRequest request = new BatchDeleteRequest();
         request.setFilesystem( store.toString() );
         request.setPaths( paths );
-        Response resp = storageService.delete(request);
+        try (DownstreamLimiter.Permit permit = limiter.acquire( STORAGE ))
+        {
+            Response resp = storageService.delete(request);
+
+            Set<String> result = new HashSet<>();
+            if ( Response.Status.fromStatusCode( resp.getStatus() ).getFamily()
+                    != Response.Status.Family.SUCCESSFUL  )
+            {
+                result.add( "Delete failed, resp status: " + resp.getStatus() );
+            }
+
+            BatchDeleteResult deleteResult = resp.readEntity(BatchDeleteResult.class);
+            return deleteResult.getFailed();
+        }
+    }
 
-        Set<String> result = new HashSet<>();
-        if ( Response.Status.fromStatusCode( resp.getStatus() ).getFamily()
-                != Response.Status.Family.SUCCESSFUL  )
+    /**
+     * List all files in the store recursively. The storage listing is a json array. Rather than materializing the
+     * whole array, we read it as a stream and hand the paths over to the consumer page by page (at most
+     * {@link #DEFAULT_LIST_PAGE_SIZE} each), so the caller can filter and collect them as they arrive.
+     *
+     * A storage permit is held while a page is read, but not while the consumer handles it: the consumer may wait for
+     * copies that need storage permits of their own, and holding one across the listing would deadlock concurrent
+     * listings once they hold all the permits.
+     *
+     * @return total number of listed paths
+     */
+    public int listPaths( StoreKey store, Consumer<List<String>> pageConsumer ) throws PromotionException
+    {
+        final Response resp;
+        try (DownstreamLimiter.Permit permit = limiter.acquire( STORAGE ))
         {
-            result.add( "Delete failed, resp status: " + resp.getStatus() );
+            resp = storageService.list( store.toString(), true, TYPE_FILE, 0 ); // no limit
         }
+        return readListing( store, resp, pageConsumer );
+    }
+
+    private int readListing( StoreKey store, Response resp, Consumer<List<String>> pageConsumer )
+            throws PromotionException
+    {
+        try
+        {
+            if ( Response.Status.fromStatusCode( resp.getStatus() ).getFamily() != Response.Status.Family.SUCCESSFUL )
+            {
+                throw new PromotionException( "List source repo failed, resp status: " + resp.getStatus() );
+            }
 
-        BatchDeleteResult deleteResult = resp.readEntity(BatchDeleteResult.class);
-        return deleteResult.getFailed();
+            int total = 0;
+            Object entity = resp.getEntity();
+            if ( entity instanceof String[] )
+            {
+                // already read, e.g., buffered by client
+                List<String> paths = Arrays.asList( (String[]) entity );
+                for ( int i = 0; i < paths.size(); i += DEFAULT_LIST_PAGE_SIZE )
+                {
+                    int end = Math.min( i + DEFAULT_LIST_PAGE_SIZE, paths.size() );
+                    pageConsumer.accept( new ArrayList<>( paths.subList( i, end ) ) );
+                }
+                total = paths.size();
+            }
+            else
+            {
+                try (InputStream in = resp.readEntity( InputStream.class );
+                     JsonParser parser = JSON_FACTORY.createParser( in ))
+                {
+                    List<String> page;
+                    while ( !( page = readPage( parser ) ).isEmpty() )
+                    {
+                        total += page.size();
+                        pageConsumer.accept( page );
+                    }
+                }
+            }
+            logger.debug( "List paths done, store: {}, total: {}", store, total );
+            return total;
+        }
+        catch ( IOException e )
+        {
+            throw new PromotionException( "List source repo failed, store: " + store + ", error: " + e.getMessage(), e );
+        }
+        finally
+        {
+            resp.close();
+        }
+    }
+
+    /**
+     * Read the next page of the listing from storage.
+     * @return the paths of the page, empty at the end of the listing
+     */
+    private List<String> readPage( JsonParser parser ) throws IOException
+    {
+        final List<String> page = new ArrayList<>( DEFAULT_LIST_PAGE_SIZE );
+        try (DownstreamLimiter.Permit permit = limiter.acquire( STORAGE ))
+        {
+            if ( parser.currentToken() == null )
+            {
+                JsonToken token = parser.nextToken();
+                if ( token == null )
+                {
+                    return page; // empty body
+                }
+                if ( token != JsonToken.START_ARRAY )
+                {
+                    throw new IOException( "Unexpected listing format, expect array but got: " + token );
+                }
+            }
+            JsonToken token;
+            while ( page.size() < DEFAULT_LIST_PAGE_SIZE && ( token = parser.nextToken() ) != JsonToken.END_ARRAY
+                    && token != null )
+            {
+                if ( token == JsonToken.VALUE_STRING )
+                {
+                    page.add( parser.getText() );
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
     }
 
     static class RepoRetrievalResult
@@ -126,12 +298,20 @@ public class PromotionHelper
         final StoreKey storeKey;
         final PathStyle pathStyle;
         final int timeoutSeconds;
+        final List<StoreKey> constituents;
 
         StoreInfo(final StoreKey storeKey, final PathStyle pathStyle, int timeoutSeconds)
+        {
+            this( storeKey, pathStyle, timeoutSeconds, Collections.emptyList() );
+        }
+
+        StoreInfo(final StoreKey storeKey, final PathStyle pathStyle, int timeoutSeconds,
+                  final List<StoreKey> constituents)
         {
             this.storeKey = storeKey;
             this.pathStyle = pathStyle;
             this.timeoutSeconds = timeoutSeconds;
+            this.constituents = constituents;
         }
 
         @Override
@@ -141,27 +321,31 @@ public class PromotionHelper
                     "storeKey=" + storeKey +
                     ", pathStyle=" + pathStyle +
                     ", timeoutSeconds=" + timeoutSeconds +
+                    ", constituents=" + constituents +
                     '}';
         }
     }
 
     /**
-     * Check whether the source and target repo exists and return useful information or errors.
+     * Check whether the source and target repo exists and return useful information or errors. Store info is served
+     * from cache if possible; on a miss, the source and target are retrieved in parallel.
      * @param request
      */
     RepoRetrievalResult retrieveSourceAndTargetRepos( PathsPromoteRequest request )
     {
         List<String> errors = new ArrayList<>();
-        StoreInfo sourceStoreInfo = null;
+
+        CompletableFuture<StoreInfo> sourceFuture = getStoreInfoAsync( request.getSource() );
         StoreInfo targetStoreInfo = null;
+        StoreInfo sourceStoreInfo = null;
 
         try
         {
-            sourceStoreInfo = getStoreInfo(request.getSource());
+            targetStoreInfo = getCachedStoreInfo( request.getTarget() );
         }
         catch ( Exception e )
         {
-            String msg = String.format( "Failed to retrieve source store: %s. Reason: %s", request.getSource(),
+            String msg = String.format( "Failed to retrieve target store: %s. Reason: %s", request.getTarget(),
                                         e.getMessage() );
             logger.error( msg, e );
             errors.add( msg );
@@ -169,14 +353,15 @@ public class PromotionHelper
 
         try
         {
-            targetStoreInfo = getStoreInfo(request.getTarget());
+            sourceStoreInfo = sourceFuture.join();
         }
         catch ( Exception e )
         {
-            String msg = String.format( "Failed to retrieve target store: %s. Reason: %s", request.getTarget(),
-                                        e.getMessage() );
-            logger.error( msg, e );
-            errors.add( msg );
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            String msg = String.format( "Failed to retrieve source store: %s. Reason: %s", request.getSource(),
+                                        cause.getMessage() );
+            logger.error( msg, cause );
+            errors.add( 0, msg );
         }
 
         if ( sourceStoreInfo == null || targetStoreInfo == null )
@@ -196,15 +381,162 @@ public class PromotionHelper
         return new RepoRetrievalResult( errors, sourceStoreInfo, targetStoreInfo );
     }
 
+    /**
+     * Drop the cached info of the store, e.g., on a store change event.
+     */
+    public void invalidateStoreInfo( StoreKey storeKey )
+    {
+        logger.debug( "Invalidate store info, store: {}", storeKey );
+        storeInfoCache.invalidate( storeKey );
+    }
+
+    /**
+     * Resolve the store to the hosted and remote stores holding its content, i.e., a group is expanded to its
+     * constituents recursively and in order. A store that can not be retrieved is returned as it is.
+     *
+     * Group definitions are always retrieved again (and refreshed in the store info cache), so a validation never runs
+     * against stale membership; the other stores may come from the cache.
+     */
+    public List<StoreKey> resolveConcreteStores( StoreKey storeKey )
+    {
+        List<StoreKey> ret = new ArrayList<>();
+        resolveConcreteStores( storeKey, new HashSet<>(), ret );
+        logger.debug( "Resolve concrete stores, store: {}, result: {}", storeKey, ret );
+        return ret;
+    }
+
+    private void resolveConcreteStores( StoreKey storeKey, Set<StoreKey> visited, List<StoreKey> ret )
+    {
+        if ( !visited.add( storeKey ) )
+        {
+            return;
+        }
+        StoreInfo info;
+        try
+        {
+            info = storeKey.getType() == StoreType.group ? getFreshStoreInfo( storeKey ) : getCachedStoreInfo( storeKey );
+        }
+        catch ( Exception e )
+        {
+            logger.warn( "Failed to retrieve store: {}, error: {}", storeKey, e.toString() );
+            info = null;
+        }
+        if ( info == null )
+        {
+            ret.add( storeKey );
+            return;
+        }
+        if ( storeKey.getType() == StoreType.group )
+        {
+            info.constituents.forEach( c -> resolveConcreteStores( c, visited, ret ) );
+        }
+        else
+        {
+            ret.add( storeKey );
+        }
+    }
+
+    /**
+     * Get the path style of the store, or null if the store can not be retrieved.
+     */
+    public PathStyle getPathStyle( StoreKey storeKey )
+    {
+        StoreInfo info = getCachedStoreInfo( storeKey );
+        return info == null ? null : info.pathStyle;
+    }
+
+    /**
+     * Get the paths missing in the storage filesystem of the store with one batch existence check. Callers split
+     * big path sets by {@link #DEFAULT_STORAGE_SERVICE_EXIST_CHECK_BATCH_SIZE}.
+     * @param paths raw paths, they are styled by the pathStyle before checking
+     * @return missing raw paths
+     */
+    public Set<String> getMissing( StoreKey storeKey, Collection<String> paths, PathStyle pathStyle )
+            throws PromotionException
+    {
+        Map<String, String> styledPathsMap = new HashMap<>(); // styled path -> raw path
+        paths.forEach( p -> styledPathsMap.put( pathGenerator.getStyledPath( p, pathStyle ), p ) );
+
+        BatchExistRequest request = new BatchExistRequest();
+        request.setFilesystem( storeKey.toString() );
+        request.setPaths( styledPathsMap.keySet() );
+        BatchExistResult batchExistResult;
+        try (DownstreamLimiter.Permit permit = limiter.acquire( STORAGE );
+             Response resp = storageService.exist( request ))
+        {
+            if ( resp.getStatus() != SC_OK )
+            {
+                throw new PromotionException( "Batch existence check failed, status:" + resp.getStatus() );
+            }
+            batchExistResult = resp.readEntity( BatchExistResult.class );
+        }
+        Set<String> ret = new HashSet<>();
+        if ( batchExistResult.getMissing() != null )
+        {
+            batchExistResult.getMissing().forEach( p -> ret.add( styledPathsMap.get( p ) ) );
+        }
+        return ret;
+    }
+
+    private CompletableFuture<StoreInfo> getStoreInfoAsync( StoreKey storeKey )
+    {
+        StoreInfo cached = storeInfoCache.get( storeKey );
+        if ( cached != null )
+        {
+            return CompletableFuture.completedFuture( cached );
+        }
+        try
+        {
+            // run in caller thread if not managed, e.g., in unit tests
+            Executor executor = storeExecutor != null ? storeExecutor : Runnable::run;
+            return CompletableFuture.supplyAsync( () -> getCachedStoreInfo( storeKey ), executor );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            return CompletableFuture.supplyAsync( () -> getCachedStoreInfo( storeKey ), Runnable::run );
+        }
+    }
+
+    private StoreInfo getCachedStoreInfo( StoreKey storeKey )
+    {
+        StoreInfo ret = storeInfoCache.get( storeKey );
+        if ( ret == null )
+        {
+            ret = getStoreInfo( storeKey );
+            storeInfoCache.put( ret );
+        }
+        return ret;
+    }
+
+    private StoreInfo getFreshStoreInfo( StoreKey storeKey )
+    {
+        StoreInfo ret = getStoreInfo( storeKey );
+        if ( ret == null )
+        {
+            storeInfoCache.invalidate( storeKey );
+        }
+        else
+        {
+            storeInfoCache.put( ret );
+        }
+        return ret;
+    }
+
     private StoreInfo getStoreInfo(StoreKey storeKey)
     {
         StoreInfo ret = null;
         String pathStyle = null;
         int timeoutSeconds = 0;
-        Response resp = repositoryService.getStore(storeKey.getPackageType(), storeKey.getType().getName(), storeKey.getName());
+        List<StoreKey> constituents = Collections.emptyList();
+        final Response resp;
+        final String content;
+        try (DownstreamLimiter.Permit permit = limiter.acquire( REPOSITORY ))
+        {
+            resp = repositoryService.getStore(storeKey.getPackageType(), storeKey.getType().getName(), storeKey.getName());
+            content = resp.getStatus() == SC_OK ? resp.readEntity(String.class) : null;
+        }
         if ( resp.getStatus() == SC_OK )
         {
-            String content = resp.readEntity(String.class);
             logger.trace("Get repo definition, {}", content);
             try
             {
@@ -215,6 +547,19 @@ public class PromotionHelper
                 {
                     timeoutSeconds = (Integer) timeout;
                 }
+                Object members = map.get( CONSTITUENTS_PROPERTY );
+                if ( members instanceof List )
+                {
+                    constituents = new ArrayList<>();
+                    for ( Object member : (List<?>) members )
+                    {
+                        StoreKey key = StoreKey.fromString( String.valueOf( member ) );
+                        if ( key != null )
+                        {
+                            constituents.add( key );
+                        }
+                    }
+                }
             }
             catch (JsonProcessingException e)
             {
@@ -224,21 +569,24 @@ public class PromotionHelper
 
             if ( isBlank(pathStyle) )
             {
-                ret = new StoreInfo(storeKey, plain, timeoutSeconds);
+                ret = new StoreInfo(storeKey, plain, timeoutSeconds, constituents);
             }
             else
             {
-                ret = new StoreInfo(storeKey, PathStyle.valueOf( pathStyle ), timeoutSeconds);
+                ret = new StoreInfo(storeKey, PathStyle.valueOf( pathStyle ), timeoutSeconds, constituents);
             }
         }
+        else
+        {
+            resp.close();
+        }
         logger.info( "Get store info, store: {}, status code: {}, pathStyle: {}", storeKey, resp.getStatus(), pathStyle );
         return ret;
     }
 
     Map<String, Object> getObjectMapFromJson(String json) throws JsonProcessingException
     {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, new TypeReference<Map>(){});
+        return STORE_MAPPER.readValue( json, MAP_TYPE );
     }
 
     public static long timeInSeconds( long begin )
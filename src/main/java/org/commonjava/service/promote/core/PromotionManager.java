@@ -15,6 +15,7 @@
  */
 package org.commonjava.service.promote.core;
 
+import io.smallrye.mutiny.Uni;
 import org.apache.commons.lang3.StringUtils;
 import org.commonjava.cdi.util.weft.*;
 
@@ -22,11 +23,11 @@ import org.commonjava.event.promote.PathsPromoteCompleteEvent;
 import org.commonjava.indy.model.core.PathStyle;
 import org.commonjava.indy.model.util.DefaultPathGenerator;
 import org.commonjava.service.promote.callback.PromotionCallbackHelper;
-import org.commonjava.service.promote.client.content.ContentService;
 import org.commonjava.service.promote.client.kafka.KafkaEventDispatcher;
 import org.commonjava.service.promote.client.storage.*;
 import org.commonjava.service.promote.config.PromoteConfig;
 import org.commonjava.service.promote.exception.PromotionException;
+import org.commonjava.service.promote.exception.PromotionOverloadException;
 import org.commonjava.service.promote.model.*;
 
 import org.commonjava.service.promote.tracking.PromoteTrackingManager;
@@ -35,14 +36,22 @@ import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
 import java.util.*;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptySet;
@@ -52,7 +61,8 @@ import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
 
 import static org.commonjava.service.promote.core.PromotionHelper.*;
 import static org.commonjava.service.promote.util.Batcher.batch;
-import static org.commonjava.service.promote.util.PoolUtils.detectOverload;
+import static org.commonjava.service.promote.util.Pipeliner.getDone;
+import static org.commonjava.service.promote.util.Pipeliner.pipeline;
 
 /**
  * Component responsible for orchestrating the transfer of artifacts from one store to another
@@ -72,6 +82,12 @@ public class PromotionManager
     @Inject
     PathConflictManager conflictManager;
 
+    @Inject
+    DigestCache digestCache;
+
+    @Inject
+    AdmissionController admission;
+
     @Inject
     PromoteTrackingManager promoteTrackingManager;
 
@@ -80,14 +96,28 @@ public class PromotionManager
     @ExecutorConfig( named = "promote-runner", threads = 8, priority = 8, loadSensitive = ExecutorConfig.BooleanLiteral.TRUE )
     WeftExecutorService promotionService;
 
+    @WeftManaged
+    @Inject
+    @ExecutorConfig( named = "promote-exist-executor", threads = 8, priority = 8 )
+    WeftExecutorService existService;
+
     @Inject
     PromotionCallbackHelper callbackHelper;
 
     @Inject
     PromotionHelper promotionHelper;
 
+    @Inject
+    StorageCopyEngine copyEngine;
+
+    @Inject
+    RemoteReDownloader reDownloader;
+
     private DefaultPathGenerator pathGenerator = new DefaultPathGenerator();
 
+    // promotions handed to promotionService but not started yet
+    private final AtomicInteger runnerQueued = new AtomicInteger();
+
     @Inject
     KafkaEventDispatcher kafkaEventDispatcher;
 
@@ -95,11 +125,6 @@ public class PromotionManager
     @RestClient
     StorageService storageService;
 
-    @Inject
-    @RestClient
-    ContentService contentService;
-
-    private static String TYPE_FILE = "file"; // for listing
 
     protected PromotionManager()
     {
@@ -112,7 +137,14 @@ public class PromotionManager
         this.config = config;
         this.promotionService = promotionService;
         this.promotionHelper = new PromotionHelper();
-        this.conflictManager = new PathConflictManager();
+        this.conflictManager = new PathConflictManager( new InMemoryPathReservationService() );
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        admission.registerPool( "promote-runner", runnerQueued::get );
+        admission.registerPool( "promote-copy-executor", copyEngine::getQueuedChunks );
     }
 
     /**
@@ -155,9 +187,43 @@ public class PromotionManager
         }
     }
 
-    private Future<PathsPromoteResult> submitPathsPromoteRequest( PathsPromoteRequest request, final String baseUrl )
+    /**
+     * Same as {@link #promotePaths(PathsPromoteRequest, String)}, but the caller is not blocked while the promotion is
+     * running on the promote-runner pool. The returned Uni emits the result (or accepted result for async requests),
+     * or fails with a {@link PromotionException}.
+     */
+    public Uni<PathsPromoteResult> promotePathsReactive( final PathsPromoteRequest request, final String baseUrl )
+    {
+        return Uni.createFrom().deferred( () -> {
+            try
+            {
+                CompletableFuture<PathsPromoteResult> future = submitPathsPromoteRequest( request, baseUrl );
+                if ( request.isAsync() )
+                {
+                    return Uni.createFrom().item( new PathsPromoteResult( request ).accepted() );
+                }
+                return Uni.createFrom().completionStage( future );
+            }
+            catch ( PromotionException e )
+            {
+                return Uni.createFrom().failure( e );
+            }
+        } ).onFailure( e -> !( e instanceof PromotionException ) ).transform( e -> {
+            logger.error( "Path promotion failed: " + request.getSource() + " -> " + request.getTarget(), e );
+            return new PromotionException( "Execution of path promotion failed.", e );
+        } );
+    }
+
+    /**
+     * Submit the promotion if admitted. Async requests may be deferred until there is room.
+     * @throws PromotionOverloadException if the promotion is rejected by admission control
+     */
+    private CompletableFuture<PathsPromoteResult> submitPathsPromoteRequest( PathsPromoteRequest request,
+                                                                             final String baseUrl )
+            throws PromotionOverloadException
     {
-        return detectOverload( () -> promotionService.submit( () -> {
+        final long weight = AdmissionController.weightOf( request.getPaths() );
+        return callbackOnFailure( request, admission.admit( weight, request.isAsync(), () -> supplyOnRunner( () -> {
             PathsPromoteResult ret;
             try
             {
@@ -184,7 +250,8 @@ public class PromotionManager
             }
 
             return ret;
-        } ) );
+        } ) ), e -> new PathsPromoteResult( request, "Path promotion failed. Target: " + request.getTarget()
+                + ", Source: " + request.getSource() + ", Reason: " + getStackTrace( e ) ) );
     }
 
     /**
@@ -222,9 +289,40 @@ public class PromotionManager
         }
     }
 
-    private Future<PathsPromoteResult> submitRollbackPathsPromote( PathsPromoteResult result )
+    /**
+     * Same as {@link #rollbackPathsPromote(PathsPromoteResult)}, but the caller is not blocked while the rollback is
+     * running.
+     */
+    public Uni<PathsPromoteResult> rollbackPathsPromoteReactive( final PathsPromoteResult result )
+    {
+        final PathsPromoteRequest request = result.getRequest();
+        return Uni.createFrom().deferred( () -> {
+            try
+            {
+                CompletableFuture<PathsPromoteResult> future = submitRollbackPathsPromote( result );
+                if ( request.isAsync() )
+                {
+                    return Uni.createFrom().item( new PathsPromoteResult( request ).accepted() );
+                }
+                return Uni.createFrom().completionStage( future );
+            }
+            catch ( PromotionException e )
+            {
+                return Uni.createFrom().failure( e );
+            }
+        } ).onFailure( e -> !( e instanceof PromotionException ) ).transform( e -> {
+            logger.error( "Path promotion rollback failed. From (target): " + request.getTarget()
+                                  + ", to (source): " + request.getSource(), e );
+            return new PromotionException( "Path promotion rollback failed.", e );
+        } );
+    }
+
+    private CompletableFuture<PathsPromoteResult> submitRollbackPathsPromote( PathsPromoteResult result )
+            throws PromotionOverloadException
     {
-        return detectOverload( () -> promotionService.submit( () -> {
+        final PathsPromoteRequest origin = result.getRequest();
+        final long weight = AdmissionController.weightOf( result.getCompletedPaths() );
+        return callbackOnFailure( origin, admission.admit( weight, origin.isAsync(), () -> supplyOnRunner( () -> {
             if ( result.getCompletedPaths().isEmpty() )
             {
                 // clear errors so client don't misunderstand rollback result
@@ -281,7 +379,49 @@ public class PromotionManager
             }
 
             return result;
-        } ) );
+        } ) ), e -> {
+            result.setError( "Rollback path promotion failed. Target: " + origin.getTarget() + ", Source: "
+                                     + origin.getSource() + ", Reason: " + getStackTrace( e ) );
+            return result;
+        } );
+    }
+
+    /**
+     * The client of an async request is answered before the promotion runs, so a promotion that fails without a result,
+     * e.g. a deferred one that the runner pool rejects, is reported through the callback.
+     */
+    private CompletableFuture<PathsPromoteResult> callbackOnFailure( PathsPromoteRequest request,
+                                                                     CompletableFuture<PathsPromoteResult> future,
+                                                                     Function<Throwable, PathsPromoteResult> failed )
+    {
+        if ( request.isAsync() && request.getCallback() != null )
+        {
+            future.whenComplete( ( ret, e ) -> {
+                if ( e != null )
+                {
+                    logger.warn( "Async promotion failed, promotionId: {}", request.getPromotionId(), e );
+                    callbackHelper.callback( request.getCallback(), failed.apply( e ) );
+                }
+            } );
+        }
+        return future;
+    }
+
+    private <T> CompletableFuture<T> supplyOnRunner( Supplier<T> task )
+    {
+        runnerQueued.incrementAndGet();
+        try
+        {
+            return CompletableFuture.supplyAsync( () -> {
+                runnerQueued.decrementAndGet();
+                return task.get();
+            }, promotionService );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            runnerQueued.decrementAndGet();
+            throw e;
+        }
     }
 
     private PathsPromoteResult doPathsPromotion( PathsPromoteRequest request, boolean skipValidation, String baseUrl )
@@ -295,18 +435,28 @@ public class PromotionManager
         // If no paths in the request, we query storage service to list all non-metadata files
         if ( paths == null || paths.isEmpty() )
         {
-            Response resp = storageService.list(source.toString(), true, TYPE_FILE, 0); // no limit
-            if ( Response.Status.fromStatusCode( resp.getStatus() ).getFamily()
-                    != Response.Status.Family.SUCCESSFUL  )
+            if ( canCopyWhileListing( request, skipValidation ) )
             {
-                return new PathsPromoteResult( request,"List source repo failed, resp status: " + resp.getStatus() );
+                return copyWhileListing( request, skipValidation );
             }
-            String[] listResult = (String[]) resp.getEntity();
 
-            paths = Arrays.stream(listResult).sequential()
-                    .filter(isMetadataPredicate().negate()).collect(toSet()); // exclude metadata
+            final Set<String> listed = new HashSet<>();
+            final Predicate<String> notMetadata = isMetadataPredicate().negate();
+            try
+            {
+                int total = promotionHelper.listPaths( source, page -> page.stream()
+                                                                           .filter( notMetadata )
+                                                                           .forEach( listed::add ) ); // exclude metadata
+                logger.info( "List source repo, promotionId: {}, total: {}, non-metadata: {}",
+                             request.getPromotionId(), total, listed.size() );
+            }
+            catch ( PromotionException e )
+            {
+                return new PathsPromoteResult( request, e.getMessage() );
+            }
+            paths = listed;
             request.setPaths( paths );
-            logger.info( "List source repo, paths: {}", paths );
+            logger.debug( "List source repo, paths: {}", paths );
         }
 
         // Always skip metadata
@@ -386,17 +536,7 @@ public class PromotionManager
                 return new PathsPromoteResult( request, pending, emptySet(), emptySet(), validationResult );
             }
             PathsPromoteResult result = runPathPromotions( request, pending, validationResult );
-            if ( !result.succeeded() )
-            {
-                logger.info( "Path promotion failed. Result: " + result );
-            }
-            else
-            {
-                logger.info( "Path promotion succeeded. Result: " + result );
-                kafkaEventDispatcher.fireEvent( new PathsPromoteCompleteEvent(request.getPromotionId(),
-                        request.getSource().toString(), request.getTarget().toString(), result.getCompletedPaths(),
-                        result.getSkippedPaths(), request.isPurgeSource()) );
-            }
+            afterPathPromotions( request, result );
             return result;
         }
 
@@ -404,6 +544,94 @@ public class PromotionManager
         return new PathsPromoteResult( request, pending, emptySet(), emptySet(), validationResult );
     }
 
+    private void afterPathPromotions( PathsPromoteRequest request, PathsPromoteResult result )
+    {
+        digestCache.invalidate( result.getCompletedPaths() );
+        if ( !result.succeeded() )
+        {
+            logger.info( "Path promotion failed. Result: " + result );
+        }
+        else
+        {
+            logger.info( "Path promotion succeeded. Result: " + result );
+            kafkaEventDispatcher.fireEvent( new PathsPromoteCompleteEvent(request.getPromotionId(),
+                    request.getSource().toString(), request.getTarget().toString(), result.getCompletedPaths(),
+                    result.getSkippedPaths(), request.isPurgeSource()) );
+        }
+    }
+
+    /**
+     * Whether a promote-all can copy the pages of the source listing as they are read. It can if nothing needs the
+     * complete path set before copying: no rules to run, no conflict check and no missing remote paths to re-download.
+     */
+    private boolean canCopyWhileListing( PathsPromoteRequest request, boolean skipValidation )
+    {
+        // the listing holds a storage permit while the copies need their own, so one permit would starve the copies
+        return !request.isFailWhenExists() && !request.isDryRun() && request.getSource().getType() != StoreType.remote
+                        && config.storageMaxConcurrent() != 1
+                        && ( skipValidation || !validator.hasRules( request.getTarget() ) );
+    }
+
+    /**
+     * Promote-all that copies each page of the source listing as soon as it is read, instead of listing everything
+     * before the first copy starts. Still all-or-nothing: if listing or any copy fails, what was copied is rolled back.
+     */
+    private PathsPromoteResult copyWhileListing( PathsPromoteRequest request, boolean skipValidation )
+    {
+        final long begin = System.currentTimeMillis();
+        final ValidationResult validation = skipValidation ? null : new ValidationResult();
+
+        RepoRetrievalResult checkResult = promotionHelper.retrieveSourceAndTargetRepos( request );
+        if ( checkResult.hasErrors() )
+        {
+            return new PathsPromoteResult( request, StringUtils.join( checkResult.errors, "\n" ) );
+        }
+
+        final StorageCopyEngine.CopySession session = copyEngine.open( newCopyRequest( request, checkResult ) );
+        final Set<String> pending = new HashSet<>();
+        final Map<String, String> styledPathsMap = new HashMap<>();
+        final Predicate<String> notMetadata = isMetadataPredicate().negate();
+        String listError = null;
+        try
+        {
+            int total = promotionHelper.listPaths( request.getSource(), page -> {
+                final List<String> styled = new ArrayList<>( page.size() );
+                page.stream().filter( notMetadata ).filter( pending::add ).forEach( p -> {
+                    String styledPath = pathGenerator.getStyledPath( p, checkResult.pathStyle );
+                    styledPathsMap.put( styledPath, p );
+                    styled.add( styledPath );
+                } );
+                session.submit( styled );
+            } );
+            logger.info( "List source repo and copy, promotionId: {}, total: {}, non-metadata: {}",
+                         request.getPromotionId(), total, pending.size() );
+        }
+        catch ( PromotionException e )
+        {
+            listError = e.getMessage();
+        }
+        request.setPaths( pending );
+
+        final Set<PathTransferResult> results = toTransferResults( session.finish(), styledPathsMap );
+        if ( listError != null )
+        {
+            results.addAll( errResults( listError ) );
+        }
+        else if ( pending.isEmpty() )
+        {
+            return new PathsPromoteResult( request, pending, emptySet(), emptySet(), null );
+        }
+
+        PathsPromoteResult result = finishPathPromotions( request, pending, results, new HashSet<>(), null, validation,
+                                                          begin );
+        afterPathPromotions( request, result );
+        if ( result.succeeded() && request.isPurgeSource() )
+        {
+            promotionHelper.purgeSourceQuietly( request.getSource(), pending );
+        }
+        return result;
+    }
+
     private PathsPromoteResult runPathPromotions( final PathsPromoteRequest request, final Set<String> pending,
                                                   final ValidationResult validation )
     {
@@ -416,9 +644,8 @@ public class PromotionManager
                                            StringUtils.join( checkResult.errors, "\n" ), validation );
         }
 
-        final Set<String> errors = new HashSet<>();
         final Set<String> skipped = new HashSet<>();
-        final Set<String> completed = new HashSet<>();
+        Map<String, String> reDownloads = null;
 
         // Re-download missing remote files (this may be caused by reasons such as file expiration)
         if ( request.getSource().getType() == StoreType.remote )
@@ -443,26 +670,46 @@ public class PromotionManager
                     pending.removeAll( missingChecksums );
                     skipped.addAll( missingChecksums ); // skip missing checksums
                 }
-                logger.info("Re-download missing normal files, storeKey: {}, size: {}, paths: {}", sourceKey,
-                        missing.size(), missing);
-                missing.forEach( p -> reDownload( sourceKey, p ));
+                logger.info("Re-download missing normal files, storeKey: {}, size: {}", sourceKey, missing.size());
+                logger.debug("Re-download missing normal files, paths: {}", missing);
+                reDownloads = reDownloader.reDownload( sourceKey, missing );
             }
         }
 
         // if pending is empty after removing missing checksums (sometimes it happens), return normally instead of failing it
         if ( pending.isEmpty() )
         {
-            return new PathsPromoteResult( request, pending, emptySet(), skipped, null, validation );
+            return new PathsPromoteResult( request, pending, emptySet(), skipped, null, validation )
+                            .withReDownloads( reDownloads );
         }
 
+        final FileCopyRequest copyRequest = newCopyRequest( request, checkResult );
+        copyRequest.setPaths( pending );
+
+        final Set<PathTransferResult> results = copy( copyRequest, checkResult.pathStyle );
+        return finishPathPromotions( request, pending, results, skipped, reDownloads, validation, begin );
+    }
+
+    private FileCopyRequest newCopyRequest( PathsPromoteRequest request, RepoRetrievalResult checkResult )
+    {
         final FileCopyRequest copyRequest = new FileCopyRequest();
         copyRequest.setFailWhenExists( request.isFailWhenExists() );
         copyRequest.setSourceFilesystem( request.getSource().toString() );
         copyRequest.setTargetFilesystem( request.getTarget().toString() );
-        copyRequest.setPaths( pending );
         copyRequest.setTimeoutSeconds( checkResult.targetStore.timeoutSeconds );
+        return copyRequest;
+    }
 
-        final Set<PathTransferResult> results = copy( copyRequest, checkResult.pathStyle );
+    /**
+     * Sort the copy results out, and roll back the completed paths if anything failed.
+     */
+    private PathsPromoteResult finishPathPromotions( final PathsPromoteRequest request, final Set<String> pending,
+                                                     final Set<PathTransferResult> results, final Set<String> skipped,
+                                                     final Map<String, String> reDownloads,
+                                                     final ValidationResult validation, final long begin )
+    {
+        final Set<String> errors = new HashSet<>();
+        final Set<String> completed = new HashSet<>();
         results.forEach( result -> {
             if ( result.error != null )
             {
@@ -483,10 +730,11 @@ public class PromotionManager
             Set<String> rollbackErrors = promotionHelper.delete( request.getTarget(), completed );
             errors.addAll( rollbackErrors );
             return new PathsPromoteResult( request, pending, emptySet(), emptySet(),
-                    StringUtils.join( errors, "\n" ), validation );
+                    StringUtils.join( errors, "\n" ), validation ).withReDownloads( reDownloads );
         }
 
-        PathsPromoteResult result = new PathsPromoteResult( request, emptySet(), completed, skipped, null, validation );
+        PathsPromoteResult result = new PathsPromoteResult( request, emptySet(), completed, skipped, null, validation )
+                        .withReDownloads( reDownloads );
         logger.info( "Promotion completed, promotionId: {}, timeInSeconds: {}", request.getPromotionId(),
                      timeInSeconds( begin ) );
 
@@ -495,78 +743,59 @@ public class PromotionManager
     }
 
     /**
-     * Get missing paths on the store. The request paths count can be very big. We split them if needed.
+     * Get missing paths on the store. The request paths count can be very big. We split them if needed, and check the
+     * batches concurrently with at most {@link PromoteConfig#existCheckMaxInFlight()} requests in flight.
      */
     private Set<String> getMissingInBatch(StoreKey storeKey, Set<String> paths, PathStyle pathStyle)
             throws PromotionException
     {
-        Set<String> ret = new HashSet<>();
         Collection<Collection<String>> batches = batch( paths, DEFAULT_STORAGE_SERVICE_EXIST_CHECK_BATCH_SIZE );
         logger.debug( "Get missing in batch, total: {}, batches: {}", paths.size(), batches.size() );
-        for (Collection<String> batch : batches)
+        if ( batches.size() <= 1 )
         {
-            ret.addAll( getMissing(storeKey, new HashSet<>( batch ), pathStyle) );
+            return new HashSet<>( getMissing( storeKey, paths, pathStyle ) );
         }
-        logger.debug( "Get missing in batch, missing: {}", ret.size() );
-        return ret;
-    }
 
-    private Set<String> getMissing(StoreKey storeKey, Set<String> paths, PathStyle pathStyle)
-            throws PromotionException
-    {
-        BatchExistRequest request = new BatchExistRequest();
-        request.setFilesystem( storeKey.toString() );
+        final Set<String> ret = new HashSet<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final Iterator<Callable<Set<String>>> tasks = batches.stream()
+                .map( b -> (Callable<Set<String>>) () -> getMissing( storeKey, new HashSet<>( b ), pathStyle ) )
+                .iterator();
+        pipeline( existService, tasks, config.existCheckMaxInFlight(), done -> {
+            try
+            {
+                ret.addAll( getDone( done ) );
+                return true;
+            }
+            catch ( Exception e )
+            {
+                error.compareAndSet( null, e );
+                return false;
+            }
+        } );
 
-        Map<String, String> styledPathsMap = getStyledPathsMap( paths, pathStyle ); // styled path -> raw path
-        request.setPaths(styledPathsMap.keySet());
-        Response resp = storageService.exist(request);
-        if (!isSuccess(resp))
+        Exception e = error.get();
+        if ( e instanceof PromotionException )
         {
-            throw new PromotionException( "Batch existence check failed, status:" + resp.getStatus() );
+            throw (PromotionException) e;
         }
-        BatchExistResult batchExistResult = resp.readEntity(BatchExistResult.class);
-        if ( batchExistResult.getMissing() != null )
+        else if ( e != null )
         {
-            return batchExistResult.getMissing().stream().map(p -> styledPathsMap.get(p)).collect(Collectors.toSet());
+            throw new PromotionException( "Batch existence check failed, error: " + e.getMessage(), e );
         }
-        logger.debug("Batch existence check, no missing" );
-        return emptySet();
+        logger.debug( "Get missing in batch, missing: {}", ret.size() );
+        return ret;
     }
 
-    /**
-     * Re-downloading logic is not very useful today after we decommissioned the Scheduler.
-     * The Scheduler expired files aggressively. Now we use lazy-expiration and don't need to worry about
-     * the re-downloading scenario. I keep it as is in case any other narrow cases may trigger the re-download.
-     */
-    private void reDownload(StoreKey storeKey, String path)
+    private Set<String> getMissing(StoreKey storeKey, Set<String> paths, PathStyle pathStyle)
+            throws PromotionException
     {
-        Response resp = null;
-        try
+        Set<String> ret = promotionHelper.getMissing( storeKey, paths, pathStyle );
+        if ( ret.isEmpty() )
         {
-            logger.debug( "Downloading {}", path );
-            resp = contentService.retrieve(
-                    storeKey.getPackageType(), storeKey.getType().getName(), storeKey.getName(), path );
-            int status = resp.getStatus();
-            if ( status == Response.Status.OK.getStatusCode() )
-            {
-                logger.debug( "Downloaded - {}", path );
-            }
-            else
-            {
-                logger.warn( "Download failed, path: {}, status: {}", path, status );
-            }
-        }
-        catch ( Exception e )
-        {
-            logger.warn( "Download failed, path: " + path, e );
-        }
-        finally
-        {
-            if ( resp != null )
-            {
-                resp.close();
-            }
+            logger.debug("Batch existence check, no missing" );
         }
+        return ret;
     }
 
     private Set<PathTransferResult> copy( final FileCopyRequest copyRequest, final PathStyle pathStyle)
@@ -576,35 +805,37 @@ public class PromotionManager
         Map<String, String> styledPathsMap = getStyledPathsMap( rawPaths, pathStyle );
         copyRequest.setPaths(styledPathsMap.keySet());
 
-        logger.debug( "Invoke storage copy, request: {}", copyRequest );
-        Response resp = storageService.copy(copyRequest);
-        if (!isSuccess(resp))
+        // The copy engine splits big requests into chunks. If some chunk fails, the completed paths of the other
+        // chunks are still reported so that they can be rolled back.
+        FileCopyResult fileCopyResult = copyEngine.copy( copyRequest );
+        return toTransferResults( fileCopyResult, styledPathsMap );
+    }
+
+    /**
+     * Map the styled paths of the copy result back to the raw paths.
+     */
+    private Set<PathTransferResult> toTransferResults( FileCopyResult fileCopyResult,
+                                                       Map<String, String> styledPathsMap )
+    {
+        Set<PathTransferResult> results = new HashSet<>();
+        Set<String> completed = fileCopyResult.getCompleted();
+        if ( completed != null )
         {
-            return errResults( "Copy failed, resp status: " + resp.getStatus() );
+            completed.forEach( p -> results.add(new PathTransferResult(styledPathsMap.get(p),
+                    false, null)));
         }
-        FileCopyResult fileCopyResult = resp.readEntity(FileCopyResult.class);
-        logger.debug("Receive copy result, result: {}", fileCopyResult);
-
-        if ( fileCopyResult.isSuccess() )
+        Set<String> skipped = fileCopyResult.getSkipped();
+        if ( skipped != null )
         {
-            Set<PathTransferResult> results = new HashSet<>();
-            Set<String> completed = fileCopyResult.getCompleted();
-            if ( completed != null )
-            {
-                completed.forEach( p -> results.add(new PathTransferResult(styledPathsMap.get(p),
-                        false, null)));
-            }
-            Set<String> skipped = fileCopyResult.getSkipped();
-            if ( skipped != null )
-            {
-                skipped.forEach( p -> results.add(new PathTransferResult(styledPathsMap.get(p),
-                        true, null)));
-            }
-            return results;
+            skipped.forEach( p -> results.add(new PathTransferResult(styledPathsMap.get(p),
+                    true, null)));
         }
 
-        // Otherwise return error
-        return errResults( "Copy failed: " + fileCopyResult.getMessage() );
+        if ( !fileCopyResult.isSuccess() )
+        {
+            results.addAll( errResults( fileCopyResult.getMessage() ) );
+        }
+        return results;
     }
 
     /**
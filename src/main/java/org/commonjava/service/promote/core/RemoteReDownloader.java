@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.service.promote.client.content.ContentService;
+import org.commonjava.service.promote.model.StoreKey;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.CONTENT;
+
+/**
+ * Re-download missing paths of remote repositories on a dedicated, bounded pool. The downloads of one promotion run
+ * in parallel, and the same store/path requested by concurrent promotions is only downloaded once - later callers
+ * join the in-progress download and get the same outcome.
+ *
+ * Re-downloading logic is not very useful today after we decommissioned the Scheduler.
+ * The Scheduler expired files aggressively. Now we use lazy-expiration and don't need to worry about
+ * the re-downloading scenario. I keep it in case any other narrow cases may trigger the re-download.
+ */
+@ApplicationScoped
+public class RemoteReDownloader
+{
+    public static final String DOWNLOADED = "OK";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    @RestClient
+    ContentService contentService;
+
+    @Inject
+    DownstreamLimiter limiter;
+
+    @WeftManaged
+    @Inject
+    @ExecutorConfig( named = "promote-redownload-executor", threads = 8, priority = 6 )
+    WeftExecutorService reDownloadExecutor;
+
+    private final Map<String, CompletableFuture<String>> inProgress = new ConcurrentHashMap<>();
+
+    protected RemoteReDownloader()
+    {
+    }
+
+    public RemoteReDownloader( ContentService contentService, WeftExecutorService reDownloadExecutor )
+    {
+        this.contentService = contentService;
+        this.reDownloadExecutor = reDownloadExecutor;
+    }
+
+    /**
+     * Re-download the paths and wait for them.
+     * @return map of path -> outcome, which is {@link #DOWNLOADED} or the failure reason.
+     */
+    public Map<String, String> reDownload( final StoreKey storeKey, final Set<String> paths )
+    {
+        final Map<String, CompletableFuture<String>> futures = new HashMap<>();
+        paths.forEach( p -> futures.put( p, submit( storeKey, p ) ) );
+
+        final Map<String, String> ret = new HashMap<>();
+        boolean interrupted = false;
+        for ( Map.Entry<String, CompletableFuture<String>> et : futures.entrySet() )
+        {
+            String outcome;
+            try
+            {
+                outcome = et.getValue().get();
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+                outcome = "Failed, interrupted";
+            }
+            catch ( ExecutionException e )
+            {
+                outcome = "Failed, error: " + e.getCause();
+            }
+            ret.put( et.getKey(), outcome );
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        long failed = ret.values().stream().filter( o -> !DOWNLOADED.equals( o ) ).count();
+        logger.info( "Re-download done, storeKey: {}, size: {}, failed: {}", storeKey, ret.size(), failed );
+        return ret;
+    }
+
+    private CompletableFuture<String> submit( final StoreKey storeKey, final String path )
+    {
+        final String key = storeKey + ":" + path;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final CompletableFuture<String> existing = inProgress.putIfAbsent( key, future );
+        if ( existing != null )
+        {
+            logger.debug( "Join in-progress download, {}", key );
+            return existing;
+        }
+
+        try
+        {
+            reDownloadExecutor.execute( () -> {
+                try
+                {
+                    future.complete( download( storeKey, path ) );
+                }
+                finally
+                {
+                    inProgress.remove( key, future );
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            inProgress.remove( key, future );
+            future.complete( "Failed, error: " + e );
+        }
+        return future;
+    }
+
+    private String download( StoreKey storeKey, String path )
+    {
+        Response resp = null;
+        try (DownstreamLimiter.Permit permit = limiter.acquire( CONTENT ))
+        {
+            logger.debug( "Downloading {}", path );
+            resp = contentService.retrieve(
+                    storeKey.getPackageType(), storeKey.getType().getName(), storeKey.getName(), path );
+            int status = resp.getStatus();
+            if ( status == Response.Status.OK.getStatusCode() )
+            {
+                logger.debug( "Downloaded - {}", path );
+                return DOWNLOADED;
+            }
+            logger.warn( "Download failed, path: {}, status: {}", path, status );
+            return "Failed, status: " + status;
+        }
+        catch ( Throwable e )
+        {
+            logger.warn( "Download failed, path: " + path, e );
+            return "Failed, error: " + e;
+        }
+        finally
+        {
+            if ( resp != null )
+            {
+                resp.close();
+            }
+        }
+    }
+}
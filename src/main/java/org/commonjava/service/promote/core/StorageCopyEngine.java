@@ -0,0 +1,371 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.service.promote.client.storage.FileCopyRequest;
+import org.commonjava.service.promote.client.storage.FileCopyResult;
+import org.commonjava.service.promote.client.storage.StorageService;
+import org.commonjava.service.promote.config.PromoteConfig;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.STORAGE;
+import static org.commonjava.service.promote.util.Batcher.batch;
+import static org.commonjava.service.promote.util.Pipeliner.getDone;
+import static org.commonjava.service.promote.util.Pipeliner.pipeline;
+
+/**
+ * Copy paths between filesystems via storage service. A big path set is split into chunks of
+ * {@link PromoteConfig#copyChunkSize()} paths and each chunk is sent as a separate {@link FileCopyRequest}. At most
+ * {@link PromoteConfig#copyMaxInFlight()} chunks of one copy are running at the same time, and a new chunk is only
+ * started when a previous one finishes successfully.
+ *
+ * The chunk results are folded into one {@link FileCopyResult}. If any chunk fails, no more chunks are started and the
+ * folded result is marked as failed. Its completed set contains the paths copied by all chunks, including those a
+ * failed chunk copied before it failed, which is what the caller needs to roll back.
+ *
+ * When the paths are not known upfront (e.g., they come page by page from a listing), {@link #open(FileCopyRequest)}
+ * starts a {@link CopySession} that copies each submitted page as soon as it arrives, with the same limits.
+ */
+@ApplicationScoped
+public class StorageCopyEngine
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    @RestClient
+    StorageService storageService;
+
+    @Inject
+    PromoteConfig config;
+
+    @Inject
+    DownstreamLimiter limiter;
+
+    @WeftManaged
+    @Inject
+    @ExecutorConfig( named = "promote-copy-executor", threads = 16, priority = 8 )
+    WeftExecutorService copyExecutor;
+
+    // chunks handed to copyExecutor but not started yet
+    private final AtomicInteger queuedChunks = new AtomicInteger();
+
+    protected StorageCopyEngine()
+    {
+    }
+
+    public StorageCopyEngine( StorageService storageService, PromoteConfig config, WeftExecutorService copyExecutor )
+    {
+        this.storageService = storageService;
+        this.config = config;
+        this.copyExecutor = copyExecutor;
+    }
+
+    /**
+     * Copy the paths in the request. The request paths must already be styled paths.
+     */
+    public FileCopyResult copy( final FileCopyRequest request )
+    {
+        final Set<String> paths = request.getPaths();
+        final int chunkSize = Math.max( 1, config.copyChunkSize() );
+        if ( paths.size() <= chunkSize )
+        {
+            return copyChunk( request, paths );
+        }
+
+        final Collection<Collection<String>> chunks = batch( paths, chunkSize );
+        final int maxInFlight = Math.max( 1, config.copyMaxInFlight() );
+        logger.debug( "Copy in chunks, total: {}, chunks: {}, maxInFlight: {}", paths.size(), chunks.size(),
+                      maxInFlight );
+
+        final FileCopyResult ret = new FileCopyResult( true, new HashSet<>(), new HashSet<>() );
+        final List<String> errors = new ArrayList<>();
+        final Iterator<Callable<FileCopyResult>> tasks = chunks.stream()
+                                                               .map( chunk -> chunkTask( request, chunk ) )
+                                                               .iterator();
+        try
+        {
+            pipeline( this::executeChunk, tasks, maxInFlight, done -> {
+                FileCopyResult chunkResult;
+                try
+                {
+                    chunkResult = getDone( done );
+                }
+                catch ( Exception e )
+                {
+                    chunkResult = new FileCopyResult( false, "Copy failed: " + e );
+                }
+                fold( ret, chunkResult, errors );
+                return ret.isSuccess();
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            fold( ret, new FileCopyResult( false, "Copy failed: " + e ), errors );
+        }
+
+        if ( Thread.currentThread().isInterrupted() && ret.isSuccess() )
+        {
+            ret.setSuccess( false );
+            errors.add( "Copy interrupted" );
+        }
+
+        if ( !ret.isSuccess() )
+        {
+            ret.setMessage( join( errors, "\n" ) );
+        }
+        logger.debug( "Copy in chunks done, success: {}, completed: {}, skipped: {}", ret.isSuccess(),
+                      ret.getCompleted().size(), ret.getSkipped().size() );
+        return ret;
+    }
+
+    /**
+     * Open a session to copy paths that are submitted later. The paths of the request are ignored.
+     */
+    public CopySession open( final FileCopyRequest request )
+    {
+        return new CopySession( request, Math.max( 1, config.copyChunkSize() ),
+                                Math.max( 1, config.copyMaxInFlight() ) );
+    }
+
+    /**
+     * @return number of chunks waiting for a thread of the copy executor
+     */
+    public int getQueuedChunks()
+    {
+        return queuedChunks.get();
+    }
+
+    private Callable<FileCopyResult> chunkTask( FileCopyRequest request, Collection<String> chunk )
+    {
+        final Set<String> paths = new HashSet<>( chunk );
+        return () -> copyChunk( request, paths );
+    }
+
+    /**
+     * Hand a chunk to copyExecutor, counted in {@link #getQueuedChunks()} until a thread picks it up. A rejected chunk
+     * is not counted.
+     */
+    private void executeChunk( final Runnable chunk )
+    {
+        queuedChunks.incrementAndGet();
+        try
+        {
+            copyExecutor.execute( () -> {
+                queuedChunks.decrementAndGet();
+                chunk.run();
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            queuedChunks.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy of paths handed over in pieces. {@link #submit(Collection)} splits them into chunks and blocks while
+     * maxInFlight chunks are running, so a fast producer does not queue up the whole path set. After the first failed
+     * chunk nothing more is started. {@link #finish()} waits for the running chunks and returns the folded result.
+     */
+    public final class CopySession
+    {
+        private final FileCopyRequest request;
+
+        private final int chunkSize;
+
+        private final int maxInFlight;
+
+        private final Semaphore inFlight;
+
+        private final FileCopyResult ret = new FileCopyResult( true, new HashSet<>(), new HashSet<>() );
+
+        private final List<String> errors = new ArrayList<>();
+
+        private int submitted;
+
+        private CopySession( FileCopyRequest request, int chunkSize, int maxInFlight )
+        {
+            this.request = request;
+            this.chunkSize = chunkSize;
+            this.maxInFlight = maxInFlight;
+            this.inFlight = new Semaphore( maxInFlight );
+        }
+
+        /**
+         * Start copying the (styled) paths.
+         * @return false if the copy already failed and the paths were not submitted
+         */
+        public boolean submit( final Collection<String> paths )
+        {
+            for ( Collection<String> chunk : batch( paths, chunkSize ) )
+            {
+                if ( !isSuccess() )
+                {
+                    return false;
+                }
+                try
+                {
+                    inFlight.acquire();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    failed( new FileCopyResult( false, "Copy interrupted" ) );
+                    return false;
+                }
+
+                final Set<String> chunkPaths = new HashSet<>( chunk );
+                submitted += chunkPaths.size();
+                try
+                {
+                    executeChunk( () -> {
+                        try
+                        {
+                            FileCopyResult result = copyChunk( request, chunkPaths );
+                            synchronized ( this )
+                            {
+                                fold( ret, result, errors );
+                            }
+                        }
+                        finally
+                        {
+                            inFlight.release();
+                        }
+                    } );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    inFlight.release();
+                    failed( new FileCopyResult( false, "Copy failed: " + e ) );
+                    return false;
+                }
+            }
+            return isSuccess();
+        }
+
+        /**
+         * Wait for the running chunks and get the folded result.
+         */
+        public FileCopyResult finish()
+        {
+            inFlight.acquireUninterruptibly( maxInFlight );
+            inFlight.release( maxInFlight );
+            synchronized ( this )
+            {
+                if ( !ret.isSuccess() )
+                {
+                    ret.setMessage( join( errors, "\n" ) );
+                }
+                logger.debug( "Copy session done, submitted: {}, success: {}, completed: {}, skipped: {}", submitted,
+                              ret.isSuccess(), ret.getCompleted().size(), ret.getSkipped().size() );
+                return ret;
+            }
+        }
+
+        private synchronized boolean isSuccess()
+        {
+            return ret.isSuccess();
+        }
+
+        private synchronized void failed( FileCopyResult result )
+        {
+            fold( ret, result, errors );
+        }
+    }
+
+    private void fold( FileCopyResult ret, FileCopyResult chunkResult, List<String> errors )
+    {
+        // a failed chunk may have copied some paths before failing, they must be rolled back too
+        if ( chunkResult.getCompleted() != null )
+        {
+            ret.getCompleted().addAll( chunkResult.getCompleted() );
+        }
+        if ( chunkResult.isSuccess() )
+        {
+            if ( chunkResult.getSkipped() != null )
+            {
+                ret.getSkipped().addAll( chunkResult.getSkipped() );
+            }
+        }
+        else
+        {
+            ret.setSuccess( false );
+            errors.add( chunkResult.getMessage() );
+        }
+    }
+
+    private FileCopyResult copyChunk( FileCopyRequest request, Set<String> paths )
+    {
+        final FileCopyRequest chunkRequest = new FileCopyRequest();
+        chunkRequest.setFailWhenExists( request.isFailWhenExists() );
+        chunkRequest.setSourceFilesystem( request.getSourceFilesystem() );
+        chunkRequest.setTargetFilesystem( request.getTargetFilesystem() );
+        chunkRequest.setTimeoutSeconds( request.getTimeoutSeconds() );
+        chunkRequest.setPaths( paths );
+
+        logger.debug( "Invoke storage copy, request: {}", chunkRequest );
+        Response resp = null;
+        try (DownstreamLimiter.Permit permit = limiter.acquire( STORAGE ))
+        {
+            resp = storageService.copy( chunkRequest );
+            if ( Response.Status.fromStatusCode( resp.getStatus() ).getFamily() != Response.Status.Family.SUCCESSFUL )
+            {
+                return new FileCopyResult( false, "Copy failed, resp status: " + resp.getStatus() );
+            }
+            FileCopyResult result = resp.readEntity( FileCopyResult.class );
+            logger.debug( "Receive copy result, result: {}", result );
+            if ( !result.isSuccess() )
+            {
+                result.setMessage( "Copy failed: " + result.getMessage() );
+            }
+            return result;
+        }
+        catch ( Exception e )
+        {
+            logger.warn( "Copy failed, source: {}, target: {}, size: {}, error: {}",
+                         chunkRequest.getSourceFilesystem(), chunkRequest.getTargetFilesystem(), paths.size(),
+                         e.toString() );
+            return new FileCopyResult( false, "Copy failed: " + e );
+        }
+        finally
+        {
+            if ( resp != null )
+            {
+                resp.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.model.StoreKey;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.commonjava.service.promote.core.PromotionHelper.StoreInfo;
+
+/**
+ * Bounded TTL cache of {@link StoreInfo}. Only successfully retrieved stores are cached. When full, expired entries
+ * are dropped first, then the oldest ones.
+ */
+class StoreInfoCache
+{
+    private final Map<StoreKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final long ttlMillis;
+
+    private final int maxSize;
+
+    StoreInfoCache( int ttlSeconds, int maxSize )
+    {
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.maxSize = maxSize;
+    }
+
+    boolean isEnabled()
+    {
+        return ttlMillis > 0 && maxSize > 0;
+    }
+
+    StoreInfo get( StoreKey key )
+    {
+        Entry entry = entries.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        if ( entry.isExpired( System.currentTimeMillis() ) )
+        {
+            entries.remove( key, entry );
+            return null;
+        }
+        return entry.info;
+    }
+
+    void put( StoreInfo info )
+    {
+        if ( !isEnabled() || info == null )
+        {
+            return;
+        }
+        if ( entries.size() >= maxSize )
+        {
+            evict();
+        }
+        entries.put( info.storeKey, new Entry( info, System.currentTimeMillis() + ttlMillis,
+                                                   sequence.incrementAndGet() ) );
+    }
+
+    void invalidate( StoreKey key )
+    {
+        entries.remove( key );
+    }
+
+    void invalidateAll()
+    {
+        entries.clear();
+    }
+
+    int size()
+    {
+        return entries.size();
+    }
+
+    private synchronized void evict()
+    {
+        final long now = System.currentTimeMillis();
+        entries.values().removeIf( e -> e.isExpired( now ) );
+        if ( entries.size() >= maxSize )
+        {
+            entries.entrySet()
+                   .stream()
+                   .sorted( Comparator.comparingLong( et -> et.getValue().sequence ) )
+                   .limit( entries.size() - maxSize + 1 )
+                   .map( Map.Entry::getKey )
+                   .forEach( entries::remove );
+        }
+    }
+
+    private static final class Entry
+    {
+        final StoreInfo info;
+
+        final long expires;
+
+        final long sequence;
+
+        Entry( StoreInfo info, long expires, long sequence )
+        {
+            this.info = info;
+            this.expires = expires;
+            this.sequence = sequence;
+        }
+
+        boolean isExpired( long now )
+        {
+            return expires <= now;
+        }
+    }
+}
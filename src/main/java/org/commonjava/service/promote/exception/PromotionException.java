@@ -21,7 +21,7 @@ public class PromotionException extends Exception
         super( message );
     }
 
-    public PromotionException(String message, Exception cause) {
+    public PromotionException(String message, Throwable cause) {
         super( message, cause );
     }
 }
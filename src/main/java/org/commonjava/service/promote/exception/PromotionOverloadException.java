@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.exception;
+
+/**
+ * Thrown when a promotion is not admitted because the service is overloaded. The client should retry after
+ * {@link #getRetryAfterSeconds()}.
+ */
+public class PromotionOverloadException extends PromotionException
+{
+    private final int retryAfterSeconds;
+
+    public PromotionOverloadException( String message, int retryAfterSeconds )
+    {
+        super( message );
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds()
+    {
+        return retryAfterSeconds;
+    }
+}
@@ -19,11 +19,17 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
+import org.commonjava.service.promote.core.AdmissionController;
+import org.commonjava.service.promote.core.DigestCache;
+import org.commonjava.service.promote.core.DownstreamLimiter;
 import org.commonjava.service.promote.core.IndyObjectMapper;
+import org.commonjava.service.promote.core.PathConflictManager;
 import org.commonjava.service.promote.model.*;
 import org.commonjava.service.promote.tracking.PromoteTrackingManager;
 import org.commonjava.service.promote.util.ResponseHelper;
 import org.commonjava.service.promote.validate.PromoteValidationsManager;
+import org.commonjava.service.promote.validate.RuleProfiler;
+import org.commonjava.service.promote.validate.RuleScheduler;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +69,24 @@ public class PromoteAdminResource
     @Inject
     ResponseHelper responseHelper;
 
+    @Inject
+    PathConflictManager conflictManager;
+
+    @Inject
+    DownstreamLimiter downstreamLimiter;
+
+    @Inject
+    AdmissionController admissionController;
+
+    @Inject
+    DigestCache digestCache;
+
+    @Inject
+    RuleScheduler ruleScheduler;
+
+    @Inject
+    RuleProfiler ruleProfiler;
+
     @ApiOperation( "Get all rules' names" )
     @ApiResponses( { @ApiResponse( code = 200, response = Response.class,
                                    message = "All promotion validation rules' definition" ),
@@ -251,6 +275,66 @@ public class PromoteAdminResource
         }
     }
 
+    @ApiOperation( "Get path conflict statistics of in-flight promotions" )
+    @ApiResponses( { @ApiResponse( code = 200, response = Response.class, message = "The conflict statistics" ) } )
+    @Path( "/conflicts/stats" )
+    @GET
+    @Produces( APPLICATION_JSON )
+    public Response getConflictStats( final @Context SecurityContext securityContext )
+    {
+        return Response.ok( conflictManager.getStats() ).build();
+    }
+
+    @ApiOperation( "Get available permits and waiting calls of limited downstream services" )
+    @ApiResponses( { @ApiResponse( code = 200, response = Response.class, message = "The downstream statistics" ) } )
+    @Path( "/downstream/stats" )
+    @GET
+    @Produces( APPLICATION_JSON )
+    public Response getDownstreamStats( final @Context SecurityContext securityContext )
+    {
+        return Response.ok( downstreamLimiter.getStats() ).build();
+    }
+
+    @ApiOperation( "Get admission control statistics, i.e., paths in flight and queued, admitted/deferred/rejected" )
+    @ApiResponses( { @ApiResponse( code = 200, response = Response.class, message = "The admission statistics" ) } )
+    @Path( "/admission/stats" )
+    @GET
+    @Produces( APPLICATION_JSON )
+    public Response getAdmissionStats( final @Context SecurityContext securityContext )
+    {
+        return Response.ok( admissionController.getStats() ).build();
+    }
+
+    @ApiOperation( "Get digest cache statistics, i.e., size and hits/misses" )
+    @ApiResponses( { @ApiResponse( code = 200, response = Response.class, message = "The digest cache statistics" ) } )
+    @Path( "/digest-cache/stats" )
+    @GET
+    @Produces( APPLICATION_JSON )
+    public Response getDigestCacheStats( final @Context SecurityContext securityContext )
+    {
+        return Response.ok( digestCache.getStats() ).build();
+    }
+
+    @ApiOperation( "Get validation rule scheduling statistics, i.e., measured rule costs and time saved by fail-fast" )
+    @ApiResponses( { @ApiResponse( code = 200, response = Response.class, message = "The rule scheduling statistics" ) } )
+    @Path( "/validation/scheduler/stats" )
+    @GET
+    @Produces( APPLICATION_JSON )
+    public Response getRuleSchedulerStats( final @Context SecurityContext securityContext )
+    {
+        return Response.ok( ruleScheduler.getStats() ).build();
+    }
+
+    @ApiOperation( "Get validation rule profile, i.e., rules slowest first with wall/CPU time histograms and recent outliers" )
+    @ApiResponses( { @ApiResponse( code = 200, response = Response.class, message = "The rule profile" ) } )
+    @Path( "/validation/profile" )
+    @GET
+    @Produces( APPLICATION_JSON )
+    public Response getRuleProfile( final @Context SecurityContext securityContext )
+    {
+        return Response.ok( ruleProfiler.getStats() ).build();
+    }
+
     private Response checkEnabledAnd( Supplier<Response> responseSupplier )
     {
         if ( validationsManager.isEnabled() )
@@ -19,11 +19,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
+import io.smallrye.mutiny.Uni;
 import io.swagger.annotations.ApiResponse;
 import org.apache.commons.io.IOUtils;
 
 import org.commonjava.service.promote.core.IndyObjectMapper;
-import org.commonjava.service.promote.exception.PromotionException;
 import org.commonjava.service.promote.core.PromotionManager;
 import org.commonjava.service.promote.model.PathsPromoteRequest;
 import org.commonjava.service.promote.model.PathsPromoteResult;
@@ -74,10 +74,9 @@ public class PromoteResource
     @Path( "/paths/promote" )
     @POST
     @Consumes( APPLICATION_JSON )
-    public Response promotePaths( final @Context HttpRequest request, final @Context UriInfo uriInfo )
+    public Uni<Response> promotePaths( final @Context HttpRequest request, final @Context UriInfo uriInfo )
     {
         PathsPromoteRequest req;
-        Response response;
         try
         {
             final String json = IOUtils.toString( request.getInputStream(), defaultCharset() );
@@ -87,25 +86,16 @@ public class PromoteResource
         }
         catch ( final IOException e )
         {
-            response = responseHelper.formatResponse( e, "Failed to read DTO from request body." );
-            return response;
+            return Uni.createFrom().item( responseHelper.formatResponse( e, "Failed to read DTO from request body." ) );
         }
 
-        try
-        {
-            final String baseUrl = getBaseUrlByStoreKey( uriInfo, req.getSource() );
-            final PathsPromoteResult result = manager.promotePaths( req, baseUrl );
-
-            response = responseHelper.formatOkResponseWithJsonEntity( result );
+        // the request thread is released while the promotion is running
+        final String baseUrl = getBaseUrlByStoreKey( uriInfo, req.getSource() );
+        return manager.promotePathsReactive( req, baseUrl ).onItem().transform( result -> {
+            Response response = responseHelper.formatOkResponseWithJsonEntity( result );
             logger.info( "Send promotion result: {}", response.getEntity() );
-        }
-        catch ( PromotionException e )
-        {
-            logger.error( e.getMessage(), e );
-            response = responseHelper.formatResponse( e );
-        }
-
-        return response;
+            return response;
+        } ).onFailure().recoverWithItem( this::formatErrorResponse );
     }
 
     @ApiOperation( "Rollback promotion of any completed paths to a source repository from a target repository/group." )
@@ -117,32 +107,29 @@ public class PromoteResource
     @Path( "/paths/rollback" )
     @POST
     @Consumes( APPLICATION_JSON )
-    public Response rollbackPaths(final @Context HttpRequest request, @Context final UriInfo uriInfo  )
+    public Uni<Response> rollbackPaths(final @Context HttpRequest request, @Context final UriInfo uriInfo  )
     {
         PathsPromoteResult result;
-        Response response;
         try
         {
             result = mapper.readValue( request.getInputStream(), PathsPromoteResult.class );
         }
         catch ( final IOException e )
         {
-            response = responseHelper.formatResponse( e, "Failed to read DTO from request body." );
-            return response;
+            return Uni.createFrom().item( responseHelper.formatResponse( e, "Failed to read DTO from request body." ) );
         }
 
-        try
-        {
-            result = manager.rollbackPathsPromote( result );
-            response = responseHelper.formatOkResponseWithJsonEntity( result );
-        }
-        catch ( PromotionException e )
-        {
-            logger.error( e.getMessage(), e );
-            response = responseHelper.formatResponse( e );
-        }
+        return manager.rollbackPathsPromoteReactive( result )
+                      .onItem()
+                      .transform( ret -> responseHelper.formatOkResponseWithJsonEntity( ret ) )
+                      .onFailure()
+                      .recoverWithItem( this::formatErrorResponse );
+    }
 
-        return response;
+    private Response formatErrorResponse( Throwable e )
+    {
+        logger.error( e.getMessage(), e );
+        return responseHelper.formatResponse( e );
     }
 
 }
@@ -36,6 +36,9 @@ public abstract class AbstractPromoteRequest<T extends PromoteRequest> implement
     @ApiModelProperty( value="Callback which is used to send the promotion result." )
     protected CallbackTarget callback;
 
+    @ApiModelProperty( "Cancel the remaining validation rules once one fails. Overrides the setting of the rule-set" )
+    protected Boolean failFast;
+
     public String getTrackingId()
     {
         return trackingId;
@@ -78,4 +81,16 @@ public abstract class AbstractPromoteRequest<T extends PromoteRequest> implement
     {
         this.callback = callback;
     }
+
+    @Override
+    public Boolean getFailFast()
+    {
+        return failFast;
+    }
+
+    public T setFailFast( Boolean failFast )
+    {
+        this.failFast = failFast;
+        return (T) this;
+    }
 }
@@ -18,6 +18,7 @@ package org.commonjava.service.promote.model;
 import io.swagger.annotations.ApiModelProperty;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -39,6 +40,9 @@ public class PathsPromoteResult extends AbstractPromoteResult<PathsPromoteResult
     @ApiModelProperty( "List of paths that were skipped (path already exists in target location)" )
     private Set<String> skippedPaths;
 
+    @ApiModelProperty( "Missing paths of remote source that were re-downloaded before promotion, mapped to the outcome ('OK' or failure reason)" )
+    private Map<String, String> reDownloads;
+
     public PathsPromoteResult()
     {
     }
@@ -100,6 +104,22 @@ public class PathsPromoteResult extends AbstractPromoteResult<PathsPromoteResult
         this.skippedPaths = skippedPaths;
     }
 
+    public Map<String, String> getReDownloads()
+    {
+        return reDownloads;
+    }
+
+    public void setReDownloads( Map<String, String> reDownloads )
+    {
+        this.reDownloads = reDownloads;
+    }
+
+    public PathsPromoteResult withReDownloads( Map<String, String> reDownloads )
+    {
+        this.reDownloads = reDownloads;
+        return this;
+    }
+
     public PathsPromoteRequest getRequest()
     {
         return request;
@@ -120,6 +140,7 @@ public class PathsPromoteResult extends AbstractPromoteResult<PathsPromoteResult
                 ", pendingPaths=" + pendingPaths +
                 ", completedPaths=" + completedPaths +
                 ", skippedPaths=" + skippedPaths +
+                ", reDownloads=" + reDownloads +
                 '}';
     }
 }
@@ -31,4 +31,9 @@ public interface PromoteRequest
     boolean isAsync();
 
     CallbackTarget getCallback();
+
+    /**
+     * Whether to cancel the remaining validation rules once one fails; null to follow the rule-set.
+     */
+    Boolean getFailFast();
 }
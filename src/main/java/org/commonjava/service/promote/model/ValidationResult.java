@@ -18,6 +18,7 @@ package org.commonjava.service.promote.model;
 import io.swagger.annotations.ApiModelProperty;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,6 +35,9 @@ public class ValidationResult
     @ApiModelProperty( "Name of validation rule-set applied" )
     private String ruleSet;
 
+    @ApiModelProperty( "Rules cancelled in fail-fast mode because another rule failed" )
+    private List<String> cancelledRules;
+
     public void addValidatorError( String validatorName, String message )
     {
         valid = false;
@@ -60,6 +64,16 @@ public class ValidationResult
         this.validatorErrors = validatorErrors;
     }
 
+    public List<String> getCancelledRules()
+    {
+        return cancelledRules;
+    }
+
+    public void setCancelledRules( List<String> cancelledRules )
+    {
+        this.cancelledRules = cancelledRules;
+    }
+
     public void setRuleSet( String ruleSet )
     {
         this.ruleSet = ruleSet;
@@ -16,8 +16,6 @@
 package org.commonjava.service.promote.model;
 
 import io.swagger.annotations.ApiModelProperty;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
@@ -40,6 +38,20 @@ public class ValidationRuleSet
     @ApiModelProperty( "Key-value mapping of extra parameters that MAY be required for certain validation rules" )
     private Map<String, String> validationParameters;
 
+    @ApiModelProperty( "Cancel the rules still running once any rule reports errors. A promote request can override it" )
+    private Boolean failFast;
+
+    @ApiModelProperty( "Expected run time (millis) of rules by name. Cheaper rules start first; rules not listed use the run time measured on previous validations" )
+    private Map<String, Long> ruleCosts;
+
+    @ApiModelProperty( "Time budget (millis) of the whole rule-set. Rules still running when it runs out are cancelled and the validation fails" )
+    private Long timeoutMillis;
+
+    @ApiModelProperty( "Time budget (millis) of rules by name, counted from the rule start. A rule running longer is cancelled and reported as an error" )
+    private Map<String, Long> ruleTimeouts;
+
+    private transient Pattern compiledStoreKeyPattern;
+
     private transient Pattern versionPattern;
     private transient Pattern scopedVersionPattern;
 
@@ -109,6 +121,7 @@ public class ValidationRuleSet
     public void setStoreKeyPattern( String storeKeyPattern )
     {
         this.storeKeyPattern = storeKeyPattern;
+        this.compiledStoreKeyPattern = null;
     }
 
     public List<String> getRuleNames()
@@ -123,9 +136,16 @@ public class ValidationRuleSet
 
     public boolean matchesKey( String keyStr )
     {
-        Logger logger = LoggerFactory.getLogger( getClass() );
-        logger.info( "Checking whether pattern: '{}' matches store key: {}", storeKeyPattern, keyStr );
-        return storeKeyPattern == null || keyStr.matches( storeKeyPattern );
+        if ( storeKeyPattern == null )
+        {
+            return true;
+        }
+        Pattern pattern = compiledStoreKeyPattern;
+        if ( pattern == null )
+        {
+            pattern = compiledStoreKeyPattern = Pattern.compile( storeKeyPattern );
+        }
+        return pattern.matcher( keyStr ).matches();
     }
 
     public Map<String, String> getValidationParameters()
@@ -138,6 +158,56 @@ public class ValidationRuleSet
         this.validationParameters = validationParameters;
     }
 
+    public Boolean getFailFast()
+    {
+        return failFast;
+    }
+
+    public void setFailFast( Boolean failFast )
+    {
+        this.failFast = failFast;
+    }
+
+    public Map<String, Long> getRuleCosts()
+    {
+        return ruleCosts;
+    }
+
+    public void setRuleCosts( Map<String, Long> ruleCosts )
+    {
+        this.ruleCosts = ruleCosts;
+    }
+
+    public Long getRuleCost( String ruleName )
+    {
+        return ruleCosts == null ? null : ruleCosts.get( ruleName );
+    }
+
+    public Long getTimeoutMillis()
+    {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis( Long timeoutMillis )
+    {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Map<String, Long> getRuleTimeouts()
+    {
+        return ruleTimeouts;
+    }
+
+    public void setRuleTimeouts( Map<String, Long> ruleTimeouts )
+    {
+        this.ruleTimeouts = ruleTimeouts;
+    }
+
+    public Long getRuleTimeout( String ruleName )
+    {
+        return ruleTimeouts == null ? null : ruleTimeouts.get( ruleName );
+    }
+
     public String getValidationParameter( String key )
     {
         return validationParameters == null ? null : validationParameters.get( key );
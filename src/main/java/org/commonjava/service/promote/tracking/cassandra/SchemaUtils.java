@@ -21,6 +21,8 @@ public class SchemaUtils
 
     public static final String TABLE_QUERY_BY_PATH = "query_by_path";
 
+    public static final String TABLE_PATH_RESERVATION = "path_reservation";
+
     public static String getSchemaCreateKeyspace(String keyspace, int replica )
     {
         return "CREATE KEYSPACE IF NOT EXISTS " + keyspace
@@ -49,4 +51,15 @@ public class SchemaUtils
                 + "PRIMARY KEY ((target, path))"
                 + ");";
     }
+
+    public static String getSchemaCreateTablePathReservation( String keySpace )
+    {
+        return "CREATE TABLE IF NOT EXISTS " + keySpace + "." + TABLE_PATH_RESERVATION + " ("
+                + "target varchar,"
+                + "bucket int,"
+                + "path varchar,"
+                + "owner varchar,"
+                + "PRIMARY KEY ((target, bucket), path)"
+                + ");";
+    }
 }
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation of one unit of work (e.g., a validation rule) spread over several threads. Each thread working for it
+ * {@link #enter()}s it for the time being, so {@link #cancel(String)} can interrupt exactly those threads: waits for
+ * permits and parallel loops return early and the threads go back to their pools. An HTTP call blocked on its socket is
+ * not interrupted, so such a thread returns once the call completes or times out. Code running for it can also check
+ * {@link #isCancelled()} between steps.
+ *
+ * The work started by a thread inherits its cancellation through {@link #current()} - {@link ParallelEach} and the
+ * tools hand it over to the pool threads they use.
+ */
+public final class Cancellation
+{
+    private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<>();
+
+    private final Set<Thread> threads = new HashSet<>();
+
+    private final List<Runnable> idleActions = new ArrayList<>();
+
+    private volatile String reason;
+
+    /**
+     * @return the cancellation of the work this thread is running, or null.
+     */
+    public static Cancellation current()
+    {
+        return CURRENT.get();
+    }
+
+    public boolean isCancelled()
+    {
+        return reason != null;
+    }
+
+    public String getReason()
+    {
+        return reason;
+    }
+
+    /**
+     * Cancel the work and interrupt the threads running it. Only the first call has an effect.
+     */
+    public synchronized void cancel( final String reason )
+    {
+        if ( this.reason != null )
+        {
+            return;
+        }
+        this.reason = reason;
+        threads.forEach( Thread::interrupt );
+    }
+
+    /**
+     * @throws CancellationException if cancelled
+     */
+    public void throwIfCancelled()
+    {
+        if ( reason != null )
+        {
+            throw new CancellationException( reason );
+        }
+    }
+
+    /**
+     * Make the current thread work for this cancellation until the scope is closed.
+     */
+    public synchronized Scope enter()
+    {
+        final Thread thread = Thread.currentThread();
+        final Scope scope = new Scope( thread, CURRENT.get() );
+        CURRENT.set( this );
+        threads.add( thread );
+        if ( reason != null )
+        {
+            thread.interrupt();
+        }
+        return scope;
+    }
+
+    /**
+     * Run the action once no thread works for this cancellation any more - right away if none does now, otherwise on
+     * the last thread leaving its scope. Used to release what cancelled threads may still be reading.
+     */
+    public void whenIdle( final Runnable action )
+    {
+        synchronized ( this )
+        {
+            if ( !threads.isEmpty() )
+            {
+                idleActions.add( action );
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Wrap the task so it runs within this cancellation on whatever thread picks it up.
+     */
+    public <T> Callable<T> wrap( final Callable<T> task )
+    {
+        return () -> {
+            try (Scope scope = enter())
+            {
+                throwIfCancelled();
+                return task.call();
+            }
+        };
+    }
+
+    private void exit( final Scope scope )
+    {
+        final List<Runnable> actions;
+        synchronized ( this )
+        {
+            if ( scope.previous == this )
+            {
+                // nested scope of the same work, the outer one is still running
+                return;
+            }
+            threads.remove( scope.thread );
+            if ( scope.previous == null )
+            {
+                CURRENT.remove();
+            }
+            else
+            {
+                CURRENT.set( scope.previous );
+            }
+            if ( reason != null )
+            {
+                // clear the interrupt we may have sent, the thread goes on with other work
+                Thread.interrupted();
+            }
+            if ( scope.previous != null && scope.previous.isCancelled() )
+            {
+                // the outer work was cancelled too, keep its interrupt
+                scope.thread.interrupt();
+            }
+            if ( !threads.isEmpty() || idleActions.isEmpty() )
+            {
+                return;
+            }
+            actions = new ArrayList<>( idleActions );
+            idleActions.clear();
+        }
+        actions.forEach( Runnable::run );
+    }
+
+    public final class Scope
+            implements AutoCloseable
+    {
+        private final Thread thread;
+
+        private final Cancellation previous;
+
+        private Scope( Thread thread, Cancellation previous )
+        {
+            this.thread = thread;
+            this.previous = previous;
+        }
+
+        @Override
+        public void close()
+        {
+            exit( this );
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Hex digests of one content computed by {@link StreamingDigester}, e.g., md5, sha1 and sha256 of an artifact.
+ */
+public final class DigestBundle
+{
+    private final Map<ContentDigest, String> digests;
+
+    private final long size;
+
+    public DigestBundle( Map<ContentDigest, String> digests, long size )
+    {
+        this.digests = Collections.unmodifiableMap( new EnumMap<>( digests ) );
+        this.size = size;
+    }
+
+    /**
+     * @return hex digest, or null if the digest was not computed.
+     */
+    public String get( ContentDigest digest )
+    {
+        return digests.get( digest );
+    }
+
+    public boolean contains( ContentDigest digest )
+    {
+        return digests.containsKey( digest );
+    }
+
+    public Map<ContentDigest, String> getDigests()
+    {
+        return digests;
+    }
+
+    /**
+     * Bytes of the digested content.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DigestBundle{" + "digests=" + digests + ", size=" + size + '}';
+    }
+}
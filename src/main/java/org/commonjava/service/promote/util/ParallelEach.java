@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Run an action on each item in parallel, with the caller taking part. Items are not queued one task each; instead up
+ * to parallelism - 1 helper tasks are handed to the executor and they, together with the caller, claim items one by
+ * one until none is left. The caller then only waits for the items that helpers are already running.
+ *
+ * So a caller never waits for work sitting in the executor queue: when the pool is saturated (many rules at the same
+ * time, or an action that calls forEach again from a pool thread) the caller simply runs everything itself, and
+ * nested calls can not deadlock. With a {@link java.util.concurrent.ForkJoinPool}, helpers submitted from one of its
+ * workers go to that worker's own queue and idle workers steal them.
+ *
+ * Helpers run within the caller's {@link Cancellation} and {@link WorkProfile}. Once it is cancelled (or the wait
+ * times out) no more items are started, and the cancelled ones interrupt the items in progress.
+ */
+public class ParallelEach
+{
+    /**
+     * @throws java.util.concurrent.CancellationException if the caller's {@link Cancellation} is cancelled
+     * @throws RuntimeException on timeout or interruption, or the first exception thrown by the action once all items
+     * are done. An {@link Error} thrown by the action is rethrown as it is.
+     */
+    public static <T> void forEach( Executor executor, List<T> items, int parallelism, Consumer<? super T> action,
+                                    long timeout, TimeUnit unit )
+    {
+        if ( items.isEmpty() )
+        {
+            return;
+        }
+
+        final Job<T> job = new Job<>( items, action, Cancellation.current(), WorkProfile.current() );
+        final int helpers = Math.min( Math.max( 1, parallelism ), items.size() ) - 1;
+        for ( int i = 0; i < helpers; i++ )
+        {
+            try
+            {
+                executor.execute( job );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // the caller does the rest
+                break;
+            }
+        }
+
+        job.work();
+        job.await( timeout, unit );
+    }
+
+    private static final class Job<T>
+            implements Runnable
+    {
+        private final List<T> items;
+
+        private final Consumer<? super T> action;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final CountDownLatch done;
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        private final Cancellation cancellation;
+
+        private final WorkProfile profile;
+
+        private Job( List<T> items, Consumer<? super T> action, Cancellation cancellation, WorkProfile profile )
+        {
+            this.items = items;
+            this.action = action;
+            this.done = new CountDownLatch( items.size() );
+            this.cancellation = cancellation;
+            this.profile = profile;
+        }
+
+        @Override
+        public void run()
+        {
+            // profile inside the cancellation, so its CPU time is in before the cancellation goes idle
+            try (Cancellation.Scope c = cancellation == null ? null : cancellation.enter();
+                 WorkProfile.Scope p = profile == null ? null : profile.enter())
+            {
+                work();
+            }
+        }
+
+        private void work()
+        {
+            int i;
+            while ( !isCancelled() && ( i = next.getAndIncrement() ) < items.size() )
+            {
+                try
+                {
+                    if ( error.get() == null )
+                    {
+                        action.accept( items.get( i ) );
+                    }
+                }
+                catch ( RuntimeException | Error e )
+                {
+                    error.compareAndSet( null, e );
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }
+        }
+
+        private boolean isCancelled()
+        {
+            return cancellation != null && cancellation.isCancelled();
+        }
+
+        private void await( long timeout, TimeUnit unit )
+        {
+            boolean finished = false;
+            try
+            {
+                // when cancelled, the caller is interrupted and no one counts down the items not started
+                finished = !isCancelled() && done.await( timeout, unit );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            if ( !finished )
+            {
+                // helpers stop taking new items
+                next.set( items.size() );
+                if ( isCancelled() )
+                {
+                    cancellation.throwIfCancelled();
+                }
+                throw new RuntimeException( Thread.currentThread().isInterrupted() ?
+                                                    "Parallel execution interrupted" :
+                                                    "Parallel execution timeout" );
+            }
+
+            final Throwable e = error.get();
+            if ( e instanceof Error )
+            {
+                throw (Error) e;
+            }
+            if ( e != null )
+            {
+                throw (RuntimeException) e;
+            }
+        }
+    }
+}
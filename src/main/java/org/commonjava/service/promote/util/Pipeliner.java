@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+public class Pipeliner
+{
+    /**
+     * Run the tasks on the executor with at most maxInFlight of them running at the same time. Each finished task
+     * is handed to the handler in completion order (on the caller thread). If the handler returns false, no more
+     * tasks are submitted, but the in-flight ones are still drained and handed over before this method returns.
+     *
+     * If the caller is interrupted while waiting, it keeps draining and restores the interrupt flag on return. If the
+     * executor rejects a task, no more are submitted either; the in-flight ones are drained and the rejection is
+     * thrown.
+     */
+    public static <T> void pipeline( Executor executor, Iterator<Callable<T>> tasks, int maxInFlight,
+                                     ResultHandler<T> handler )
+    {
+        final CompletionService<T> svc = new ExecutorCompletionService<>( executor );
+        final int limit = Math.max( 1, maxInFlight );
+
+        int inFlight = 0;
+        RejectedExecutionException rejected = null;
+        while ( inFlight < limit && tasks.hasNext() )
+        {
+            try
+            {
+                svc.submit( tasks.next() );
+                inFlight++;
+            }
+            catch ( RejectedExecutionException e )
+            {
+                rejected = e;
+                break;
+            }
+        }
+
+        boolean proceed = true;
+        boolean interrupted = false;
+        while ( inFlight > 0 )
+        {
+            Future<T> future;
+            try
+            {
+                future = svc.take();
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+                continue;
+            }
+            inFlight--;
+
+            proceed = handler.handle( future ) && proceed && !interrupted;
+            if ( proceed && rejected == null && tasks.hasNext() )
+            {
+                try
+                {
+                    svc.submit( tasks.next() );
+                    inFlight++;
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    rejected = e;
+                }
+            }
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+        if ( rejected != null )
+        {
+            throw rejected;
+        }
+    }
+
+    /**
+     * Get the result of a finished future. The cause of a failed task is unwrapped.
+     */
+    public static <T> T getDone( Future<T> future ) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResultHandler<T>
+    {
+        /**
+         * @return false to stop submitting new tasks
+         */
+        boolean handle( Future<T> done );
+    }
+}
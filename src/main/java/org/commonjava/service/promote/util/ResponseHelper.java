@@ -18,6 +18,7 @@ package org.commonjava.service.promote.util;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.commonjava.service.promote.core.IndyObjectMapper;
+import org.commonjava.service.promote.exception.PromotionOverloadException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -137,9 +138,22 @@ public class ResponseHelper
 
     public Response formatResponse( final Throwable error )
     {
+        if ( error instanceof PromotionOverloadException )
+        {
+            return formatOverloadResponse( (PromotionOverloadException) error );
+        }
         return formulateResponse( 0, error, null, false, null );
     }
 
+    /**
+     * 429 with Retry-After, so clients back off instead of piling requests up in executor queues.
+     */
+    public Response formatOverloadResponse( final PromotionOverloadException error )
+    {
+        return formulateResponse( Status.TOO_MANY_REQUESTS.getStatusCode(), error, null, false,
+                                  builder -> builder.header( "Retry-After", error.getRetryAfterSeconds() ) );
+    }
+
     public Response formatResponse( final Throwable error, final String message )
     {
         return formulateResponse( 0, error, message, false, null );
@@ -17,26 +17,92 @@ package org.commonjava.service.promote.util;
 
 import groovy.lang.GroovyClassLoader;
 
+import groovy.lang.GroovySystem;
+import groovy.transform.CompileStatic;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.tools.GroovyClass;
+import org.commonjava.service.promote.config.PromoteConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.spi.CreationalContext;
 import jakarta.enterprise.inject.spi.AnnotatedType;
 import jakarta.enterprise.inject.spi.BeanManager;
 import jakarta.enterprise.inject.spi.InjectionTarget;
 import jakarta.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Compile and instantiate groovy scripts, e.g., validation rules.
+ *
+ * If enabled, scripts are compiled with {@link CompileStatic}, which avoids dynamic dispatch on every call. A script
+ * using dynamic features fails static compilation and is compiled dynamically as before. If a class cache dir is
+ * configured, the compiled classes are kept under a hash of the script, the groovy version and the classes of this
+ * service the script links against (see {@link #getApiFingerprint(Class)}), and later boots load them directly
+ * without compiling. Cached classes that fail to link anyway are dropped and the script is compiled again.
+ */
 @ApplicationScoped
 public class ScriptEngine
 {
+    private static final String MAIN_CLASS_FILE = "main-class";
+
+    private static final String API_PACKAGE_PREFIX = "org.commonjava.";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
     private final GroovyClassLoader groovyClassloader = new GroovyClassLoader();
 
+    @Inject
+    PromoteConfig config;
+
+    private boolean compileStatic;
+
+    private File classCacheDir;
+
+    private final Map<Class<?>, String> apiFingerprints = new ConcurrentHashMap<>();
+
     public ScriptEngine()
     {
     }
 
+    public ScriptEngine( boolean compileStatic, File classCacheDir )
+    {
+        this.compileStatic = compileStatic;
+        this.classCacheDir = classCacheDir;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        compileStatic = config.ruleCompileStatic();
+        classCacheDir = config.ruleClassCacheDir().orElse( null );
+        logger.info( "Script engine, compileStatic: {}, classCacheDir: {}", compileStatic, classCacheDir );
+    }
+
     public <T> T parseScriptInstance( final String script, final Class<T> type )
             throws Exception
     {
@@ -46,10 +112,21 @@ public class ScriptEngine
     private <T> T parseScriptInstance( final String script, final Class<T> type, boolean processCdiInjections )
             throws Exception
     {
-        final Class<?> clazz = groovyClassloader.parseClass( script );
-        Object instance = clazz.getDeclaredConstructor().newInstance();
+        Object instance;
+        try
+        {
+            instance = loadClass( script, type, true ).getDeclaredConstructor().newInstance();
+        }
+        catch ( LinkageError e )
+        {
+            if ( classCacheDir == null )
+            {
+                throw e;
+            }
+            logger.warn( "Cached classes of the script do not link, compile it again. Error: {}", e.toString() );
+            instance = loadClass( script, type, false ).getDeclaredConstructor().newInstance();
+        }
 
-        Logger logger = LoggerFactory.getLogger( getClass() );
         logger.info( "Parsed: {} (type: {}, interfaces: {})", instance, instance.getClass(),
                      Arrays.asList( instance.getClass().getInterfaces() ) );
 
@@ -57,6 +134,255 @@ public class ScriptEngine
         return processCdiInjections ? inject( result ) : result ;
     }
 
+    private Class<?> loadClass( final String script, final Class<?> type, final boolean useCache )
+            throws Exception
+    {
+        final String hash = DigestUtils.sha256Hex(
+                script + "\n//groovy: " + GroovySystem.getVersion() + ", compileStatic: " + compileStatic + ", api: "
+                        + getApiFingerprint( type ) );
+
+        CompiledScript compiled = useCache ? readCache( hash ) : null;
+        if ( compiled == null )
+        {
+            if ( !useCache && classCacheDir != null )
+            {
+                FileUtils.deleteQuietly( new File( classCacheDir, hash ) );
+            }
+            compiled = compile( script, hash );
+            writeCache( hash, compiled );
+        }
+        return new CompiledClassLoader( compiled.classes, groovyClassloader ).loadClass( compiled.mainClass );
+    }
+
+    /**
+     * Hash of the bytecode of the type and of the classes reachable from it through the public methods, e.g.,
+     * ValidationRule -> ValidationRequest -> PromotionValidationTools -> StoreKey. Only classes under
+     * {@link #API_PACKAGE_PREFIX} are followed. Compiled scripts link against these, so a build changing any of them
+     * must not load the classes compiled by the previous build.
+     */
+    String getApiFingerprint( final Class<?> type )
+    {
+        return apiFingerprints.computeIfAbsent( type, t -> {
+            final Map<String, Class<?>> reached = new TreeMap<>();
+            final Deque<Class<?>> todo = new ArrayDeque<>( Collections.singleton( t ) );
+            while ( !todo.isEmpty() )
+            {
+                Class<?> c = todo.poll();
+                while ( c.isArray() )
+                {
+                    c = c.getComponentType();
+                }
+                if ( c.isPrimitive() || !c.getName().startsWith( API_PACKAGE_PREFIX )
+                        || reached.putIfAbsent( c.getName(), c ) != null )
+                {
+                    continue;
+                }
+                try
+                {
+                    if ( c.getSuperclass() != null )
+                    {
+                        todo.add( c.getSuperclass() );
+                    }
+                    todo.addAll( Arrays.asList( c.getInterfaces() ) );
+                    for ( Method m : c.getMethods() )
+                    {
+                        todo.add( m.getReturnType() );
+                        todo.addAll( Arrays.asList( m.getParameterTypes() ) );
+                    }
+                }
+                catch ( LinkageError e )
+                {
+                    logger.debug( "Can not reflect on {}, error: {}", c, e.toString() );
+                }
+            }
+
+            final MessageDigest digest = DigestUtils.getSha256Digest();
+            for ( Class<?> c : reached.values() )
+            {
+                digest.update( c.getName().getBytes( StandardCharsets.UTF_8 ) );
+                try (InputStream in = c.getResourceAsStream( "/" + c.getName().replace( '.', '/' ) + ".class" ))
+                {
+                    if ( in != null )
+                    {
+                        DigestUtils.updateDigest( digest, in );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    logger.debug( "Can not read bytecode of {}, error: {}", c, e.toString() );
+                }
+            }
+            String ret = Hex.encodeHexString( digest.digest() );
+            logger.info( "Script API fingerprint, type: {}, classes: {}, fingerprint: {}", t.getName(), reached.size(),
+                         ret );
+            return ret;
+        } );
+    }
+
+    private CompiledScript compile( final String script, final String hash )
+    {
+        final long begin = System.currentTimeMillis();
+        if ( compileStatic )
+        {
+            try
+            {
+                CompiledScript ret = compile( script, hash, true );
+                logger.info( "Compiled statically: {}, timeInMillis: {}", ret.mainClass,
+                             System.currentTimeMillis() - begin );
+                return ret;
+            }
+            catch ( CompilationFailedException e )
+            {
+                logger.info( "Script can not be compiled statically, compile it dynamically. Reason: {}",
+                             e.getMessage() );
+            }
+        }
+        CompiledScript ret = compile( script, hash, false );
+        logger.info( "Compiled dynamically: {}, timeInMillis: {}", ret.mainClass, System.currentTimeMillis() - begin );
+        return ret;
+    }
+
+    private CompiledScript compile( final String script, final String hash, final boolean statically )
+    {
+        final CompilerConfiguration configuration = new CompilerConfiguration();
+        if ( statically )
+        {
+            configuration.addCompilationCustomizers( new ASTTransformationCustomizer( CompileStatic.class ) );
+        }
+        final CompilationUnit unit = new CompilationUnit( configuration, null, groovyClassloader );
+        unit.addSource( "Script_" + hash.substring( 0, 16 ) + ".groovy", script );
+        unit.compile( Phases.CLASS_GENERATION );
+
+        final Map<String, byte[]> classes = new LinkedHashMap<>();
+        for ( GroovyClass groovyClass : unit.getClasses() )
+        {
+            classes.put( groovyClass.getName(), groovyClass.getBytes() );
+        }
+        return new CompiledScript( mainClassOf( classes.keySet() ), classes );
+    }
+
+    private static String mainClassOf( Collection<String> classNames )
+    {
+        // inner classes, e.g., closures, are named like 'Outer$_method_closure1'
+        return classNames.stream()
+                         .filter( n -> !n.contains( "$" ) )
+                         .findFirst()
+                         .orElseThrow( () -> new IllegalStateException( "No class compiled" ) );
+    }
+
+    private CompiledScript readCache( final String hash )
+    {
+        if ( classCacheDir == null )
+        {
+            return null;
+        }
+        final File dir = new File( classCacheDir, hash );
+        final File main = new File( dir, MAIN_CLASS_FILE );
+        if ( !main.isFile() )
+        {
+            return null;
+        }
+        try
+        {
+            final Map<String, byte[]> classes = new LinkedHashMap<>();
+            for ( File f : FileUtils.listFiles( dir, new String[] { "class" }, true ) )
+            {
+                String relative = dir.toPath().relativize( f.toPath() ).toString();
+                String name = relative.substring( 0, relative.length() - ".class".length() )
+                                      .replace( File.separatorChar, '.' );
+                classes.put( name, Files.readAllBytes( f.toPath() ) );
+            }
+            final String mainClass = new String( Files.readAllBytes( main.toPath() ), StandardCharsets.UTF_8 ).trim();
+            logger.info( "Load compiled classes from cache: {}, main: {}", dir, mainClass );
+            return new CompiledScript( mainClass, classes );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to read compiled classes, dir: {}, error: {}", dir, e.toString() );
+            return null;
+        }
+    }
+
+    private void writeCache( final String hash, final CompiledScript compiled )
+    {
+        if ( classCacheDir == null )
+        {
+            return;
+        }
+        final File dir = new File( classCacheDir, hash );
+        File tmp = null;
+        try
+        {
+            // write into a temp dir and rename it, so a half written dir is never read
+            classCacheDir.mkdirs();
+            tmp = Files.createTempDirectory( classCacheDir.toPath(), hash + "-" ).toFile();
+            for ( Map.Entry<String, byte[]> et : compiled.classes.entrySet() )
+            {
+                File f = new File( tmp, et.getKey().replace( '.', File.separatorChar ) + ".class" );
+                f.getParentFile().mkdirs();
+                Files.write( f.toPath(), et.getValue() );
+            }
+            Files.write( new File( tmp, MAIN_CLASS_FILE ).toPath(),
+                         compiled.mainClass.getBytes( StandardCharsets.UTF_8 ) );
+            if ( !tmp.renameTo( dir ) )
+            {
+                logger.debug( "Compiled classes are cached by someone else, dir: {}", dir );
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to cache compiled classes, dir: {}, error: {}", dir, e.toString() );
+        }
+        finally
+        {
+            if ( tmp != null && tmp.exists() )
+            {
+                FileUtils.deleteQuietly( tmp );
+            }
+        }
+    }
+
+    private static final class CompiledScript
+    {
+        final String mainClass;
+
+        final Map<String, byte[]> classes;
+
+        CompiledScript( String mainClass, Map<String, byte[]> classes )
+        {
+            this.mainClass = mainClass;
+            this.classes = classes;
+        }
+    }
+
+    /**
+     * Define the compiled classes of one script. Other classes, e.g., the ones the script refers to, are loaded by
+     * the parent.
+     */
+    private static final class CompiledClassLoader
+            extends ClassLoader
+    {
+        private final Map<String, byte[]> classes;
+
+        CompiledClassLoader( Map<String, byte[]> classes, ClassLoader parent )
+        {
+            super( parent );
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass( String name )
+                throws ClassNotFoundException
+        {
+            byte[] bytes = classes.get( name );
+            if ( bytes == null )
+            {
+                throw new ClassNotFoundException( name );
+            }
+            return defineClass( name, bytes, 0, bytes.length );
+        }
+    }
+
     // Scripts that can use CDI injection will need to use this method to inject their fields.
     @Inject
     BeanManager beanManager;
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Histogram of the values recorded in the last window of time, e.g., rule run times of the last 15 minutes. The window
+ * is split in slices; a slice older than the window is reset when its turn comes again, so old values drop out
+ * without keeping each of them. Values are counted in fixed 1-2-5 buckets, percentiles are the upper bound of the
+ * bucket they fall in (never more than the max seen).
+ */
+public class SlidingHistogram
+{
+    static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000,
+            100_000, 200_000, 500_000, 1_000_000 };
+
+    private final long sliceMillis;
+
+    private final Slice[] slices;
+
+    public SlidingHistogram( long windowMillis, int sliceCount )
+    {
+        this.slices = new Slice[Math.max( 1, sliceCount )];
+        this.sliceMillis = Math.max( 1, windowMillis / slices.length );
+        for ( int i = 0; i < slices.length; i++ )
+        {
+            slices[i] = new Slice();
+        }
+    }
+
+    public synchronized void record( long value, long nowMillis )
+    {
+        final long epoch = nowMillis / sliceMillis;
+        final Slice slice = slices[(int) ( epoch % slices.length )];
+        if ( slice.epoch != epoch )
+        {
+            slice.reset( epoch );
+        }
+        slice.add( Math.max( 0, value ) );
+    }
+
+    public synchronized Snapshot snapshot( long nowMillis )
+    {
+        final long epoch = nowMillis / sliceMillis;
+        final Snapshot ret = new Snapshot();
+        for ( Slice slice : slices )
+        {
+            if ( slice.epoch > epoch - slices.length && slice.epoch <= epoch )
+            {
+                ret.merge( slice );
+            }
+        }
+        return ret;
+    }
+
+    private static int bucketOf( long value )
+    {
+        for ( int i = 0; i < BOUNDS.length; i++ )
+        {
+            if ( value <= BOUNDS[i] )
+            {
+                return i;
+            }
+        }
+        return BOUNDS.length;
+    }
+
+    static class Slice
+    {
+        long epoch = Long.MIN_VALUE;
+
+        final long[] counts = new long[BOUNDS.length + 1];
+
+        long count;
+
+        long sum;
+
+        long max;
+
+        void reset( long epoch )
+        {
+            this.epoch = epoch;
+            Arrays.fill( counts, 0 );
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        void add( long value )
+        {
+            counts[bucketOf( value )]++;
+            count++;
+            sum += value;
+            max = Math.max( max, value );
+        }
+    }
+
+    public static final class Snapshot
+            extends Slice
+    {
+        private void merge( Slice slice )
+        {
+            for ( int i = 0; i < counts.length; i++ )
+            {
+                counts[i] += slice.counts[i];
+            }
+            count += slice.count;
+            sum += slice.sum;
+            max = Math.max( max, slice.max );
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public long getMax()
+        {
+            return max;
+        }
+
+        public long getMean()
+        {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @param quantile e.g., 0.95
+         */
+        public long getPercentile( double quantile )
+        {
+            if ( count == 0 )
+            {
+                return 0;
+            }
+            final long rank = Math.max( 1, (long) Math.ceil( quantile * count ) );
+            long seen = 0;
+            for ( int i = 0; i < counts.length; i++ )
+            {
+                seen += counts[i];
+                if ( seen >= rank )
+                {
+                    return i < BOUNDS.length ? Math.min( BOUNDS[i], max ) : max;
+                }
+            }
+            return max;
+        }
+
+        public Map<String, Object> toMap()
+        {
+            final Map<String, Object> ret = new LinkedHashMap<>();
+            ret.put( "count", count );
+            ret.put( "mean", getMean() );
+            ret.put( "p50", getPercentile( 0.5 ) );
+            ret.put( "p95", getPercentile( 0.95 ) );
+            ret.put( "p99", getPercentile( 0.99 ) );
+            ret.put( "max", max );
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.commonjava.service.promote.util.ContentDigest.MD5;
+import static org.commonjava.service.promote.util.ContentDigest.SHA_1;
+import static org.commonjava.service.promote.util.ContentDigest.SHA_256;
+
+/**
+ * Compute several digests of a stream in one pass. Once the content is read anyway, the digests commonly asked
+ * for by rules (md5, sha1, sha256) cost little more than one of them, and can be cached so a later rule asking for
+ * another algorithm does not read the content again.
+ *
+ * The read buffer is reused per thread. Digests are updated from a heap array; a direct buffer would not help since
+ * the JDK digest engines copy it to a heap array anyway.
+ */
+public final class StreamingDigester
+{
+    public static final Set<ContentDigest> COMMON_DIGESTS =
+            Collections.unmodifiableSet( EnumSet.of( MD5, SHA_1, SHA_256 ) );
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial( () -> new byte[BUFFER_SIZE] );
+
+    private StreamingDigester()
+    {
+    }
+
+    /**
+     * Read the stream to the end and compute the digests. The stream is not closed.
+     */
+    public static DigestBundle digest( InputStream in, Collection<ContentDigest> digests ) throws IOException
+    {
+        final Map<ContentDigest, MessageDigest> engines = new EnumMap<>( ContentDigest.class );
+        digests.forEach( d -> engines.put( d, DigestUtils.getDigest( d.digestName() ) ) );
+        final MessageDigest[] updates = engines.values().toArray( new MessageDigest[0] );
+
+        final byte[] buf = BUFFERS.get();
+        long size = 0;
+        int n;
+        while ( ( n = in.read( buf ) ) != -1 )
+        {
+            for ( MessageDigest md : updates )
+            {
+                md.update( buf, 0, n );
+            }
+            size += n;
+        }
+
+        final Map<ContentDigest, String> ret = new EnumMap<>( ContentDigest.class );
+        engines.forEach( ( d, md ) -> ret.put( d, Hex.encodeHexString( md.digest() ) ) );
+        return new DigestBundle( ret, size );
+    }
+
+    /**
+     * The common digests plus the given one.
+     */
+    public static Set<ContentDigest> withCommon( ContentDigest digest )
+    {
+        Set<ContentDigest> ret = EnumSet.copyOf( COMMON_DIGESTS );
+        ret.add( digest );
+        return ret;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resource use of one unit of work (e.g., a validation rule) over all the threads that run it: CPU time of those
+ * threads while they work for it, loop items handled and remote calls made. Like {@link Cancellation}, a thread
+ * {@link #enter()}s the profile while working for it and {@link ParallelEach} hands it over to its helpers.
+ */
+public final class WorkProfile
+{
+    private static final ThreadLocal<WorkProfile> CURRENT = new ThreadLocal<>();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final AtomicLong cpuNanos = new AtomicLong();
+
+    private final AtomicLong items = new AtomicLong();
+
+    private final AtomicLong remoteCalls = new AtomicLong();
+
+    /**
+     * @return the profile of the work this thread is running, or null.
+     */
+    public static WorkProfile current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Count loop items handled for the current work, if any.
+     */
+    public static void countItems( final long count )
+    {
+        final WorkProfile profile = CURRENT.get();
+        if ( profile != null )
+        {
+            profile.items.addAndGet( count );
+        }
+    }
+
+    /**
+     * Count a call to a remote service made for the current work, if any.
+     */
+    public static void countRemoteCall()
+    {
+        final WorkProfile profile = CURRENT.get();
+        if ( profile != null )
+        {
+            profile.remoteCalls.incrementAndGet();
+        }
+    }
+
+    public long getCpuNanos()
+    {
+        return cpuNanos.get();
+    }
+
+    public long getItems()
+    {
+        return items.get();
+    }
+
+    public long getRemoteCalls()
+    {
+        return remoteCalls.get();
+    }
+
+    /**
+     * Make the current thread work for this profile until the scope is closed. The CPU time of the thread meanwhile
+     * is added to the profile.
+     */
+    public Scope enter()
+    {
+        final Scope scope = new Scope( CURRENT.get() );
+        CURRENT.set( this );
+        return scope;
+    }
+
+    /**
+     * Wrap the task so it runs within this profile on whatever thread picks it up.
+     */
+    public <T> Callable<T> wrap( final Callable<T> task )
+    {
+        return () -> {
+            try (Scope scope = enter())
+            {
+                return task.call();
+            }
+        };
+    }
+
+    private static long threadCpuNanos()
+    {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    public final class Scope
+            implements AutoCloseable
+    {
+        private final WorkProfile previous;
+
+        private final long startCpu;
+
+        private Scope( WorkProfile previous )
+        {
+            this.previous = previous;
+            // a nested scope of the same work is already counted by the outer one
+            this.startCpu = previous == WorkProfile.this ? -1 : threadCpuNanos();
+        }
+
+        @Override
+        public void close()
+        {
+            if ( startCpu >= 0 )
+            {
+                cpuNanos.addAndGet( Math.max( 0, threadCpuNanos() - startCpu ) );
+            }
+            if ( previous == null )
+            {
+                CURRENT.remove();
+            }
+            else
+            {
+                CURRENT.set( previous );
+            }
+        }
+    }
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.util.ContentDigest;
+import org.commonjava.service.promote.util.DigestBundle;
+import org.commonjava.service.promote.util.StreamingDigester;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.commonjava.service.promote.util.StreamingDigester.withCommon;
+
+/**
+ * Content of the paths read during one validation. The rules of a rule-set run at the same time and often read the
+ * same path (e.g., parsable-pom parses a pom and no-pre-existing-paths digests it), so each path is downloaded only
+ * once - a reader that comes while the download is in progress waits for it and gets the same content.
+ *
+ * Content is kept in memory as long as the {@link MemoryBudget} allows, bigger content is spilled to a temp file. The
+ * budget is shared by all validations of the node, so concurrent promotions do not multiply it. Failed downloads are
+ * not cached so a later reader tries again. {@link #close()} drops everything and deletes the temp files; it is called
+ * when the validation is done.
+ */
+public class ContentFetchCache
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Map<String, CompletableFuture<Content>> entries = new ConcurrentHashMap<>();
+
+    private final MemoryBudget memoryBudget;
+
+    private final AtomicLong memoryUsed = new AtomicLong();
+
+    private final AtomicLong fetched = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong spilled = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param memoryBudget max bytes of content kept in memory, 0 to spill everything to temp files.
+     */
+    public ContentFetchCache( long memoryBudget )
+    {
+        this( new MemoryBudget( memoryBudget ) );
+    }
+
+    /**
+     * @param memoryBudget budget shared with other caches, the memory taken from it is given back on close.
+     */
+    public ContentFetchCache( MemoryBudget memoryBudget )
+    {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Get the content of the path, fetching it if no one did it before.
+     */
+    public Content get( StoreKey key, String path, Fetcher fetcher ) throws Exception
+    {
+        final String id = key + ":" + path;
+        final CompletableFuture<Content> future = new CompletableFuture<>();
+        final CompletableFuture<Content> existing = entries.putIfAbsent( id, future );
+        if ( existing != null )
+        {
+            hits.incrementAndGet();
+            return await( existing );
+        }
+
+        fetched.incrementAndGet();
+        final Content content;
+        try
+        {
+            content = load( fetcher );
+        }
+        catch ( Throwable e )
+        {
+            entries.remove( id, future );
+            future.completeExceptionally( e );
+            throw e;
+        }
+
+        future.complete( content );
+        if ( closed )
+        {
+            // the request finished while we were downloading, nobody else will clean it up
+            entries.remove( id, future );
+            release( content );
+        }
+        return content;
+    }
+
+    /**
+     * Whether the path is cached or being fetched.
+     */
+    public boolean contains( StoreKey key, String path )
+    {
+        return entries.containsKey( key + ":" + path );
+    }
+
+    public long getMemoryUsed()
+    {
+        return memoryUsed.get();
+    }
+
+    /**
+     * Drop all content and delete the temp files.
+     */
+    public void close()
+    {
+        closed = true;
+        entries.values().forEach( future -> {
+            Content content = future.getNow( null );
+            if ( content != null )
+            {
+                release( content );
+            }
+        } );
+        entries.clear();
+        logger.debug( "Content fetch cache closed, fetched: {}, hits: {}, spilled: {}", fetched.get(), hits.get(),
+                      spilled.get() );
+    }
+
+    private void release( Content content )
+    {
+        if ( content.discard() )
+        {
+            unreserve( content.bytes.length );
+        }
+    }
+
+    private Content await( CompletableFuture<Content> future ) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private Content load( Fetcher fetcher ) throws Exception
+    {
+        final Content[] ret = { Content.MISSING };
+        final boolean found = fetcher.fetch( in -> ret[0] = spool( in ) );
+        return found ? ret[0] : Content.MISSING;
+    }
+
+    private Content spool( InputStream in ) throws IOException
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        long reserved = 0;
+        int n;
+        try
+        {
+            while ( ( n = in.read( chunk ) ) != -1 && reserve( n ) )
+            {
+                reserved += n;
+                buf.write( chunk, 0, n );
+            }
+        }
+        catch ( IOException e )
+        {
+            unreserve( reserved );
+            throw e;
+        }
+        if ( n == -1 )
+        {
+            return new Content( buf.toByteArray(), null, reserved );
+        }
+
+        // over the budget, move what we have so far to a temp file and continue there
+        unreserve( reserved );
+        File file = File.createTempFile( "promote-validate-", ".tmp" );
+        try (OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) ))
+        {
+            buf.writeTo( out );
+            out.write( chunk, 0, n );
+            long size = buf.size() + n + IOUtils.copyLarge( in, out );
+            spilled.incrementAndGet();
+            return new Content( null, file, size );
+        }
+        catch ( IOException e )
+        {
+            file.delete();
+            throw e;
+        }
+    }
+
+    private boolean reserve( int n )
+    {
+        if ( !memoryBudget.reserve( n ) )
+        {
+            return false;
+        }
+        memoryUsed.addAndGet( n );
+        return true;
+    }
+
+    private void unreserve( long n )
+    {
+        if ( n > 0 )
+        {
+            memoryUsed.addAndGet( -n );
+            memoryBudget.release( n );
+        }
+    }
+
+    /**
+     * Max bytes of content kept in memory, shared by the caches of concurrent validations.
+     */
+    public static final class MemoryBudget
+    {
+        private final long limit;
+
+        private final AtomicLong used = new AtomicLong();
+
+        public MemoryBudget( long limit )
+        {
+            this.limit = Math.max( 0, limit );
+        }
+
+        public long getUsed()
+        {
+            return used.get();
+        }
+
+        boolean reserve( long n )
+        {
+            long current;
+            do
+            {
+                current = used.get();
+                if ( current + n > limit )
+                {
+                    return false;
+                }
+            }
+            while ( !used.compareAndSet( current, current + n ) );
+            return true;
+        }
+
+        void release( long n )
+        {
+            used.addAndGet( -n );
+        }
+    }
+
+    @FunctionalInterface
+    public interface Fetcher
+    {
+        /**
+         * Open the content and hand the stream to the reader before closing it.
+         * @return false if the path does not exist
+         */
+        boolean fetch( StreamReader reader ) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface StreamReader
+    {
+        void read( InputStream in ) throws IOException;
+    }
+
+    public static final class Content
+    {
+        static final Content MISSING = new Content( null, null, 0 );
+
+        private final byte[] bytes;
+
+        private final File file;
+
+        private final long size;
+
+        private volatile DigestBundle digests;
+
+        private final AtomicBoolean discarded = new AtomicBoolean();
+
+        private Content( byte[] bytes, File file, long size )
+        {
+            this.bytes = bytes;
+            this.file = file;
+            this.size = size;
+        }
+
+        public boolean exists()
+        {
+            return bytes != null || file != null;
+        }
+
+        public boolean isSpilled()
+        {
+            return file != null;
+        }
+
+        public long size()
+        {
+            return size;
+        }
+
+        public InputStream openStream() throws IOException
+        {
+            if ( bytes != null )
+            {
+                return new ByteArrayInputStream( bytes );
+            }
+            if ( file != null )
+            {
+                return new FileInputStream( file );
+            }
+            throw new IOException( "Content does not exist" );
+        }
+
+        /**
+         * @return hex digest of the content, or null if the content does not exist. The common digests are computed
+         * together on the first call, so asking for another one later does not read the content again.
+         */
+        public String digest( ContentDigest digest ) throws IOException
+        {
+            if ( !exists() )
+            {
+                return null;
+            }
+            DigestBundle bundle = digests;
+            if ( bundle == null || !bundle.contains( digest ) )
+            {
+                synchronized ( this )
+                {
+                    bundle = digests;
+                    if ( bundle == null || !bundle.contains( digest ) )
+                    {
+                        try (InputStream is = openStream())
+                        {
+                            bundle = StreamingDigester.digest( is, withCommon( digest ) );
+                        }
+                        digests = bundle;
+                    }
+                }
+            }
+            return bundle.get( digest );
+        }
+
+        /**
+         * @return true if the content was held in memory and is dropped by this call.
+         */
+        private boolean discard()
+        {
+            if ( !exists() || !discarded.compareAndSet( false, true ) )
+            {
+                return false;
+            }
+            if ( file != null )
+            {
+                file.delete();
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.indy.pkg.npm.model.PackageMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields of a package.json that rules read: name, dist-tags and the version keys. It is what
+ * {@link PromotionValidationTools#checkLocalPackageJson} returns, so the version metadata (dependencies, scripts,
+ * readme, etc.) of every version is never bound into objects.
+ */
+public final class PackageJsonSummary
+{
+    private final String name;
+
+    private final Map<String, String> distTags;
+
+    private final List<String> versions;
+
+    public PackageJsonSummary( final String name, final Map<String, String> distTags, final List<String> versions )
+    {
+        this.name = name;
+        this.distTags = Collections.unmodifiableMap( distTags );
+        this.versions = Collections.unmodifiableList( versions );
+    }
+
+    public static PackageJsonSummary of( final PackageMetadata metadata )
+    {
+        return new PackageJsonSummary( metadata.getName(),
+                                       new LinkedHashMap<>( metadata.getDistTags().fetchTagsMap() ),
+                                       new ArrayList<>( metadata.getVersions().keySet() ) );
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Map<String, String> getDistTags()
+    {
+        return distTags;
+    }
+
+    public List<String> getVersions()
+    {
+        return versions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PackageJsonSummary{name='" + name + "', distTags=" + distTags + ", versions=" + versions + '}';
+    }
+}
@@ -17,6 +17,9 @@ package org.commonjava.service.promote.validate;
 
 import io.quarkus.runtime.Startup;
 import org.apache.commons.io.IOUtils;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.service.promote.config.PromoteConfig;
 import org.commonjava.service.promote.model.StoreKey;
 import org.commonjava.service.promote.model.ValidationCatalogDTO;
@@ -27,11 +30,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Startup
 @ApplicationScoped
@@ -53,11 +58,19 @@ public class PromoteValidationsManager
     @Inject
     ValidationRuleParser ruleParser;
 
-    private Map<String, ValidationRuleMapping> ruleMappings = new HashMap<>();
+    @WeftManaged
+    @Inject
+    @ExecutorConfig( named = "promote-rules-watcher", threads = 1, priority = 3 )
+    WeftExecutorService watcherExecutor;
 
-    private boolean enabled;
+    private final AtomicReference<ValidationRegistry> registry = new AtomicReference<>( ValidationRegistry.EMPTY );
+
+    // rules shipped in the resources never change, customer rules with the same name override them
+    private Map<String, ValidationRuleMapping> defaultRuleMappings = Collections.emptyMap();
+
+    private RuleFilesWatcher watcher;
 
-    private Map<String, ValidationRuleSet> ruleSets = new HashMap<>();
+    private boolean enabled;
 
     protected PromoteValidationsManager()
     {
@@ -84,18 +97,75 @@ public class PromoteValidationsManager
         {
             logger.error( "Failed to parse validation rule: " + e.getMessage(), e );
         }
+
+        if ( config.ruleWatch() )
+        {
+            startWatcher();
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if ( watcher != null )
+        {
+            IOUtils.closeQuietly( watcher );
+        }
+    }
+
+    private void startWatcher()
+    {
+        try
+        {
+            watcher = new RuleFilesWatcher( config.baseDir(), Arrays.asList( RULES_DIR, RULES_SETS_DIR ),
+                                            this::reload );
+            watcherExecutor.execute( watcher );
+        }
+        catch ( IOException e )
+        {
+            logger.error( "Failed to watch validation rules, changes will not be picked up until restart", e );
+        }
     }
 
     private void parseRuleBundles() throws Exception
     {
-        parseRules();
-        parseRuleSets();
+        defaultRuleMappings = parseDefaultRules();
+        publish( parseRules( ValidationRegistry.EMPTY, true ), parseRuleSets( ValidationRegistry.EMPTY, true ) );
 
         this.enabled = true;
     }
 
-    private void parseRules() throws Exception {
-        // Load default rules
+    /**
+     * Re-read the rule and rule-set files and publish a new registry. Only rules whose script changed are compiled
+     * again; a rule or rule-set that fails to load keeps its previous version. Validations in progress keep using the
+     * registry they started with.
+     */
+    public synchronized void reload()
+    {
+        final ValidationRegistry previous = registry.get();
+        try
+        {
+            publish( parseRules( previous, false ), parseRuleSets( previous, false ) );
+            this.enabled = true;
+        }
+        catch ( Exception e )
+        {
+            // not thrown in lenient mode, just in case
+            logger.error( "Failed to reload validation rules, keep the current ones", e );
+        }
+    }
+
+    private void publish( Map<String, ValidationRuleMapping> ruleMappings, Map<String, ValidationRuleSet> ruleSets )
+    {
+        final ValidationRegistry next =
+                new ValidationRegistry( ruleMappings, ruleSets, registry.get().getVersion() + 1 );
+        registry.set( next );
+        logger.info( "Validation registry published, version: {}, rules: {}, rule-sets: {}", next.getVersion(),
+                     ruleMappings.size(), ruleSets.keySet() );
+    }
+
+    private Map<String, ValidationRuleMapping> parseDefaultRules() throws Exception {
+        Map<String, ValidationRuleMapping> ruleMappings = new HashMap<>();
         logger.info("Load default validation rules from resource.");
         List<String> defaultRules = getResourceRuleFiles( RULES_DIR );
         for (final String f : defaultRules) {
@@ -106,6 +176,13 @@ public class PromoteValidationsManager
                 ruleMappings.put(rule.getName(), rule);
             }
         }
+        return Collections.unmodifiableMap( ruleMappings );
+    }
+
+    private Map<String, ValidationRuleMapping> parseRules( final ValidationRegistry previous, final boolean strict )
+            throws Exception
+    {
+        Map<String, ValidationRuleMapping> ruleMappings = new HashMap<>( defaultRuleMappings );
 
         // Load customer rules
         File rulesDir = dataFileManager.getDataFile(RULES_DIR);
@@ -114,16 +191,44 @@ public class PromoteValidationsManager
             logger.info("Load rules in directory: {}", rulesDir);
             File[] scripts = rulesDir.listFiles((f) -> f.getName().endsWith(".groovy"));
 
-            if (scripts.length > 0) {
+            if (scripts != null) {
                 for (final File script : scripts) {
-                    logger.info("Load validation rule from: {}", script);
-                    final ValidationRuleMapping rule = ruleParser.parseRule(script, normalizeRuleName(script.getName()));
+                    final String ruleName = normalizeRuleName(script.getName());
+                    final ValidationRuleMapping old = previous.getRuleMappingNamed( ruleName );
+                    final ValidationRuleMapping rule;
+                    try
+                    {
+                        String spec = ruleParser.readRuleSpec( script );
+                        if ( old != null && spec.equals( old.getSpecification() ) )
+                        {
+                            logger.debug( "Validation rule not changed: {}", script );
+                            ruleMappings.put( ruleName, old );
+                            continue;
+                        }
+                        logger.info("Load validation rule from: {}", script);
+                        rule = ruleParser.parseRule( spec, ruleName );
+                    }
+                    catch ( Exception e )
+                    {
+                        if ( strict )
+                        {
+                            throw e;
+                        }
+                        logger.error( "Failed to reload validation rule from: " + script + ", keep the current one",
+                                      e );
+                        if ( old != null )
+                        {
+                            ruleMappings.put( ruleName, old );
+                        }
+                        continue;
+                    }
                     if (rule != null) {
                         ruleMappings.put(rule.getName(), rule);
                     }
                 }
             }
         }
+        return ruleMappings;
     }
 
     public String normalizeRuleName(String name)
@@ -154,9 +259,10 @@ public class PromoteValidationsManager
         }
     }
 
-    private void parseRuleSets()
+    private Map<String, ValidationRuleSet> parseRuleSets( final ValidationRegistry previous, final boolean strict )
             throws PromotionValidationException
     {
+        Map<String, ValidationRuleSet> ruleSets = new HashMap<>();
         File dataDir = dataFileManager.getDataFile( RULES_SETS_DIR );
         logger.info( "Scanning {} for promotion validation rule-set mappings...", dataDir );
         if ( dataDir.exists() )
@@ -166,13 +272,27 @@ public class PromoteValidationsManager
                 return pathname.getName().endsWith( ".json" );
             } );
 
-            if ( scripts.length > 0 )
+            if ( scripts != null && scripts.length > 0 )
             {
 
                 for ( final File script : scripts )
                 {
                     logger.debug( "Reading promotion validation rule-set from: {}", script );
-                    final ValidationRuleSet set = ruleParser.parseRuleSet( script );
+                    ValidationRuleSet set;
+                    try
+                    {
+                        set = ruleParser.parseRuleSet( script );
+                    }
+                    catch ( PromotionValidationException e )
+                    {
+                        if ( strict )
+                        {
+                            throw e;
+                        }
+                        logger.error( "Failed to reload validation rule-set from: " + script
+                                              + ", keep the current one", e );
+                        set = previous.getRuleSets().get( script.getName() );
+                    }
                     if ( set != null )
                     {
                         ruleSets.put( script.getName(), set );
@@ -189,22 +309,33 @@ public class PromoteValidationsManager
         {
             logger.warn( "No rule-set json file was defined for promotion: {} directory not exists", RULES_SETS_DIR );
         }
+        return ruleSets;
+    }
+
+    /**
+     * The current snapshot of rules and rule-sets. Hold on to it for the whole validation so all the rules come from
+     * the same version.
+     */
+    public ValidationRegistry getRegistry()
+    {
+        return registry.get();
     }
 
     public ValidationCatalogDTO toDTO()
     {
+        final ValidationRegistry current = registry.get();
         final Map<String, ValidationRuleDTO> rules = new HashMap<>();
-        for ( final ValidationRuleMapping mapping : ruleMappings.values() )
+        for ( final ValidationRuleMapping mapping : current.getRuleMappingsByName().values() )
         {
             rules.put( mapping.getName(), mapping.toDTO() );
         }
 
-        return new ValidationCatalogDTO( enabled, rules, ruleSets );
+        return new ValidationCatalogDTO( enabled, rules, new HashMap<>( current.getRuleSets() ) );
     }
 
     public Set<ValidationRuleMapping> getRuleMappings()
     {
-        return new HashSet<>( ruleMappings.values() );
+        return registry.get().getRuleMappings();
     }
 
     public boolean isEnabled()
@@ -214,31 +345,7 @@ public class PromoteValidationsManager
 
     public ValidationRuleSet getRuleSetMatching( StoreKey storeKey )
     {
-        if ( ruleSets == null )
-        {
-            logger.debug( "No rule sets to match against. No validations will be executed for: {}", storeKey );
-            return null;
-        }
-
-        // Add deprecated form of StoreKey to the check to handle older rules.
-        List<String> keyStrings = Arrays.asList( storeKey.toString(),
-                                                 String.format( "%s:%s", storeKey.getType().singularEndpointName(),
-                                                                storeKey.getName() ) );
-
-        for ( Map.Entry<String, ValidationRuleSet> entry : ruleSets.entrySet() )
-        {
-            for ( String keyStr : keyStrings )
-            {
-                logger.debug( "Checking for rule-set match. Key='{}', rule-set: '{}'", keyStr, entry.getKey() );
-                if ( entry.getValue().matchesKey( keyStr ) )
-                {
-                    logger.debug( "Rule set '{}' matches key '{}'", entry.getKey(), keyStr );
-                    return entry.getValue();
-                }
-            }
-        }
-
-        return null;
+        return registry.get().getRuleSetMatching( storeKey );
     }
 
     public ValidationRule getRuleNamed( final String name )
@@ -271,7 +378,7 @@ public class PromoteValidationsManager
 
     public ValidationRuleMapping getRuleMappingNamed( final String name )
     {
-        return ruleMappings.get( name );
+        return registry.get().getRuleMappingNamed( name );
     }
 
 }
@@ -15,6 +15,7 @@
  */
 package org.commonjava.service.promote.validate;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import groovy.lang.Closure;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
@@ -24,37 +25,58 @@ import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
 import org.commonjava.cdi.util.weft.WeftExecutorService;
 import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.pkg.npm.content.PackagePath;
+import org.commonjava.indy.model.core.PathStyle;
 import org.commonjava.indy.pkg.npm.model.PackageMetadata;
 import org.commonjava.service.promote.client.content.ContentService;
 import org.commonjava.service.promote.config.PromoteConfig;
 import org.commonjava.service.promote.core.ContentDigester;
+import org.commonjava.service.promote.core.DownstreamLimiter;
 import org.commonjava.service.promote.core.IndyObjectMapper;
+import org.commonjava.service.promote.core.PromotionHelper;
 import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
 import org.commonjava.service.promote.util.ContentDigest;
+import org.commonjava.service.promote.util.ParallelEach;
 import org.commonjava.service.promote.util.ResponseHelper;
+import org.commonjava.service.promote.util.WorkProfile;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.CONTENT;
 import static org.commonjava.service.promote.util.Batcher.batch;
 import static org.commonjava.service.promote.util.Batcher.getParalleledBatchSize;
+import static org.commonjava.service.promote.core.PromotionHelper.DEFAULT_STORAGE_SERVICE_EXIST_CHECK_BATCH_SIZE;
 
 @ApplicationScoped
 public class PromotionValidationTools
@@ -68,6 +90,9 @@ public class PromotionValidationTools
 
     private static final int DEFAULT_RULE_PARALLEL_WAIT_TIME_MINS = 30;
 
+    // for checkLocalPackageJson when no objectMapper is injected (unit tests)
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     @Inject
     ResponseHelper responseHelper;
 
@@ -89,6 +114,17 @@ public class PromotionValidationTools
     @RestClient
     ContentService contentService;
 
+    @Inject
+    DownstreamLimiter limiter;
+
+    @Inject
+    PromotionHelper promotionHelper;
+
+    // work-stealing backend of paralleledEach/paralleledInBatch, null to use ruleParallelExecutor
+    private ForkJoinPool forkJoinPool;
+
+    private ContentFetchCache.MemoryBudget fetchCacheBudget;
+
     public PromotionValidationTools()
     {
     }
@@ -101,6 +137,32 @@ public class PromotionValidationTools
         this.promoteConfig = config;
     }
 
+    @PostConstruct
+    public void init()
+    {
+        final int parallelism = promoteConfig.ruleForkJoinParallelism();
+        if ( parallelism > 0 )
+        {
+            final AtomicInteger count = new AtomicInteger();
+            forkJoinPool = new ForkJoinPool( parallelism, pool -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( pool );
+                t.setName( "promote-rules-fj-" + count.incrementAndGet() );
+                return t;
+            }, null, true );
+        }
+        logger.info( "Rule parallel backend: {}",
+                     forkJoinPool != null ? forkJoinPool : "promote-rules-batch-executor" );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if ( forkJoinPool != null )
+        {
+            forkJoinPool.shutdownNow();
+        }
+    }
+
     public StoreKey[] getValidationStoreKeys(final ValidationRequest request )
             throws PromotionValidationException
     {
@@ -173,37 +235,102 @@ public class PromotionValidationTools
     public void readLocalPom( final String path, final ValidationRequest request )
             throws Exception
     {
-        ArtifactRef artifactRef = getArtifact( path );
+        ArtifactRef artifactRef = getArtifact( path, request );
         if ( artifactRef == null )
         {
             throw new Exception( String.format("Invalid artifact path: %s. Could not parse ArtifactRef from path.", path) );
         }
         StoreKey src = request.getSource();
-        Response resp = contentService.retrieve(src.getPackageType(), src.getType().getName(), src.getName(), path);
-        if ( resp.getStatus() == SC_OK ) {
-            MavenXpp3Reader reader = new MavenXpp3Reader();
-            reader.read(resp.readEntity(InputStream.class));
-            return;
+        ContentFetchCache.Content content = readSource( path, request );
+        if ( content.exists() )
+        {
+            try (InputStream is = content.openStream())
+            {
+                if ( promoteConfig != null && promoteConfig.ruleStreamingPomCheck() )
+                {
+                    StreamingPomChecker.check( is );
+                }
+                else
+                {
+                    new MavenXpp3Reader().read( is );
+                }
+                return;
+            }
         }
         throw new Exception( String.format("File not exist, srcFilesystem: %s, path: %s", src, path) );
     }
 
-    public PackageMetadata readLocalPackageJson(final String path, final ValidationRequest request )
+    /**
+     * Check the package.json is parsable and read the fields of {@link PackageJsonSummary}, streaming it unless
+     * the full binding is configured. Use {@link #readLocalPackageJson} when the rule needs the whole metadata.
+     */
+    public PackageJsonSummary checkLocalPackageJson( final String path, final ValidationRequest request )
             throws Exception
     {
-        StoreKey src = request.getSource();
-        Response resp = contentService.retrieve(src.getPackageType(), src.getType().getName(), src.getName(), path);
-        if ( resp.getStatus() == SC_OK ) {
-            try (InputStream is = resp.readEntity( InputStream.class ))
+        ContentFetchCache.Content content = readSource( path, request );
+        if ( content.exists() )
+        {
+            try (InputStream is = content.openStream())
             {
-                return objectMapper.readValue( is, PackageMetadata.class );
+                if ( promoteConfig != null && promoteConfig.ruleFullPackageJsonBinding() )
+                {
+                    return PackageJsonSummary.of( objectMapper.readValue( is, PackageMetadata.class ) );
+                }
+                return StreamingPackageJsonChecker.check( getJsonFactory(), is );
             }
         }
-        else
+        throw new Exception(
+                String.format("Invalid artifact path: %s. Could not parse package metadata from path.", path ));
+    }
+
+    public PackageMetadata readLocalPackageJson(final String path, final ValidationRequest request )
+            throws Exception
+    {
+        ContentFetchCache.Content content = readSource( path, request );
+        if ( content.exists() )
         {
-            throw new Exception(
-                    String.format("Invalid artifact path: %s. Could not parse package metadata from path.", path ));
+            try (InputStream is = content.openStream())
+            {
+                return objectMapper.readValue( is, PackageMetadata.class );
+            }
         }
+        throw new Exception(
+                String.format("Invalid artifact path: %s. Could not parse package metadata from path.", path ));
+    }
+
+    /**
+     * Read the path of the promotion source through {@link ValidationRequest#getContentCache()}.
+     */
+    public ContentFetchCache.Content readSource( final String path, final ValidationRequest request )
+            throws Exception
+    {
+        StoreKey src = request.getSource();
+        return request.getContentCache().get( src, path, reader -> {
+            WorkProfile.countRemoteCall();
+            try (DownstreamLimiter.Permit permit = limiter.acquire( CONTENT );
+                 Response resp = contentService.retrieve( src.getPackageType(), src.getType().getName(),
+                                                          src.getName(), path ))
+            {
+                if ( resp.getStatus() != SC_OK )
+                {
+                    logger.debug( "Retrieve failed, {}:{}, code: {}", src, path, resp.getStatus() );
+                    return false;
+                }
+                try (InputStream is = resp.readEntity( InputStream.class ))
+                {
+                    reader.read( is );
+                }
+                return true;
+            }
+            catch ( Exception e )
+            {
+                if ( responseHelper.isRest404Exception( e ) )
+                {
+                    return false;
+                }
+                throw e;
+            }
+        } );
     }
 
     public ArtifactRef getArtifact( final String path )
@@ -212,6 +339,20 @@ public class PromotionValidationTools
         return pathInfo == null ? null : pathInfo.getArtifact();
     }
 
+    /**
+     * Same as {@link #getArtifact(String)}, but a path of the request is taken from
+     * {@link ValidationRequest#getPathIndex()} instead of being parsed again.
+     */
+    public ArtifactRef getArtifact( final String path, final ValidationRequest request )
+    {
+        SourcePathIndex.PathEntry entry = request.getPathIndex().get( path );
+        if ( entry == null || !entry.isParsedAsMaven() )
+        {
+            return getArtifact( path );
+        }
+        return entry.getArtifact();
+    }
+
     public Optional<PackagePath> getNPMPackagePath(final String tarPath )
     {
         return PackagePath.parse( tarPath );
@@ -220,7 +361,8 @@ public class PromotionValidationTools
     public boolean exists( final StoreKey store, final String path )
             throws Exception
     {
-        try
+        WorkProfile.countRemoteCall();
+        try (DownstreamLimiter.Permit permit = limiter.acquire( CONTENT ))
         {
             Response resp = contentService.exists(store.getPackageType(), store.getType().getName(), store.getName(), path);
             return resp.getStatus() == SC_OK;
@@ -235,125 +377,285 @@ public class PromotionValidationTools
         }
     }
     
+    /**
+     * Get the paths that exist in the store. See {@link #missingInBatch(StoreKey, Collection)}.
+     */
+    public Set<String> existsInBatch( final StoreKey store, final Collection<String> paths )
+            throws Exception
+    {
+        return new HashSet<>( locateInBatch( store, paths ).keySet() );
+    }
+
+    /**
+     * Get the paths that do not exist in the store. Instead of one request per path, paths are checked against the
+     * storage filesystems in batches of {@link PromotionHelper#DEFAULT_STORAGE_SERVICE_EXIST_CHECK_BATCH_SIZE}. A group
+     * is resolved to its constituents and a path only needs to exist in one of them. Storage only has what a remote
+     * repository has cached, so remote ones (and stores whose definition can not be retrieved) are still checked per
+     * path via content service, for the paths not found elsewhere.
+     *
+     * The checks run in parallel like paralleledEach, with the caller taking part, so it can be called from inside a
+     * paralleledEach action too.
+     */
+    public Set<String> missingInBatch( final StoreKey store, final Collection<String> paths )
+            throws Exception
+    {
+        Set<String> missing = new HashSet<>( paths );
+        missing.removeAll( locateInBatch( store, paths ).keySet() );
+        return missing;
+    }
+
+    /**
+     * Get the paths that exist in the store, checked like {@link #missingInBatch(StoreKey, Collection)}, each with the
+     * hosted or remote store serving it, i.e., for a group the first constituent having it. Digests of groups are not
+     * cached, so digest the path in that store instead.
+     */
+    public Map<String, StoreKey> locateInBatch( final StoreKey store, final Collection<String> paths )
+            throws Exception
+    {
+        Map<String, StoreKey> located = new HashMap<>();
+        Set<String> missing = new HashSet<>( paths );
+        List<StoreKey> concreteStores =
+                promotionHelper == null ? Collections.singletonList( store ) : promotionHelper.resolveConcreteStores(
+                        store );
+        for ( StoreKey concrete : concreteStores )
+        {
+            if ( missing.isEmpty() )
+            {
+                break;
+            }
+            PathStyle pathStyle = promotionHelper != null && concrete.getType() == StoreType.hosted ?
+                    promotionHelper.getPathStyle( concrete ) :
+                    null;
+            Set<String> stillMissing = pathStyle != null ?
+                    getMissingInStorage( concrete, missing, pathStyle ) :
+                    getMissingOneByOne( concrete, missing );
+            for ( String path : missing )
+            {
+                if ( !stillMissing.contains( path ) )
+                {
+                    located.put( path, concrete );
+                }
+            }
+            missing = stillMissing;
+        }
+        logger.debug( "Locate in batch, store: {}, total: {}, missing: {}", store, paths.size(), missing.size() );
+        return located;
+    }
+
+    private Set<String> getMissingInStorage( final StoreKey store, final Set<String> paths, final PathStyle pathStyle )
+            throws Exception
+    {
+        Collection<Collection<String>> batches = batch( paths, DEFAULT_STORAGE_SERVICE_EXIST_CHECK_BATCH_SIZE );
+        return collectInParallel( batches.stream()
+                                         .map( b -> (Callable<Set<String>>) () -> {
+                                             WorkProfile.countRemoteCall();
+                                             return promotionHelper.getMissing( store, b, pathStyle );
+                                         } )
+                                         .collect( Collectors.toList() ), promoteConfig.existCheckMaxInFlight() );
+    }
+
+    private Set<String> getMissingOneByOne( final StoreKey store, final Set<String> paths )
+            throws Exception
+    {
+        return collectInParallel( paths.stream()
+                                       .map( p -> (Callable<Set<String>>) () -> exists( store, p ) ?
+                                               Collections.<String>emptySet() :
+                                               Collections.singleton( p ) )
+                                       .collect( Collectors.toList() ), getParallelism() );
+    }
+
+    /**
+     * Run the checks via {@link ParallelEach}, which hands the caller's cancellation and profile to the helpers, and
+     * collect what they return.
+     */
+    private Set<String> collectInParallel( List<Callable<Set<String>>> tasks, int parallelism )
+            throws Exception
+    {
+        final Set<String> ret = ConcurrentHashMap.newKeySet();
+        try
+        {
+            ParallelEach.forEach( getParallelExecutor(), tasks, parallelism, task -> {
+                try
+                {
+                    ret.addAll( task.call() );
+                }
+                catch ( RuntimeException e )
+                {
+                    throw e;
+                }
+                catch ( Exception e )
+                {
+                    throw new CompletionException( e );
+                }
+            }, DEFAULT_RULE_PARALLEL_WAIT_TIME_MINS, TimeUnit.MINUTES );
+        }
+        catch ( CompletionException e )
+        {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return ret;
+    }
+
     public String digest( final StoreKey key, final String path, ContentDigest digest )
             throws Exception
     {
+        WorkProfile.countRemoteCall();
         return contentDigester.digest( key, path, digest );
     }
 
+    /**
+     * Same as {@link #digest(StoreKey, String, ContentDigest)}, but a source path without checksum file is digested
+     * from {@link #readSource(String, ValidationRequest)}.
+     */
+    public String digest( final StoreKey key, final String path, ContentDigest digest, final ValidationRequest request )
+            throws Exception
+    {
+        if ( request == null || !key.equals( request.getSource() ) )
+        {
+            WorkProfile.countRemoteCall();
+            return contentDigester.digest( key, path, digest );
+        }
+
+        if ( !request.getContentCache().contains( key, path ) )
+        {
+            WorkProfile.countRemoteCall();
+            String checksum = contentDigester.getChecksumFile( key, path, digest );
+            if ( checksum != null )
+            {
+                return checksum;
+            }
+        }
+
+        try
+        {
+            return readSource( path, request ).digest( digest );
+        }
+        catch ( Exception e )
+        {
+            logger.debug( "Retrieve and calculate checksum failed, {}:{}, Exception: {}", key, path, e.getMessage() );
+            throw new PromotionValidationException( "Retrieve and calculate checksum failed for " + key + ":" + path,
+                                                    e );
+        }
+    }
+
+    private JsonFactory getJsonFactory()
+    {
+        return objectMapper == null ? JSON_FACTORY : objectMapper.getFactory();
+    }
+
+    /**
+     * Memory budget of the content fetch caches, shared by all validations running on this node.
+     */
+    synchronized ContentFetchCache.MemoryBudget getFetchCacheBudget()
+    {
+        if ( fetchCacheBudget == null )
+        {
+            fetchCacheBudget = new ContentFetchCache.MemoryBudget(
+                    promoteConfig == null ? 0 : promoteConfig.validationFetchCacheMemoryBytes() );
+        }
+        return fetchCacheBudget;
+    }
+
     public <T> void paralleledEach( Collection<T> collection, Closure closure )
     {
         final Logger logger = LoggerFactory.getLogger( this.getClass() );
         logger.trace( "Exe parallel on collection {} with closure {}", collection, closure );
-        runParallelAndWait( collection, closure, logger );
+        runParallelAndWait( collection, closure::call, logger );
     }
 
     public <T> void paralleledEach( T[] array, Closure closure )
     {
         final Logger logger = LoggerFactory.getLogger( this.getClass() );
         logger.trace( "Exe parallel on array {} with closure {}", array, closure );
-        runParallelAndWait( Arrays.asList( array ), closure, logger );
+        runParallelAndWait( Arrays.asList( array ), closure::call, logger );
+    }
+
+    /**
+     * Same as {@link #paralleledEach(Collection, Closure)}, for rules written in Java.
+     */
+    public <T> void paralleledEach( Collection<T> collection, Consumer<? super T> action )
+    {
+        logger.trace( "Exe parallel on collection {}", collection );
+        runParallelAndWait( collection, action, logger );
     }
 
     public <T> void paralleledInBatch( Collection<T> collection, Closure closure )
     {
-        int batchSize = getParalleledBatchSize( collection.size(), ruleParallelExecutor.getCorePoolSize() );
+        int batchSize = getParalleledBatchSize( collection.size(), getParallelism() );
         logger.trace( "Exe parallel on collection {} with closure {} in batch {}", collection, closure, batchSize );
         Collection<Collection<T>> batches = batch( collection, batchSize );
-        runParallelInBatchAndWait( batches, closure, logger );
+        runParallelInBatchAndWait( batches, closure::call, logger );
     }
 
     public <T> void paralleledInBatch( T[] array, Closure closure )
     {
-        int batchSize = getParalleledBatchSize( array.length, ruleParallelExecutor.getCorePoolSize() );
+        int batchSize = getParalleledBatchSize( array.length, getParallelism() );
         logger.trace( "Exe parallel on array {} with closure {} in batch {}", array, closure, batchSize );
         Collection<Collection<T>> batches = batch( Arrays.asList( array ), batchSize );
-        runParallelInBatchAndWait( batches, closure, logger );
+        runParallelInBatchAndWait( batches, closure::call, logger );
     }
 
-    private <T> void runParallelInBatchAndWait( Collection<Collection<T>> batches, Closure closure, Logger logger )
+    /**
+     * Same as {@link #paralleledInBatch(Collection, Closure)}, for rules written in Java.
+     */
+    public <T> void paralleledInBatch( Collection<T> collection, Consumer<? super T> action )
     {
-        final CountDownLatch latch = new CountDownLatch( batches.size() );
-        batches.forEach( batch -> ruleParallelExecutor.execute( () -> {
-            try
-            {
-                logger.trace( "The paralleled exe on batch {}", batch );
-                batch.forEach( e -> {
-                    //String depthStr = MDC.get( ITERATION_DEPTH );
-                    //RequestContextHelper.setContext( ITERATION_DEPTH, depthStr == null ? "0" : String.valueOf( Integer.parseInt( depthStr ) + 1 ) );
-                    //RequestContextHelper.setContext( ITERATION_ITEM, String.valueOf( e ) );
-                    try
-                    {
-                        closure.call( e );
-                    }
-                    finally
-                    {
-                        //MDC.remove( ITERATION_ITEM );
-                        //MDC.remove( ITERATION_DEPTH );
-                    }
-                } );
-            }
-            finally
-            {
-                latch.countDown();
-            }
-        } ) );
+        int batchSize = getParalleledBatchSize( collection.size(), getParallelism() );
+        logger.trace( "Exe parallel on collection {} in batch {}", collection, batchSize );
+        Collection<Collection<T>> batches = batch( collection, batchSize );
+        runParallelInBatchAndWait( batches, action, logger );
+    }
 
-        waitForCompletion( latch );
+    private <T> void runParallelInBatchAndWait( Collection<Collection<T>> batches, Consumer<? super T> action,
+                                                Logger logger )
+    {
+        WorkProfile.countItems( batches.stream().mapToLong( Collection::size ).sum() );
+        runParallel( new ArrayList<>( batches ), batch -> {
+            logger.trace( "The paralleled exe on batch {}", batch );
+            batch.forEach( action );
+        } );
     }
 
-    private <T> void runParallelAndWait( Collection<T> runCollection, Closure closure, Logger logger )
+    private <T> void runParallelAndWait( Collection<T> runCollection, Consumer<? super T> action, Logger logger )
     {
-        Set<T> todo = new HashSet<>( runCollection );
-        final CountDownLatch latch = new CountDownLatch( todo.size() );
-        todo.forEach( e -> ruleParallelExecutor.execute( () -> {
-            //String depthStr = MDC.get( ITERATION_DEPTH );
-            //RequestContextHelper.setContext( ITERATION_DEPTH, depthStr == null ? "0" : String.valueOf( Integer.parseInt( depthStr ) + 1 ) );
-            //RequestContextHelper.setContext( ITERATION_ITEM, String.valueOf( e ) );
+        WorkProfile.countItems( runCollection.size() );
+        runParallel( new ArrayList<>( new HashSet<>( runCollection ) ), e -> {
+            logger.trace( "The paralleled exe on element {}", e );
+            action.accept( e );
+        } );
+    }
 
-            try
-            {
-                logger.trace( "The paralleled exe on element {}", e );
-                closure.call( e );
-            }
-            finally
-            {
-                latch.countDown();
-                //MDC.remove( ITERATION_ITEM );
-                //MDC.remove( ITERATION_DEPTH );
-            }
-        } ) );
+    /**
+     * The caller runs items too and never waits for queued ones, so a saturated pool or a nested paralleledEach from
+     * inside an action can not starve it. See {@link ParallelEach}.
+     */
+    private <T> void runParallel( List<T> todo, Consumer<? super T> action )
+    {
+        ParallelEach.forEach( getParallelExecutor(), todo, getParallelism(), action,
+                              DEFAULT_RULE_PARALLEL_WAIT_TIME_MINS, TimeUnit.MINUTES );
+    }
 
-        waitForCompletion( latch );
+    private Executor getParallelExecutor()
+    {
+        return forkJoinPool != null ? forkJoinPool : ruleParallelExecutor;
     }
 
-    private void waitForCompletion( CountDownLatch latch )
+    private int getParallelism()
     {
-        try
-        {
-            // true if the count reached zero and false if timeout
-            boolean finished = latch.await( DEFAULT_RULE_PARALLEL_WAIT_TIME_MINS, TimeUnit.MINUTES );
-            if ( !finished )
-            {
-                throw new RuntimeException( "Parallel execution timeout" );
-            }
-        }
-        catch ( InterruptedException e )
-        {
-            logger.error( "Rule validation execution failed due to parallel running timeout for {} minutes",
-                    DEFAULT_RULE_PARALLEL_WAIT_TIME_MINS );
-        }
+        return forkJoinPool != null ? forkJoinPool.getParallelism() : ruleParallelExecutor.getCorePoolSize();
     }
 
     public <T> void forEach( Collection<T> collection, Closure closure )
     {
         logger.trace( "Exe on collection {} with closure {}", collection, closure );
+        WorkProfile.countItems( collection.size() );
         collection.forEach( closure::call );
     }
 
     public <T> void forEach( T[] array, Closure closure )
     {
         logger.trace( "Exe on array {} with closure {}", array, closure );
+        WorkProfile.countItems( array.length );
         Arrays.asList( array ).forEach( closure::call );
     }
 
@@ -15,7 +15,6 @@
  */
 package org.commonjava.service.promote.validate;
 
-import org.commonjava.cdi.util.weft.DrainingExecutorCompletionService;
 import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.WeftExecutorService;
 import org.commonjava.cdi.util.weft.WeftManaged;
@@ -23,6 +22,8 @@ import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.service.promote.config.PromoteConfig;
 import org.commonjava.service.promote.core.ContentDigester;
 import org.commonjava.service.promote.model.*;
+import org.commonjava.service.promote.util.Cancellation;
+import org.commonjava.service.promote.util.WorkProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,12 +31,20 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.apache.commons.lang.StringUtils.isNotEmpty;
 import static org.apache.commons.lang3.StringUtils.join;
 
@@ -65,6 +74,12 @@ public class PromotionValidator
     @Inject
     PromoteConfig config;
 
+    @Inject
+    RuleScheduler ruleScheduler;
+
+    @Inject
+    RuleProfiler ruleProfiler;
+
     @Inject
     @WeftManaged
     @ExecutorConfig( named = "promote-rules-runner", threads = 16, priority = 5,
@@ -77,12 +92,23 @@ public class PromotionValidator
     {
     }
 
+    /**
+     * Whether promotions to the target run any validation rules.
+     */
+    public boolean hasRules( StoreKey target )
+    {
+        ValidationRuleSet set = validationsManager.getRegistry().getRuleSetMatching( target );
+        return set != null && set.getRuleNames() != null && !set.getRuleNames().isEmpty();
+    }
+
     public ValidationResult validate(PromoteRequest request, String baseUrl )
             throws PromotionValidationException
     {
         ValidationResult result = new ValidationResult();
 
-        ValidationRuleSet set = validationsManager.getRuleSetMatching( request.getTarget() );
+        // all rules of this validation come from one snapshot even if the rules are reloaded meanwhile
+        final ValidationRegistry registry = validationsManager.getRegistry();
+        ValidationRuleSet set = registry.getRuleSetMatching( request.getTarget() );
 
 /*
         ArtifactStore source;
@@ -108,52 +134,14 @@ public class PromotionValidator
             {
 //                final ArtifactStore store = getRequestStore( request, baseUrl );
                 final ValidationRequest validationRequest = new ValidationRequest( request, set, validationTools );
+                final List<Cancellation> cancellations = new ArrayList<>();
                 try
                 {
-                    DrainingExecutorCompletionService<Exception> svc =
-                            new DrainingExecutorCompletionService<>( validateService );
-
-                    detectOverloadVoid(()->{
-                        for ( String ruleRef : ruleNames )
-                        {
-                            svc.submit( () -> {
-                                //RequestContextHelper.setContext( PROMOTION_VALIDATION_RULE, ruleRef );
-                                Exception err = null;
-                                try
-                                {
-                                    executeValidationRule( ruleRef, validationRequest, result, request );
-                                }
-                                catch ( Exception e )
-                                {
-                                    err = e;
-                                }
-                                finally
-                                {
-                                    //RequestContextHelper.clearContext( PROMOTION_VALIDATION_RULE );
-                                }
-
-                                return err;
-                            } );
-                        }
-                    });
-
-                    List<String> errors = new ArrayList<>();
-                    svc.drain( err->{
-                        if ( err != null )
-                        {
-                            logger.error( "Promotion validation failure", err );
-                            errors.add( err.getMessage() );
-                        }
-                    } );
-
-                    if ( !errors.isEmpty() )
-                    {
-                        throw new PromotionValidationException( format( "Failed to do promotion validation: \n\n%s", join( errors, "\n" ) ) );
-                    }
+                    runRules( set, ruleNames, registry, validationRequest, result, request, cancellations );
                 }
-                catch ( InterruptedException | ExecutionException e )
+                finally
                 {
-                    throw new PromotionValidationException( "Failed to execute promotion validations", e );
+                    closeWhenIdle( validationRequest, cancellations );
                 }
 /*
                 finally
@@ -200,20 +188,279 @@ public class PromotionValidator
         }
     }
 
-    private void executeValidationRule( final String ruleRef, final ValidationRequest validationRequest,
-                                        final ValidationResult result, final PromoteRequest request )
+    /**
+     * Start the rules cheapest first (see {@link RuleScheduler}) and collect their outcome on this thread. In
+     * fail-fast mode the rules still pending or running are cancelled once a rule reports errors or fails.
+     *
+     * A rule running longer than its timeout in the rule-set, or any rule still pending or running when the rule-set
+     * timeout runs out, is cancelled and reported as a validator error. Cancelling interrupts the threads working for
+     * the rule (see {@link Cancellation}), so they stop waiting and go back to the pools once their current HTTP calls
+     * return. The cancellation of each started rule is added to cancellations.
+     */
+    private void runRules( final ValidationRuleSet set, final List<String> ruleNames, final ValidationRegistry registry,
+                           final ValidationRequest validationRequest, final ValidationResult result,
+                           final PromoteRequest request, final List<Cancellation> cancellations )
+            throws PromotionValidationException
+    {
+        final boolean failFast = ruleScheduler.isFailFast( set, request );
+        final List<String> ordered = ruleScheduler.order( set, ruleNames );
+        logger.debug( "Rule order: {}, failFast: {}", ordered, failFast );
+
+        final CompletionService<RuleRun> svc = new ExecutorCompletionService<>( validateService );
+        final Map<Future<RuleRun>, RuleRun> runs = new LinkedHashMap<>();
+        final long setTimeout = positive( set.getTimeoutMillis() );
+        final long setDeadline = setTimeout > 0 ? System.nanoTime() + MILLISECONDS.toNanos( setTimeout ) : 0;
+        detectOverloadVoid( () -> {
+            for ( String ruleRef : ordered )
+            {
+                final RuleRun run = new RuleRun( ruleRef, ruleScheduler.getExpectedCost( set, ruleRef ),
+                                                 getRuleTimeout( set, ruleRef ) );
+                cancellations.add( run.cancellation );
+                runs.put( svc.submit( () -> {
+                    //RequestContextHelper.setContext( PROMOTION_VALIDATION_RULE, ruleRef );
+                    run.started = System.nanoTime();
+                    try (Cancellation.Scope scope = run.cancellation.enter();
+                         WorkProfile.Scope profile = run.profile.enter())
+                    {
+                        // cancelled before it got here, the request may be closed already
+                        run.cancellation.throwIfCancelled();
+                        executeValidationRule( run, registry, validationRequest, request );
+                    }
+                    catch ( Exception e )
+                    {
+                        run.exception = e;
+                    }
+                    finally
+                    {
+                        run.finished = System.nanoTime();
+                        //RequestContextHelper.clearContext( PROMOTION_VALIDATION_RULE );
+                    }
+                    return run;
+                } ), run );
+            }
+        } );
+
+        final long start = System.nanoTime();
+        final List<String> errors = new ArrayList<>();
+        boolean cancelled = false;
+        try
+        {
+            for ( int i = 0; i < runs.size(); i++ )
+            {
+                final Future<RuleRun> future = takeBeforeTimeout( svc, runs, set, setDeadline, result );
+                if ( future.isCancelled() )
+                {
+                    continue;
+                }
+
+                final RuleRun run = future.get();
+                ruleScheduler.record( run.ruleRef, run.getElapsedMillis() );
+                String outcome = RuleProfiler.OK;
+                if ( run.exception != null )
+                {
+                    logger.error( "Promotion validation failure", run.exception );
+                    errors.add( run.exception.getMessage() );
+                    outcome = RuleProfiler.FAILED;
+                }
+                else if ( isNotEmpty( run.error ) )
+                {
+                    logger.debug( "{} failed with error: {}", run.ruleName, run.error );
+                    result.addValidatorError( run.ruleName, run.error );
+                    outcome = RuleProfiler.ERROR;
+                }
+                ruleProfiler.record( set.getName(), getRuleName( run.ruleRef ), outcome, run.getElapsedMillis(),
+                                     run.profile, run.paths );
+
+                if ( failFast && !cancelled && ( run.exception != null || isNotEmpty( run.error ) ) )
+                {
+                    cancelled = true;
+                    runs.forEach( ( f, r ) -> cancel( f, r, "Cancelled by fail-fast" ) );
+                }
+            }
+        }
+        catch ( InterruptedException | ExecutionException e )
+        {
+            runs.forEach( ( f, r ) -> cancel( f, r, "Validation interrupted" ) );
+            throw new PromotionValidationException( "Failed to execute promotion validations", e );
+        }
+        finally
+        {
+            recordValidation( set, failFast, runs, result );
+            ruleProfiler.recordRuleSet( set.getName(), NANOSECONDS.toMillis( System.nanoTime() - start ) );
+        }
+
+        if ( !errors.isEmpty() )
+        {
+            throw new PromotionValidationException( format( "Failed to do promotion validation: \n\n%s", join( errors, "\n" ) ) );
+        }
+    }
+
+    /**
+     * Wait for the next rule to finish. Rules found over their timeout, or all unfinished rules once the rule-set
+     * timeout runs out, are cancelled meanwhile; their futures are returned as cancelled.
+     */
+    private Future<RuleRun> takeBeforeTimeout( final CompletionService<RuleRun> svc,
+                                               final Map<Future<RuleRun>, RuleRun> runs, final ValidationRuleSet set,
+                                               final long setDeadline, final ValidationResult result )
+            throws InterruptedException
+    {
+        while ( true )
+        {
+            long deadline = setDeadline;
+            for ( Map.Entry<Future<RuleRun>, RuleRun> et : runs.entrySet() )
+            {
+                final RuleRun run = et.getValue();
+                final long ruleDeadline = run.getDeadline();
+                if ( ruleDeadline != 0 && !et.getKey().isDone() && ( deadline == 0 || ruleDeadline < deadline ) )
+                {
+                    deadline = ruleDeadline;
+                }
+            }
+
+            if ( deadline == 0 )
+            {
+                return svc.take();
+            }
+
+            final Future<RuleRun> future = svc.poll( Math.max( 0, deadline - System.nanoTime() ), NANOSECONDS );
+            if ( future != null )
+            {
+                return future;
+            }
+
+            final long now = System.nanoTime();
+            final boolean setTimedOut = setDeadline != 0 && now - setDeadline >= 0;
+            for ( Map.Entry<Future<RuleRun>, RuleRun> et : runs.entrySet() )
+            {
+                final RuleRun run = et.getValue();
+                if ( et.getKey().isDone() )
+                {
+                    continue;
+                }
+                String reason = null;
+                if ( run.getDeadline() != 0 && now - run.getDeadline() >= 0 )
+                {
+                    reason = format( "Rule timed out after %d ms", run.timeout );
+                }
+                else if ( setTimedOut )
+                {
+                    reason = format( "Rule-set timed out after %d ms", set.getTimeoutMillis() );
+                }
+                if ( reason != null )
+                {
+                    logger.warn( "Cancel rule: {}, reason: {}", run.ruleRef, reason );
+                    run.timedOut = true;
+                    cancel( et.getKey(), run, reason );
+                    result.addValidatorError( getRuleName( run.ruleRef ), reason );
+                    if ( run.started != 0 )
+                    {
+                        recordTimeoutWhenIdle( set, run );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Profile a timed-out rule once its threads are out of its cancellation scope. Until then they are still giving up
+     * their work, and their CPU time and calls are not all in the profile.
+     */
+    private void recordTimeoutWhenIdle( final ValidationRuleSet set, final RuleRun run )
+    {
+        run.cancellation.whenIdle( () -> {
+            final long wallMillis = NANOSECONDS.toMillis( System.nanoTime() - run.started );
+            try
+            {
+                ruleProfiler.record( set.getName(), getRuleName( run.ruleRef ), RuleProfiler.TIMEOUT, wallMillis,
+                                     run.profile, run.paths );
+            }
+            catch ( RuntimeException e )
+            {
+                // runs on the last rule thread, which still has the request to release
+                logger.warn( "Failed to profile rule: {}, error: {}", run.ruleRef, e.toString() );
+            }
+        } );
+    }
+
+    /**
+     * Close the request once the threads of all rules are out of their cancellation scopes. Cancelled rules are not
+     * waited for, so their threads may still be reading cached content when the validation returns.
+     */
+    private void closeWhenIdle( final ValidationRequest validationRequest, final List<Cancellation> cancellations )
+    {
+        final AtomicInteger busy = new AtomicInteger( cancellations.size() + 1 );
+        final Runnable release = () -> {
+            if ( busy.decrementAndGet() == 0 )
+            {
+                validationRequest.close();
+            }
+        };
+        cancellations.forEach( c -> c.whenIdle( release ) );
+        release.run();
+    }
+
+    private void cancel( final Future<RuleRun> future, final RuleRun run, final String reason )
+    {
+        run.cancellation.cancel( reason );
+        future.cancel( true );
+    }
+
+    private long getRuleTimeout( final ValidationRuleSet set, final String ruleRef )
+    {
+        Long timeout = set.getRuleTimeout( ruleRef );
+        if ( timeout == null )
+        {
+            timeout = set.getRuleTimeout( getRuleName( ruleRef ) );
+        }
+        return positive( timeout );
+    }
+
+    private String getRuleName( final String ruleRef )
+    {
+        return validationsManager.normalizeRuleName( new File( ruleRef ).getName() );
+    }
+
+    private static long positive( final Long millis )
+    {
+        return millis == null || millis < 0 ? 0 : millis;
+    }
+
+    private void recordValidation( final ValidationRuleSet set, final boolean failFast,
+                                   final Map<Future<RuleRun>, RuleRun> runs, final ValidationResult result )
+    {
+        final List<String> cancelledRules = new ArrayList<>();
+        long saved = 0;
+        for ( Map.Entry<Future<RuleRun>, RuleRun> et : runs.entrySet() )
+        {
+            if ( et.getKey().isCancelled() && !et.getValue().timedOut )
+            {
+                cancelledRules.add( et.getValue().ruleRef );
+                saved += et.getValue().getSavedMillis();
+            }
+        }
+        if ( !cancelledRules.isEmpty() )
+        {
+            result.setCancelledRules( cancelledRules );
+        }
+        ruleScheduler.recordValidation( set.getName(), failFast, cancelledRules.size(), saved );
+    }
+
+    private void executeValidationRule( final RuleRun run, final ValidationRegistry registry,
+                                        final ValidationRequest validationRequest, final PromoteRequest request )
             throws PromotionValidationException
     {
-        String ruleName = validationsManager.normalizeRuleName( new File( ruleRef ).getName() );
-        ValidationRuleMapping rule = validationsManager.getRuleMappingNamed( ruleName );
+        String ruleName = getRuleName( run.ruleRef );
+        ValidationRuleMapping rule = registry.getRuleMappingNamed( ruleName );
         if ( rule != null )
         {
             logger.debug( "Running promotion validation rule: {}", rule.getName() );
+            run.ruleName = rule.getName();
             String error = null;
             {
                 try
                 {
                     error = rule.getRule().validate( validationRequest );
+                    run.paths = validationRequest.getPathIndex().getSourcePathsView().size();
                 }
                 catch ( Exception e )
                 {
@@ -223,8 +470,7 @@ public class PromotionValidator
 
             if ( isNotEmpty( error ) )
             {
-                logger.debug( "{} failed with error: {}", rule.getName(), error );
-                result.addValidatorError( rule.getName(), error );
+                run.error = error;
             }
             else
             {
@@ -233,6 +479,67 @@ public class PromotionValidator
         }
     }
 
+    /**
+     * Outcome of one rule, written by the rule thread and read by the caller once the future is done.
+     */
+    private static final class RuleRun
+    {
+        final String ruleRef;
+
+        final long expectedCost;
+
+        final long timeout;
+
+        final Cancellation cancellation = new Cancellation();
+
+        final WorkProfile profile = new WorkProfile();
+
+        volatile int paths;
+
+        volatile long started;
+
+        volatile boolean timedOut;
+
+        volatile long finished;
+
+        String ruleName;
+
+        String error;
+
+        Exception exception;
+
+        RuleRun( String ruleRef, long expectedCost, long timeout )
+        {
+            this.ruleRef = ruleRef;
+            this.expectedCost = expectedCost;
+            this.timeout = timeout;
+        }
+
+        /**
+         * @return nanoTime when the rule runs out of time, 0 if it has no timeout or has not started.
+         */
+        long getDeadline()
+        {
+            long s = started;
+            return timeout == 0 || s == 0 ? 0 : s + MILLISECONDS.toNanos( timeout );
+        }
+
+        long getElapsedMillis()
+        {
+            return NANOSECONDS.toMillis( finished - started );
+        }
+
+        long getSavedMillis()
+        {
+            if ( expectedCost == RuleScheduler.UNKNOWN_COST )
+            {
+                return 0;
+            }
+            long spent = started == 0 ? 0 : NANOSECONDS.toMillis( System.nanoTime() - started );
+            return Math.max( 0, expectedCost - spent );
+        }
+    }
+
     private void throwValidationException( Exception e, ValidationRuleMapping rule, PromoteRequest request )
             throws PromotionValidationException
     {
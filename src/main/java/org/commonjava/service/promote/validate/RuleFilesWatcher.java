@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Watch the rule dirs under the data dir and call back when files in them change. Events are collected until the dirs
+ * are quiet for a while, so copying a bunch of files triggers one reload. The base dir is watched too, in order to
+ * pick up a rule dir created after boot.
+ */
+final class RuleFilesWatcher
+        implements Runnable, Closeable
+{
+    private static final long QUIET_MILLIS = 500;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final WatchService watchService;
+
+    private final Path baseDir;
+
+    private final Set<Path> dirNames = new HashSet<>();
+
+    private final Runnable onChange;
+
+    RuleFilesWatcher( final File baseDir, final Collection<String> dirNames, final Runnable onChange )
+            throws IOException
+    {
+        this.baseDir = baseDir.toPath();
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        dirNames.forEach( n -> this.dirNames.add( this.baseDir.getFileSystem().getPath( n ) ) );
+
+        if ( baseDir.isDirectory() )
+        {
+            this.baseDir.register( watchService, ENTRY_CREATE, ENTRY_DELETE );
+        }
+        else
+        {
+            logger.warn( "Data dir {} not exists, rule changes will not be picked up until restart", baseDir );
+        }
+        for ( Path name : this.dirNames )
+        {
+            register( this.baseDir.resolve( name ) );
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            while ( true )
+            {
+                boolean changed = handle( watchService.take() );
+                WatchKey next;
+                while ( ( next = watchService.poll( QUIET_MILLIS, MILLISECONDS ) ) != null )
+                {
+                    changed |= handle( next );
+                }
+
+                if ( changed )
+                {
+                    try
+                    {
+                        onChange.run();
+                    }
+                    catch ( Exception e )
+                    {
+                        logger.error( "Failed to reload validation rules", e );
+                    }
+                }
+            }
+        }
+        catch ( ClosedWatchServiceException e )
+        {
+            logger.info( "Rule files watcher stopped" );
+        }
+        catch ( InterruptedException e )
+        {
+            logger.info( "Rule files watcher interrupted" );
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        watchService.close();
+    }
+
+    private boolean handle( final WatchKey key )
+    {
+        boolean changed = false;
+        final Path dir = (Path) key.watchable();
+        for ( WatchEvent<?> event : key.pollEvents() )
+        {
+            if ( !dir.equals( baseDir ) )
+            {
+                changed = true;
+                continue;
+            }
+
+            // only the rule dirs matter in the base dir
+            Object name = event.context();
+            if ( name == null || dirNames.contains( name ) )
+            {
+                changed = true;
+                if ( name != null && event.kind() == ENTRY_CREATE )
+                {
+                    register( baseDir.resolve( (Path) name ) );
+                }
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void register( final Path dir )
+    {
+        if ( !dir.toFile().isDirectory() )
+        {
+            return;
+        }
+        try
+        {
+            dir.register( watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE );
+            logger.info( "Watching {} for rule changes", dir );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to watch {}, error: {}", dir, e.toString() );
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import org.commonjava.service.promote.config.PromoteConfig;
+import org.commonjava.service.promote.util.SlidingHistogram;
+import org.commonjava.service.promote.util.WorkProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Profile of the validation rules: wall time, CPU time (of all threads working for the rule), loop items and remote
+ * calls of each run. Sliding-window histograms are kept per rule and per rule-set and served by the admin resource,
+ * together with the recent outliers, i.e., runs much slower than usual for their rule. The same figures are also
+ * exported as OpenTelemetry metrics.
+ */
+@ApplicationScoped
+public class RuleProfiler
+{
+    public static final String OK = "ok";
+
+    public static final String ERROR = "error";
+
+    public static final String FAILED = "failed";
+
+    public static final String TIMEOUT = "timeout";
+
+    // a run is an outlier if it took this many times the median of its rule
+    static final int OUTLIER_FACTOR = 3;
+
+    // median is not trusted before this many runs in the window
+    static final int OUTLIER_MIN_RUNS = 10;
+
+    static final int MAX_OUTLIERS = 50;
+
+    private static final int SLICES = 15;
+
+    private static final AttributeKey<String> RULE = AttributeKey.stringKey( "rule" );
+
+    private static final AttributeKey<String> RULE_SET = AttributeKey.stringKey( "rule_set" );
+
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey( "outcome" );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    PromoteConfig config;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    private long windowMillis = TimeUnit.MINUTES.toMillis( 15 );
+
+    private final Map<String, RuleStats> rules = new ConcurrentHashMap<>();
+
+    private final Map<String, SlidingHistogram> ruleSets = new ConcurrentHashMap<>();
+
+    private final Deque<Map<String, Object>> outliers = new ArrayDeque<>();
+
+    private LongHistogram wallMetric;
+
+    private LongHistogram cpuMetric;
+
+    private LongCounter remoteCallsMetric;
+
+    private LongCounter itemsMetric;
+
+    private LongHistogram ruleSetWallMetric;
+
+    protected RuleProfiler()
+    {
+    }
+
+    public RuleProfiler( long windowMillis, OpenTelemetry openTelemetry )
+    {
+        this.windowMillis = windowMillis;
+        this.openTelemetry = openTelemetry;
+        initMetrics();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        windowMillis = TimeUnit.MINUTES.toMillis( config.ruleProfileWindowMinutes() );
+        initMetrics();
+    }
+
+    private void initMetrics()
+    {
+        final Meter meter = openTelemetry.getMeter( "promote-validation" );
+        wallMetric = meter.histogramBuilder( "promote.validation.rule.duration" )
+                          .setDescription( "Wall time of validation rules" )
+                          .setUnit( "ms" )
+                          .ofLongs()
+                          .build();
+        cpuMetric = meter.histogramBuilder( "promote.validation.rule.cpu" )
+                         .setDescription( "CPU time of the threads working for validation rules" )
+                         .setUnit( "ms" )
+                         .ofLongs()
+                         .build();
+        remoteCallsMetric = meter.counterBuilder( "promote.validation.rule.remote_calls" )
+                                 .setDescription( "Remote calls made by validation rules through the tools" )
+                                 .build();
+        itemsMetric = meter.counterBuilder( "promote.validation.rule.items" )
+                           .setDescription( "Items handled by the parallel loops of validation rules" )
+                           .build();
+        ruleSetWallMetric = meter.histogramBuilder( "promote.validation.rule_set.duration" )
+                                 .setDescription( "Wall time of validations, all rules of the rule-set" )
+                                 .setUnit( "ms" )
+                                 .ofLongs()
+                                 .build();
+    }
+
+    /**
+     * Record a rule run.
+     * @param outcome {@link #OK}, {@link #ERROR} (the rule reported errors), {@link #FAILED} (the rule threw) or
+     * {@link #TIMEOUT}
+     * @param paths source paths of the validation
+     */
+    public void record( final String ruleSet, final String rule, final String outcome, final long wallMillis,
+                        final WorkProfile profile, final int paths )
+    {
+        final long now = System.currentTimeMillis();
+        final long cpuMillis = NANOSECONDS.toMillis( profile.getCpuNanos() );
+        final RuleStats stats = rules.computeIfAbsent( rule, k -> new RuleStats() );
+
+        final SlidingHistogram.Snapshot usual = stats.wall.snapshot( now );
+        final boolean outlier = TIMEOUT.equals( outcome ) || ( usual.getCount() >= OUTLIER_MIN_RUNS
+                && wallMillis > OUTLIER_FACTOR * Math.max( 1, usual.getPercentile( 0.5 ) ) );
+
+        stats.wall.record( wallMillis, now );
+        stats.cpu.record( cpuMillis, now );
+        stats.remoteCalls.record( profile.getRemoteCalls(), now );
+        stats.outcomes.computeIfAbsent( outcome, k -> new AtomicLong() ).incrementAndGet();
+        stats.items.addAndGet( profile.getItems() );
+        stats.paths.addAndGet( paths );
+
+        final Attributes attributes = Attributes.of( RULE, rule, RULE_SET, ruleSet, OUTCOME, outcome );
+        wallMetric.record( wallMillis, attributes );
+        cpuMetric.record( cpuMillis, attributes );
+        remoteCallsMetric.add( profile.getRemoteCalls(), attributes );
+        itemsMetric.add( profile.getItems(), attributes );
+
+        logger.debug( "Rule profile, rule: {}, rule-set: {}, outcome: {}, wall: {}ms, cpu: {}ms, paths: {}, items: {}, "
+                              + "remote calls: {}", rule, ruleSet, outcome, wallMillis, cpuMillis, paths,
+                      profile.getItems(), profile.getRemoteCalls() );
+
+        if ( outlier )
+        {
+            final Map<String, Object> o = new LinkedHashMap<>();
+            o.put( "time", now );
+            o.put( "rule", rule );
+            o.put( "ruleSet", ruleSet );
+            o.put( "outcome", outcome );
+            o.put( "wallMillis", wallMillis );
+            o.put( "usualMillis", usual.getPercentile( 0.5 ) );
+            o.put( "cpuMillis", cpuMillis );
+            o.put( "paths", paths );
+            o.put( "items", profile.getItems() );
+            o.put( "remoteCalls", profile.getRemoteCalls() );
+            logger.info( "Slow validation rule: {}", o );
+            synchronized ( outliers )
+            {
+                outliers.addFirst( o );
+                if ( outliers.size() > MAX_OUTLIERS )
+                {
+                    outliers.removeLast();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a validation, i.e., all the rules of the rule-set.
+     */
+    public void recordRuleSet( final String ruleSet, final long wallMillis )
+    {
+        ruleSets.computeIfAbsent( ruleSet, k -> new SlidingHistogram( windowMillis, SLICES ) )
+                .record( wallMillis, System.currentTimeMillis() );
+        ruleSetWallMetric.record( wallMillis, Attributes.of( RULE_SET, ruleSet ) );
+    }
+
+    /**
+     * @return the rules slowest first (by p95 wall time in the window), the rule-sets and the recent outliers.
+     */
+    public Map<String, Object> getStats()
+    {
+        final long now = System.currentTimeMillis();
+        final List<Map<String, Object>> slowest = new ArrayList<>();
+        rules.forEach( ( name, stats ) -> {
+            final SlidingHistogram.Snapshot wall = stats.wall.snapshot( now );
+            if ( wall.getCount() == 0 )
+            {
+                return;
+            }
+            final Map<String, Object> r = new LinkedHashMap<>();
+            r.put( "rule", name );
+            r.put( "wallMillis", wall.toMap() );
+            r.put( "cpuMillis", stats.cpu.snapshot( now ).toMap() );
+            r.put( "remoteCalls", stats.remoteCalls.snapshot( now ).toMap() );
+            final Map<String, Long> outcomes = new TreeMap<>();
+            stats.outcomes.forEach( ( k, v ) -> outcomes.put( k, v.get() ) );
+            r.put( "outcomes", outcomes );
+            r.put( "paths", stats.paths.get() );
+            r.put( "items", stats.items.get() );
+            slowest.add( r );
+        } );
+        slowest.sort( Comparator.comparingLong( ( Map<String, Object> r ) -> getP95( r ) ).reversed() );
+
+        final Map<String, Object> sets = new TreeMap<>();
+        ruleSets.forEach( ( name, h ) -> sets.put( name, h.snapshot( now ).toMap() ) );
+
+        final Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put( "windowMinutes", TimeUnit.MILLISECONDS.toMinutes( windowMillis ) );
+        ret.put( "slowestRules", slowest );
+        ret.put( "ruleSets", sets );
+        synchronized ( outliers )
+        {
+            ret.put( "outliers", new ArrayList<>( outliers ) );
+        }
+        return ret;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static long getP95( Map<String, Object> rule )
+    {
+        return (Long) ( (Map<String, Object>) rule.get( "wallMillis" ) ).get( "p95" );
+    }
+
+    private final class RuleStats
+    {
+        final SlidingHistogram wall = new SlidingHistogram( windowMillis, SLICES );
+
+        final SlidingHistogram cpu = new SlidingHistogram( windowMillis, SLICES );
+
+        final SlidingHistogram remoteCalls = new SlidingHistogram( windowMillis, SLICES );
+
+        final Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+
+        final AtomicLong items = new AtomicLong();
+
+        final AtomicLong paths = new AtomicLong();
+    }
+}
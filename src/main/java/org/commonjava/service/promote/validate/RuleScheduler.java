@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.service.promote.model.PromoteRequest;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decide the order in which the rules of a rule-set start, and whether the validation fails fast.
+ *
+ * The cost of a rule is its expected run time in millis, declared in the rule-set ('ruleCosts') or measured from
+ * previous runs on this node. Cheap rules start first so their errors come early; rules with unknown cost start last,
+ * in rule-set order. In fail-fast mode (set on the rule-set, overridden by the promote request) the rules still
+ * running are cancelled once any rule reports errors, and the expected time of the cancelled rules is counted as
+ * saved.
+ */
+@ApplicationScoped
+public class RuleScheduler
+{
+    static final long UNKNOWN_COST = Long.MAX_VALUE;
+
+    // weight of the latest run in the measured cost
+    private static final double SMOOTHING = 0.2;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<String, Long> measuredCosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong validations = new AtomicLong();
+
+    private final AtomicLong failFastValidations = new AtomicLong();
+
+    private final AtomicLong cancelledRules = new AtomicLong();
+
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    public boolean isFailFast( final ValidationRuleSet ruleSet, final PromoteRequest request )
+    {
+        if ( request.getFailFast() != null )
+        {
+            return request.getFailFast();
+        }
+        return ruleSet.getFailFast() != null && ruleSet.getFailFast();
+    }
+
+    /**
+     * @return the rule refs ordered by expected cost, cheapest first.
+     */
+    public List<String> order( final ValidationRuleSet ruleSet, final List<String> ruleRefs )
+    {
+        final List<String> ret = new ArrayList<>( ruleRefs );
+        // stable, rules of the same cost keep the rule-set order
+        ret.sort( Comparator.comparingLong( ref -> getExpectedCost( ruleSet, ref ) ) );
+        return ret;
+    }
+
+    /**
+     * @return the expected run time in millis, or {@link #UNKNOWN_COST} if it is neither declared nor measured.
+     */
+    public long getExpectedCost( final ValidationRuleSet ruleSet, final String ruleRef )
+    {
+        Long declared = ruleSet.getRuleCost( ruleRef );
+        if ( declared == null )
+        {
+            declared = ruleSet.getRuleCost( normalize( ruleRef ) );
+        }
+        if ( declared != null )
+        {
+            return declared;
+        }
+        return measuredCosts.getOrDefault( normalize( ruleRef ), UNKNOWN_COST );
+    }
+
+    /**
+     * Record the run time of a rule which finished normally.
+     */
+    public void record( final String ruleRef, final long millis )
+    {
+        measuredCosts.merge( normalize( ruleRef ), millis,
+                             ( old, latest ) -> Math.round( old * ( 1 - SMOOTHING ) + latest * SMOOTHING ) );
+    }
+
+    /**
+     * Record a finished validation.
+     * @param cancelled rules cancelled by fail-fast
+     * @param saved expected millis of the cancelled rules which were not spent
+     */
+    public void recordValidation( final String ruleSet, final boolean failFast, final int cancelled, final long saved )
+    {
+        validations.incrementAndGet();
+        if ( failFast )
+        {
+            failFastValidations.incrementAndGet();
+        }
+        if ( cancelled > 0 )
+        {
+            cancelledRules.addAndGet( cancelled );
+            savedMillis.addAndGet( saved );
+            logger.info( "Fail-fast validation, rule-set: {}, cancelled rules: {}, saved millis: {}", ruleSet,
+                         cancelled, saved );
+        }
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put( "validations", validations.get() );
+        ret.put( "failFastValidations", failFastValidations.get() );
+        ret.put( "cancelledRules", cancelledRules.get() );
+        ret.put( "savedMillis", savedMillis.get() );
+        ret.put( "measuredCostMillis", new TreeMap<>( measuredCosts ) );
+        return ret;
+    }
+
+    private static String normalize( final String ruleRef )
+    {
+        String name = ruleRef.substring( ruleRef.lastIndexOf( '/' ) + 1 );
+        return name.endsWith( ".groovy" ) ? name.substring( 0, name.length() - ".groovy".length() ) : name;
+    }
+}
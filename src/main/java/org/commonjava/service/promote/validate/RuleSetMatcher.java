@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Find the rule-set whose storeKeyPattern matches a store key. Patterns are compiled once, patterns without regex
+ * meta characters (e.g., 'maven:hosted:pnc-builds') are looked up in a hash map, and results are remembered per store
+ * key. A matcher belongs to one {@link ValidationRegistry}, so the memo goes away with the registry when rules are
+ * reloaded.
+ *
+ * As before, both the key and its deprecated form ('hosted:name') are checked, and the first rule-set in the
+ * registry order that matches wins.
+ */
+final class RuleSetMatcher
+{
+    // Bound the memo in case of many short-lived stores, e.g., temp build repos
+    static final int MAX_MEMO_SIZE = 10000;
+
+    private static final String REGEX_META_CHARS = "\\[](){}.*+?^$|";
+
+    private static final Object NO_MATCH = new Object();
+
+    private final Map<String, Integer> literals = new HashMap<>();
+
+    private final List<Candidate> patterns = new ArrayList<>();
+
+    private final List<ValidationRuleSet> ruleSets = new ArrayList<>();
+
+    private final Map<StoreKey, Object> memo = new ConcurrentHashMap<>();
+
+    RuleSetMatcher( final Iterable<ValidationRuleSet> ordered )
+    {
+        for ( ValidationRuleSet ruleSet : ordered )
+        {
+            final int order = ruleSets.size();
+            ruleSets.add( ruleSet );
+
+            final String pattern = ruleSet.getStoreKeyPattern();
+            if ( isLiteral( pattern ) )
+            {
+                literals.putIfAbsent( pattern, order );
+            }
+            else
+            {
+                patterns.add( new Candidate( order, pattern == null ? null : Pattern.compile( pattern ) ) );
+            }
+        }
+    }
+
+    ValidationRuleSet match( final StoreKey storeKey )
+    {
+        Object ret = memo.get( storeKey );
+        if ( ret == null )
+        {
+            ret = find( storeKey );
+            if ( memo.size() >= MAX_MEMO_SIZE )
+            {
+                memo.clear();
+            }
+            memo.put( storeKey, ret == null ? NO_MATCH : ret );
+        }
+        return ret == NO_MATCH ? null : (ValidationRuleSet) ret;
+    }
+
+    private ValidationRuleSet find( final StoreKey storeKey )
+    {
+        final String key = storeKey.toString();
+        final String deprecatedKey =
+                String.format( "%s:%s", storeKey.getType().singularEndpointName(), storeKey.getName() );
+
+        int best = Integer.MAX_VALUE;
+        Integer literal = literals.get( key );
+        if ( literal != null )
+        {
+            best = literal;
+        }
+        literal = literals.get( deprecatedKey );
+        if ( literal != null && literal < best )
+        {
+            best = literal;
+        }
+
+        // patterns are in registry order, so the first hit is the only one that can beat a literal
+        for ( Candidate candidate : patterns )
+        {
+            if ( candidate.order >= best )
+            {
+                break;
+            }
+            if ( candidate.matches( key ) || candidate.matches( deprecatedKey ) )
+            {
+                best = candidate.order;
+                break;
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : ruleSets.get( best );
+    }
+
+    static boolean isLiteral( final String pattern )
+    {
+        if ( pattern == null )
+        {
+            return false;
+        }
+        for ( int i = 0; i < pattern.length(); i++ )
+        {
+            if ( REGEX_META_CHARS.indexOf( pattern.charAt( i ) ) >= 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Candidate
+    {
+        final int order;
+
+        // null matches everything, same as a rule-set without storeKeyPattern
+        final Pattern pattern;
+
+        Candidate( int order, Pattern pattern )
+        {
+            this.order = order;
+            this.pattern = pattern;
+        }
+
+        boolean matches( String key )
+        {
+            return pattern == null || pattern.matcher( key ).matches();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.util.ArtifactPathInfo;
+import org.commonjava.indy.pkg.npm.content.PackagePath;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.commonjava.service.promote.core.PromotionHelper.isChecksumPredicate;
+import static org.commonjava.service.promote.core.PromotionHelper.isMetadataPredicate;
+import static org.commonjava.service.promote.util.PackageTypeConstants.PKG_TYPE_NPM;
+
+/**
+ * The paths of a promote request, parsed once per validation. Each path is classified as metadata / checksum, and
+ * other paths are parsed into a Maven artifact (GAV, classifier, type) or, for npm stores, an npm package path.
+ *
+ * The filtered path sets and the facet lists are built in the constructor and never change, so they can be read from
+ * any thread and the lists iterated by index. The view methods return those sets themselves;
+ * {@link #getSourcePaths(boolean, boolean)} returns a copy the caller may change.
+ */
+public final class SourcePathIndex
+{
+    private final Map<String, PathEntry> entries;
+
+    // paths without metadata and checksums, which is what rules check by default
+    private final List<PathEntry> sourceEntries;
+
+    private final List<PathEntry> artifacts;
+
+    private final List<PathEntry> poms;
+
+    private final List<PathEntry> npmPackages;
+
+    private final Set<String> sourcePaths;
+
+    private final Set<String> sourcePathsWithMetadata;
+
+    private final Set<String> sourcePathsWithChecksums;
+
+    private final Set<String> allPaths;
+
+    private final Set<String> artifactPaths;
+
+    SourcePathIndex( final Collection<String> paths, final String packageType )
+    {
+        final boolean npm = PKG_TYPE_NPM.equals( packageType );
+        final Predicate<String> isMetadata = isMetadataPredicate();
+        final Predicate<String> isChecksum = isChecksumPredicate();
+
+        final Map<String, PathEntry> entries = new HashMap<>();
+        final List<PathEntry> sourceEntries = new ArrayList<>();
+        final List<PathEntry> artifacts = new ArrayList<>();
+        final List<PathEntry> poms = new ArrayList<>();
+        final List<PathEntry> npmPackages = new ArrayList<>();
+        final Set<String> sourcePaths = new HashSet<>();
+        final Set<String> withMetadata = new HashSet<>();
+        final Set<String> withChecksums = new HashSet<>();
+        final Set<String> artifactPaths = new HashSet<>();
+
+        for ( String path : paths )
+        {
+            final PathEntry entry = new PathEntry( path, isMetadata.test( path ), isChecksum.test( path ), npm );
+            entries.put( path, entry );
+            if ( !entry.checksum )
+            {
+                withMetadata.add( path );
+            }
+            if ( !entry.metadata )
+            {
+                withChecksums.add( path );
+            }
+            if ( entry.metadata || entry.checksum )
+            {
+                continue;
+            }
+
+            sourceEntries.add( entry );
+            sourcePaths.add( path );
+            if ( entry.artifact != null )
+            {
+                artifacts.add( entry );
+                artifactPaths.add( path );
+            }
+            if ( entry.isPom() )
+            {
+                poms.add( entry );
+            }
+            if ( entry.npmPackage != null )
+            {
+                npmPackages.add( entry );
+            }
+        }
+
+        this.entries = Collections.unmodifiableMap( entries );
+        this.sourceEntries = Collections.unmodifiableList( sourceEntries );
+        this.artifacts = Collections.unmodifiableList( artifacts );
+        this.poms = Collections.unmodifiableList( poms );
+        this.npmPackages = Collections.unmodifiableList( npmPackages );
+        this.sourcePaths = Collections.unmodifiableSet( sourcePaths );
+        this.sourcePathsWithMetadata = Collections.unmodifiableSet( withMetadata );
+        this.sourcePathsWithChecksums = Collections.unmodifiableSet( withChecksums );
+        this.allPaths = Collections.unmodifiableSet( entries.keySet() );
+        this.artifactPaths = Collections.unmodifiableSet( artifactPaths );
+    }
+
+    /**
+     * @return a new mutable set of the paths, optionally with the metadata and / or checksum paths.
+     */
+    public Set<String> getSourcePaths( final boolean includeMetadata, final boolean includeChecksums )
+    {
+        return new HashSet<>( getSourcePathsView( includeMetadata, includeChecksums ) );
+    }
+
+    public Set<String> getSourcePaths()
+    {
+        return new HashSet<>( sourcePaths );
+    }
+
+    /**
+     * @return the shared, unmodifiable set of the paths, optionally with the metadata and / or checksum paths.
+     */
+    public Set<String> getSourcePathsView( final boolean includeMetadata, final boolean includeChecksums )
+    {
+        if ( includeMetadata )
+        {
+            return includeChecksums ? allPaths : sourcePathsWithMetadata;
+        }
+        return includeChecksums ? sourcePathsWithChecksums : sourcePaths;
+    }
+
+    public Set<String> getSourcePathsView()
+    {
+        return sourcePaths;
+    }
+
+    /**
+     * @return the entry of any path of the request, or null if the path is not in the request.
+     */
+    public PathEntry get( final String path )
+    {
+        return entries.get( path );
+    }
+
+    /**
+     * @return entries of {@link #getSourcePathsView()}.
+     */
+    public List<PathEntry> getEntries()
+    {
+        return sourceEntries;
+    }
+
+    /**
+     * @return entries which parse into a Maven artifact.
+     */
+    public List<PathEntry> getArtifacts()
+    {
+        return artifacts;
+    }
+
+    public Set<String> getArtifactPaths()
+    {
+        return artifactPaths;
+    }
+
+    /**
+     * @return entries ending with '.pom', whether or not they parse into an artifact.
+     */
+    public List<PathEntry> getPoms()
+    {
+        return poms;
+    }
+
+    /**
+     * @return entries which parse into an npm package path (tarballs).
+     */
+    public List<PathEntry> getNpmPackages()
+    {
+        return npmPackages;
+    }
+
+    public static final class PathEntry
+    {
+        private final String path;
+
+        private final boolean metadata;
+
+        private final boolean checksum;
+
+        private final ArtifactPathInfo pathInfo;
+
+        private final ArtifactRef artifact;
+
+        private final PackagePath npmPackage;
+
+        private final boolean parsedAsMaven;
+
+        private PathEntry( final String path, final boolean metadata, final boolean checksum, final boolean npm )
+        {
+            this.path = path;
+            this.metadata = metadata;
+            this.checksum = checksum;
+            // metadata and checksum paths are not artifacts, don't bother parsing them
+            final boolean parse = !metadata && !checksum;
+            this.parsedAsMaven = parse && !npm;
+            this.pathInfo = parsedAsMaven ? ArtifactPathInfo.parse( path ) : null;
+            this.artifact = pathInfo == null ? null : pathInfo.getArtifact();
+            this.npmPackage = parse && npm ? PackagePath.parse( path ).orElse( null ) : null;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public boolean isMetadata()
+        {
+            return metadata;
+        }
+
+        public boolean isChecksum()
+        {
+            return checksum;
+        }
+
+        public boolean isPom()
+        {
+            return path.endsWith( ".pom" );
+        }
+
+        /**
+         * @return the parsed Maven path (GAV, classifier, type, snapshot), or null.
+         */
+        public ArtifactPathInfo getPathInfo()
+        {
+            return pathInfo;
+        }
+
+        public ArtifactRef getArtifact()
+        {
+            return artifact;
+        }
+
+        public PackagePath getNpmPackage()
+        {
+            return npmPackage;
+        }
+
+        /**
+         * Whether {@link #getArtifact()} is the parsed result, rather than null because the path was not parsed.
+         */
+        boolean isParsedAsMaven()
+        {
+            return parsedAsMaven;
+        }
+
+        @Override
+        public String toString()
+        {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Check that a package.json is well-formed JSON with an object root, reading it token by token instead of binding
+ * PackageMetadata. Only the fields of {@link PackageJsonSummary} are kept, the rest of the document is skipped without
+ * building strings or objects, so memory does not grow with the number of versions.
+ *
+ * The fields that are kept are type checked: name is a string, dist-tags an object of strings, and versions an object
+ * of objects. Other fields are only checked for syntax.
+ */
+public final class StreamingPackageJsonChecker
+{
+    private static final String NAME = "name";
+
+    private static final String DIST_TAGS = "dist-tags";
+
+    private static final String VERSIONS = "versions";
+
+    private StreamingPackageJsonChecker()
+    {
+    }
+
+    public static PackageJsonSummary check( final JsonFactory factory, final InputStream in )
+            throws IOException
+    {
+        try (JsonParser parser = factory.createParser( in ))
+        {
+            expect( parser, parser.nextToken(), JsonToken.START_OBJECT, "package.json" );
+
+            String name = null;
+            final Map<String, String> distTags = new LinkedHashMap<>();
+            final List<String> versions = new ArrayList<>();
+            while ( parser.nextToken() == JsonToken.FIELD_NAME )
+            {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if ( NAME.equals( field ) )
+                {
+                    name = value == JsonToken.VALUE_NULL ? null : readString( parser, value, field );
+                }
+                else if ( DIST_TAGS.equals( field ) )
+                {
+                    expect( parser, value, JsonToken.START_OBJECT, field );
+                    while ( parser.nextToken() == JsonToken.FIELD_NAME )
+                    {
+                        final String tag = parser.getCurrentName();
+                        distTags.put( tag, readString( parser, parser.nextToken(), field + "." + tag ) );
+                    }
+                }
+                else if ( VERSIONS.equals( field ) )
+                {
+                    expect( parser, value, JsonToken.START_OBJECT, field );
+                    while ( parser.nextToken() == JsonToken.FIELD_NAME )
+                    {
+                        final String version = parser.getCurrentName();
+                        expect( parser, parser.nextToken(), JsonToken.START_OBJECT, field + "." + version );
+                        parser.skipChildren();
+                        versions.add( version );
+                    }
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+            }
+
+            if ( parser.nextToken() != null )
+            {
+                throw new JsonParseException( parser, "Unexpected content after the package.json object" );
+            }
+            return new PackageJsonSummary( name, distTags, versions );
+        }
+    }
+
+    private static String readString( final JsonParser parser, final JsonToken token, final String field )
+            throws IOException
+    {
+        expect( parser, token, JsonToken.VALUE_STRING, field );
+        return parser.getText();
+    }
+
+    private static void expect( final JsonParser parser, final JsonToken token, final JsonToken expected,
+                                final String field )
+            throws JsonParseException
+    {
+        if ( token != expected )
+        {
+            throw new JsonParseException( parser, String.format( "Expected %s for '%s' but found %s", expected, field,
+                                                                 token ) );
+        }
+    }
+}
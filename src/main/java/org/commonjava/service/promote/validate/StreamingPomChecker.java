@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.codehaus.plexus.util.xml.pull.EntityReplacementMap;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Check that a POM is well-formed XML with a 'project' root and the required coordinates, reading it with a pull
+ * parser instead of building the Maven model. Nothing but the coordinates is kept, so memory does not grow with the
+ * size of the POM (big BOMs have thousands of dependencyManagement entries).
+ *
+ * The coordinates are artifactId of the project, and groupId and version of the project or else of its parent.
+ * Unlike MavenXpp3Reader in strict mode, unknown elements are not rejected, while missing coordinates are; that is why
+ * readLocalPom only uses it when promote.rules.streamingPomCheck is on.
+ */
+public final class StreamingPomChecker
+{
+    private static final String PROJECT = "project";
+
+    private static final String PARENT = "parent";
+
+    private static final String GROUP_ID = "groupId";
+
+    private static final String ARTIFACT_ID = "artifactId";
+
+    private static final String VERSION = "version";
+
+    private StreamingPomChecker()
+    {
+    }
+
+    public static void check( final InputStream in )
+            throws IOException, XmlPullParserException, PromotionValidationException
+    {
+        // same entities as MavenXpp3Reader, POMs do use &nbsp; and friends
+        final MXParser parser = new MXParser( EntityReplacementMap.defaultEntityReplacementMap );
+        parser.setInput( in, null );
+
+        final String[] project = new String[3];
+        final String[] parent = new String[3];
+        boolean inParent = false;
+
+        int event = parser.getEventType();
+        while ( event != XmlPullParser.END_DOCUMENT )
+        {
+            if ( event == XmlPullParser.START_TAG )
+            {
+                final int depth = parser.getDepth();
+                final String name = parser.getName();
+                if ( depth == 1 && !PROJECT.equals( name ) )
+                {
+                    throw new XmlPullParserException( "Expected root element 'project' but found '" + name + "'",
+                                                      parser, null );
+                }
+                else if ( depth == 2 && PARENT.equals( name ) )
+                {
+                    inParent = true;
+                }
+                else if ( depth == 2 )
+                {
+                    readCoordinate( parser, name, project );
+                }
+                else if ( depth == 3 && inParent )
+                {
+                    readCoordinate( parser, name, parent );
+                }
+            }
+            else if ( event == XmlPullParser.END_TAG && parser.getDepth() == 2 && PARENT.equals( parser.getName() ) )
+            {
+                inParent = false;
+            }
+            event = parser.next();
+        }
+
+        final List<String> missing = new ArrayList<>();
+        if ( project[0] == null && parent[0] == null )
+        {
+            missing.add( GROUP_ID );
+        }
+        if ( project[1] == null )
+        {
+            missing.add( ARTIFACT_ID );
+        }
+        if ( project[2] == null && parent[2] == null )
+        {
+            missing.add( VERSION );
+        }
+        if ( !missing.isEmpty() )
+        {
+            throw new PromotionValidationException( "Missing required coordinates: " + String.join( ", ", missing ) );
+        }
+    }
+
+    /**
+     * If the element is a coordinate, read it into coords[groupId, artifactId, version]. This moves the parser to the
+     * end tag of the element.
+     */
+    private static void readCoordinate( final XmlPullParser parser, final String name, final String[] coords )
+            throws IOException, XmlPullParserException
+    {
+        final int idx = GROUP_ID.equals( name ) ? 0 : ARTIFACT_ID.equals( name ) ? 1 : VERSION.equals( name ) ? 2 : -1;
+        if ( idx < 0 )
+        {
+            return;
+        }
+        if ( coords[idx] != null )
+        {
+            throw new XmlPullParserException( "Duplicated tag: '" + name + "'", parser, null );
+        }
+        final String value = parser.nextText().trim();
+        coords[idx] = value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the loaded rules and rule-sets. {@link PromoteValidationsManager} publishes a new snapshot
+ * when the rule files change, a validation uses the snapshot it started with until it is done.
+ */
+public final class ValidationRegistry
+{
+    static final ValidationRegistry EMPTY = new ValidationRegistry( Collections.emptyMap(), Collections.emptyMap(), 0 );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<String, ValidationRuleMapping> ruleMappings;
+
+    private final Map<String, ValidationRuleSet> ruleSets;
+
+    private final long version;
+
+    private final RuleSetMatcher matcher;
+
+    ValidationRegistry( Map<String, ValidationRuleMapping> ruleMappings, Map<String, ValidationRuleSet> ruleSets,
+                        long version )
+    {
+        this.ruleMappings = Collections.unmodifiableMap( new HashMap<>( ruleMappings ) );
+        this.ruleSets = Collections.unmodifiableMap( new HashMap<>( ruleSets ) );
+        this.version = version;
+        this.matcher = new RuleSetMatcher( this.ruleSets.values() );
+    }
+
+    /**
+     * Increased each time a new snapshot is published.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public Map<String, ValidationRuleMapping> getRuleMappingsByName()
+    {
+        return ruleMappings;
+    }
+
+    public Set<ValidationRuleMapping> getRuleMappings()
+    {
+        return new HashSet<>( ruleMappings.values() );
+    }
+
+    public ValidationRuleMapping getRuleMappingNamed( final String name )
+    {
+        return ruleMappings.get( name );
+    }
+
+    /**
+     * @return rule-sets by file name.
+     */
+    public Map<String, ValidationRuleSet> getRuleSets()
+    {
+        return ruleSets;
+    }
+
+    public ValidationRuleSet getRuleSetMatching( StoreKey storeKey )
+    {
+        if ( ruleSets.isEmpty() )
+        {
+            logger.debug( "No rule sets to match against. No validations will be executed for: {}", storeKey );
+            return null;
+        }
+
+        return matcher.match( storeKey );
+    }
+}
@@ -20,12 +20,9 @@ import org.commonjava.service.promote.model.PromoteRequest;
 import org.commonjava.service.promote.model.StoreKey;
 import org.commonjava.service.promote.model.ValidationRuleSet;
 
+import java.util.Collections;
 import java.util.Set;
-import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
-import static org.commonjava.service.promote.core.PromotionHelper.*;
 
 public class ValidationRequest
 {
@@ -41,30 +38,52 @@ public class ValidationRequest
 
     private final PromotionValidationTools tools;
 
+    private final ContentFetchCache contentCache;
+
+    private volatile SourcePathIndex pathIndex;
+
     public ValidationRequest( PromoteRequest promoteRequest, ValidationRuleSet ruleSet, PromotionValidationTools tools )
     {
         this.promoteRequest = promoteRequest;
         this.ruleSet = ruleSet;
         this.sourceRepository = promoteRequest.getSource();
         this.tools = tools;
+        this.contentCache =
+                tools == null ? new ContentFetchCache( 0 ) : new ContentFetchCache( tools.getFetchCacheBudget() );
     }
 
     public Set<String> getSourcePaths()
     {
-        return getSourcePaths( false, false );
+        return getPathIndex().getSourcePaths();
     }
 
     public Set<String> getSourcePaths( boolean includeMetadata, boolean includeChecksums )
     {
-        Predicate<String> metadata = asPredicate( includeMetadata ).or( isMetadataPredicate().negate() );
-        Predicate<String> checksums = asPredicate( includeChecksums ).or( isChecksumPredicate().negate() );
-        return getSourcePaths( metadata.and( checksums ) );
+        return getPathIndex().getSourcePaths( includeMetadata, includeChecksums );
     }
 
-    private Set<String> getSourcePaths( Predicate<String> filter )
+    /**
+     * @return the index of the request paths, built on the first call.
+     */
+    public SourcePathIndex getPathIndex()
     {
-        return ((PathsPromoteRequest) getPromoteRequest()).getPaths().stream().filter( filter )
-                .collect( Collectors.toSet() );
+        SourcePathIndex index = pathIndex;
+        if ( index == null )
+        {
+            synchronized ( this )
+            {
+                index = pathIndex;
+                if ( index == null )
+                {
+                    Set<String> paths = ( (PathsPromoteRequest) getPromoteRequest() ).getPaths();
+                    index = pathIndex = new SourcePathIndex( paths == null ? Collections.emptySet() : paths,
+                                                             sourceRepository == null ?
+                                                                     null :
+                                                                     sourceRepository.getPackageType() );
+                }
+            }
+        }
+        return index;
     }
 
     public PromoteRequest getPromoteRequest()
@@ -112,11 +131,21 @@ public class ValidationRequest
         return promoteRequest.getTarget();
     }
 
-    private Predicate<String> asPredicate( boolean value ) {
-        return ( path ) -> value;
-    }
-
     public PromotionValidationTools getTools() {
         return tools;
     }
+
+    /**
+     * @return the content cache of this request, emptied by {@link #close()}.
+     */
+    public ContentFetchCache getContentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Release the cached content. Called by the validator when all rules are done.
+     */
+    public void close() {
+        contentCache.close();
+    }
 }
@@ -18,11 +18,14 @@ package org.commonjava.service.promote.validate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.FileUtils;
 
+import org.commonjava.service.promote.config.PromoteConfig;
 import org.commonjava.service.promote.model.ValidationRuleSet;
 import org.commonjava.service.promote.util.ScriptEngine;
+import org.commonjava.service.promote.validate.rules.BuiltinRules;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import java.io.File;
@@ -43,6 +46,11 @@ public class ValidationRuleParser
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    PromoteConfig config;
+
+    private boolean nativeBuiltins = true;
+
     protected ValidationRuleParser()
     {
     }
@@ -53,8 +61,29 @@ public class ValidationRuleParser
         this.objectMapper = objectMapper;
     }
 
+    public ValidationRuleParser( final ScriptEngine scriptEngine, ObjectMapper objectMapper, boolean nativeBuiltins )
+    {
+        this( scriptEngine, objectMapper );
+        this.nativeBuiltins = nativeBuiltins;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        nativeBuiltins = config.ruleNativeBuiltins();
+    }
+
     public ValidationRuleMapping parseRule( final File script, final String ruleName )
             throws Exception
+    {
+        return parseRule( readRuleSpec( script ), ruleName );
+    }
+
+    /**
+     * Read the rule script, adding the standard imports if it has none.
+     */
+    public String readRuleSpec( final File script )
+            throws IOException
     {
         String spec;
         try
@@ -71,8 +100,7 @@ public class ValidationRuleParser
         {
             spec = STANDARD_IMPORTS + spec;
         }
-
-        return parseRule( spec, ruleName );
+        return spec;
     }
 
     public ValidationRuleMapping parseRule( final String spec, final String ruleName )
@@ -85,7 +113,13 @@ public class ValidationRuleParser
 
         logger.trace( "Parsing rule: {}, content:\n{}", ruleName, spec );
 
-        ValidationRule rule;
+        ValidationRule rule = nativeBuiltins ? BuiltinRules.get( ruleName, spec ) : null;
+        if ( rule != null )
+        {
+            logger.debug( "Use built-in rule: {}", rule.getClass().getName() );
+            return new ValidationRuleMapping( ruleName, spec, rule );
+        }
+
         try
         {
 
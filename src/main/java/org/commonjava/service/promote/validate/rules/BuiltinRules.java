@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.commonjava.service.promote.validate.ValidationRule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Java implementations of the rules shipped in data/rules. Each one is tied to the sha-256 of the script it replaces,
+ * so it is only used while the script is exactly a shipped one; an edited script (or a customer rule that happens
+ * to have the same name) runs as written. The first hash is the script shipped now, the others are the earlier
+ * releases of it that behave the same, so deployments that kept their old rule files still get the Java code. When
+ * changing a shipped rule, put the new hash first and keep the old one if the behaviour did not change.
+ */
+public final class BuiltinRules
+{
+    private static final Map<String, Builtin> BUILTINS;
+
+    static
+    {
+        Map<String, Builtin> builtins = new HashMap<>();
+        // the earlier scripts of the pre-existing-paths rules checked existence path by path via content service, and
+        // the earlier npm-parsable-package-meta bound the whole package.json, so those are not replaced; the previous
+        // no-pre-existing-paths only differs in digesting the group rather than the constituent serving the path
+        add( builtins, "no-pre-existing-paths", NoPreExistingPaths::new,
+             "587c8112c5ae9bf3ab03369ab822c7331e9cec61e1492d2391cf75bff4e43acd",
+             "e654e376bff767213214f41f663c7a8b1fa0fad9b2fddbd21919f75a78fc812a" );
+        add( builtins, "no-snapshot-paths", NoSnapshotPaths::new,
+             "064a2f2d3c481e6fc22b14df34a6fe948c5b6189b3e5747cfd5338801f3b5598",
+             "67aae12fef065fa6043a5b52e0e1db1a85440e9e5bc6fa9c9ce7e895b799dcb4" );
+        add( builtins, "npm-no-pre-existing-paths", NpmNoPreExistingPaths::new,
+             "c11f40f520cee689759a9942cdffd86bbadf1bddb912c13628343e27eb3daeac" );
+        add( builtins, "npm-parsable-package-meta", NpmParsablePackageMeta::new,
+             "3e081d125d415160ca4b2074c0f8ee894da30ac423cce4f93244cfd7dfbc1a54" );
+        add( builtins, "npm-version-pattern", NpmVersionPattern::new,
+             "8b060edaeeea063b37a6e13bce48e1acafb7b6f2ed521f454efaacbffa9b9e71",
+             "4292a96e7b35af8c0f67c02d32ef9e799c829ed9f1cba93feff5c778651b254a" );
+        add( builtins, "parsable-pom", ParsablePom::new,
+             "f595f718adf0bfda9349641d047822a4893825908358aa13fc78b794a33dc274",
+             "53c351c5102014b8e0842f0eca5698d1ebbfe067aa9cd92e58119ff3d35e47e0" );
+        add( builtins, "project-version-pattern", ProjectVersionPattern::new,
+             "e7460cdf57bbc89a44b1cdd662775d1ca8f759600c741cc90c49e835f7b6bf14",
+             "47b89636869f79d2a13c2f50e740f4a21ea5731a89eed76bded6bdd507e2c922" );
+        BUILTINS = Collections.unmodifiableMap( builtins );
+    }
+
+    private BuiltinRules()
+    {
+    }
+
+    /**
+     * @return the Java implementation of the rule if the spec is the shipped script of that name, otherwise null.
+     */
+    public static ValidationRule get( final String ruleName, final String spec )
+    {
+        final Builtin builtin = BUILTINS.get( ruleName );
+        if ( builtin == null || spec == null || !builtin.scriptHashes.contains( hash( spec ) ) )
+        {
+            return null;
+        }
+        return builtin.factory.get();
+    }
+
+    /**
+     * Hash of the currently shipped script of each rule that has a Java implementation, by rule name.
+     */
+    public static Map<String, String> getScriptHashes()
+    {
+        final Map<String, String> ret = new HashMap<>();
+        BUILTINS.forEach( ( name, builtin ) -> ret.put( name, builtin.scriptHashes.get( 0 ) ) );
+        return ret;
+    }
+
+    /**
+     * Hash of the script ignoring line endings and leading/trailing whitespace.
+     */
+    public static String hash( final String spec )
+    {
+        return DigestUtils.sha256Hex( spec.replace( "\r\n", "\n" ).trim().getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static void add( Map<String, Builtin> builtins, String name, Supplier<ValidationRule> factory,
+                             String... scriptHashes )
+    {
+        builtins.put( name, new Builtin( Arrays.asList( scriptHashes ), factory ) );
+    }
+
+    private static final class Builtin
+    {
+        private final List<String> scriptHashes;
+
+        private final Supplier<ValidationRule> factory;
+
+        private Builtin( List<String> scriptHashes, Supplier<ValidationRule> factory )
+        {
+            this.scriptHashes = scriptHashes;
+            this.factory = factory;
+        }
+    }
+}
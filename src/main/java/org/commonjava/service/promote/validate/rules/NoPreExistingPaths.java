@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.util.ContentDigest;
+import org.commonjava.service.promote.validate.PromotionValidationException;
+import org.commonjava.service.promote.validate.PromotionValidationTools;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Java version of no-pre-existing-paths.groovy: artifacts already in the verify stores must have the same checksum.
+ */
+public class NoPreExistingPaths
+        implements ValidationRule
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Override
+    public String validate( ValidationRequest request )
+            throws PromotionValidationException
+    {
+        final PromotionValidationTools tools = request.getTools();
+        final StoreKey[] verifyStoreKeys = tools.getValidationStoreKeys( request, false );
+        final List<String> errors = Collections.synchronizedList( new ArrayList<>() );
+
+        logger.info( "Check pre-existing paths in: {}, paths: {}", Arrays.asList( verifyStoreKeys ),
+                     request.getPathIndex().getSourcePathsView() );
+
+        final Set<String> paths = request.getPathIndex().getArtifactPaths();
+        final StoreKey sourceStoreKey = request.getPromoteRequest().getSource();
+        final Map<String, String> sourceChecksums = new ConcurrentHashMap<>();
+
+        for ( StoreKey verifyStoreKey : verifyStoreKeys )
+        {
+            final Map<String, StoreKey> existing;
+            try
+            {
+                existing = tools.locateInBatch( verifyStoreKey, paths );
+            }
+            catch ( Exception e )
+            {
+                logger.error( "Rule 'no-pre-existing-paths' failed", e );
+                errors.add( "Rule 'no-pre-existing-paths' failed, error: " + e );
+                continue;
+            }
+            logger.info( "Found existing paths, store: {}, paths: {}", verifyStoreKey, existing.keySet() );
+
+            tools.paralleledInBatch( existing.keySet(), path -> {
+                try
+                {
+                    String sourceChecksum = sourceChecksums.get( path );
+                    if ( sourceChecksum == null )
+                    {
+                        sourceChecksum = tools.digest( sourceStoreKey, path, ContentDigest.SHA_256, request );
+                        logger.info( "Digest source: {}, path: {}, checksum: {}", sourceStoreKey, path,
+                                     sourceChecksum );
+                        if ( sourceChecksum != null )
+                        {
+                            sourceChecksums.put( path, sourceChecksum );
+                        }
+                    }
+                    // digest the store serving the path, whose digest is cached unlike that of a group
+                    String targetChecksum = tools.digest( existing.get( path ), path, ContentDigest.SHA_256 );
+                    if ( targetChecksum == null )
+                    {
+                        errors.add( String.format( "failed to get checksum for %s in %s", path, verifyStoreKey ) );
+                    }
+                    else if ( !targetChecksum.equals( sourceChecksum ) )
+                    {
+                        errors.add( String.format( "%s is already available in %s with different checksum", path,
+                                                   verifyStoreKey ) );
+                    }
+                }
+                catch ( Exception e )
+                {
+                    logger.error( "Rule 'no-pre-existing-paths' failed", e );
+                    errors.add( "Rule 'no-pre-existing-paths' failed, error: " + e );
+                }
+            } );
+        }
+
+        return errors.isEmpty() ? null : StringUtils.join( errors, "\n" );
+    }
+}
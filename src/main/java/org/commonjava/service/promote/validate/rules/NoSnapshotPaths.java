@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.service.promote.validate.PromotionValidationException;
+import org.commonjava.service.promote.validate.SourcePathIndex;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java version of no-snapshot-paths.groovy: poms must not have a snapshot or variable version.
+ */
+public class NoSnapshotPaths
+        implements ValidationRule
+{
+    @Override
+    public String validate( ValidationRequest request )
+            throws PromotionValidationException
+    {
+        // not used, but fails the rule the same way as the script if the verify stores are misconfigured
+        request.getTools().getValidationStoreKeys( request, true );
+
+        final List<String> errors = new ArrayList<>();
+        final List<SourcePathIndex.PathEntry> poms = request.getPathIndex().getPoms();
+        for ( int i = 0; i < poms.size(); i++ )
+        {
+            final SourcePathIndex.PathEntry entry = poms.get( i );
+            final ArtifactRef ref = entry.getArtifact();
+            if ( ref != null && !ref.getVersionSpec().isRelease() )
+            {
+                errors.add( String.format( "%s is a variable/snapshot version.", entry.getPath() ) );
+            }
+        }
+
+        return errors.isEmpty() ? null : StringUtils.join( errors, "\n" );
+    }
+}
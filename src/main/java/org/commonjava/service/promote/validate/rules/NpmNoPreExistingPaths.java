@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.validate.PromotionValidationTools;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Java version of npm-no-pre-existing-paths.groovy: paths must not exist in the verify stores.
+ */
+public class NpmNoPreExistingPaths
+        implements ValidationRule
+{
+    @Override
+    public String validate( ValidationRequest request )
+            throws Exception
+    {
+        final PromotionValidationTools tools = request.getTools();
+        final StoreKey[] verifyStoreKeys = tools.getValidationStoreKeys( request, false );
+        final List<String> errors = new ArrayList<>();
+
+        final Set<String> paths = request.getPathIndex().getSourcePathsView();
+        for ( StoreKey verifyStoreKey : verifyStoreKeys )
+        {
+            for ( String path : tools.existsInBatch( verifyStoreKey, paths ) )
+            {
+                errors.add( String.format( "%s is already available in: %s", path, verifyStoreKey ) );
+            }
+        }
+
+        return errors.isEmpty() ? null : StringUtils.join( errors, "\n" );
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.service.promote.validate.PromotionValidationTools;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Java version of npm-parsable-package-meta.groovy: package.json files must be parsable.
+ */
+public class NpmParsablePackageMeta
+        implements ValidationRule
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Override
+    public String validate( ValidationRequest request )
+    {
+        final PromotionValidationTools tools = request.getTools();
+        final List<String> errors = Collections.synchronizedList( new ArrayList<>() );
+        final Set<String> paths = request.getPathIndex().getSourcePathsView( true, false );
+        logger.info( "Parsing package.json in:\n  {}", StringUtils.join( paths, "\n  " ) );
+
+        final List<String> packageJsons =
+                paths.stream().filter( p -> p.endsWith( "package.json" ) ).collect( Collectors.toList() );
+        tools.paralleledEach( packageJsons, path -> {
+            logger.info( "Parsing package.json from path: {}.", path );
+            try
+            {
+                tools.checkLocalPackageJson( path, request );
+            }
+            catch ( Exception e )
+            {
+                errors.add( String.format( "%s: Failed to parse package.json. Error was: %s", path, e ) );
+            }
+        } );
+
+        return errors.isEmpty() ? null : StringUtils.join( errors, "\n" );
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.indy.pkg.npm.content.PackagePath;
+import org.commonjava.service.promote.validate.SourcePathIndex;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.commonjava.service.promote.util.PackageTypeConstants.PKG_TYPE_NPM;
+
+/**
+ * Java version of npm-version-pattern.groovy: tarball versions must match 'versionPattern', or 'scopedVersionPattern'
+ * for packages in the 'validScope' scope.
+ */
+public class NpmVersionPattern
+        implements ValidationRule
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Override
+    public String validate( ValidationRequest request )
+    {
+        final Pattern versionPattern = request.getVersionPattern();
+        final Pattern scopedVersionPattern = request.getScopedVersionPattern();
+        final String validScope = request.getValidationParameter( "validScope" );
+        final List<String> errors = new ArrayList<>();
+
+        if ( !PKG_TYPE_NPM.equals( request.getTarget().getPackageType() ) || !PKG_TYPE_NPM.equals(
+                request.getSource().getPackageType() ) )
+        {
+            logger.warn( "Source or Target repo package type is not NPM, will not execute this rule!" );
+            return null;
+        }
+
+        logger.info( "Start to do NPMVersionPattern validation check for request paths: {}",
+                     request.getPathIndex().getSourcePathsView() );
+        if ( versionPattern == null )
+        {
+            logger.info( "No 'versionPattern' parameter specified in rule-set: {}, will only check scoped rule for scopes: {}.",
+                         request.getRuleSet().getName(), validScope );
+        }
+
+        final List<SourcePathIndex.PathEntry> packages = request.getPathIndex().getNpmPackages();
+        for ( int i = 0; i < packages.size(); i++ )
+        {
+            final String path = packages.get( i ).getPath();
+            final PackagePath pkgPath = packages.get( i ).getNpmPackage();
+            if ( pkgPath == null )
+            {
+                continue;
+            }
+            final String vs = pkgPath.getVersion();
+            final boolean isValidScoped = pkgPath.isScoped() && validScope != null && validScope.equals(
+                    pkgPath.getScopedName().substring( 1 ) );
+            if ( !isValidScoped )
+            {
+                if ( versionPattern != null && !versionPattern.matcher( vs ).matches() )
+                {
+                    errors.add( String.format(
+                            "%s is not %s scoped and does not match version pattern: '%s' (version was: '%s')",
+                            path, validScope, versionPattern.pattern(), vs ) );
+                }
+            }
+            else if ( scopedVersionPattern != null && !scopedVersionPattern.matcher( vs ).matches() )
+            {
+                errors.add( String.format(
+                        "%s is %s scoped and does not match scoped version pattern: '%s' (version was: '%s')", path,
+                        validScope, scopedVersionPattern.pattern(), vs ) );
+            }
+        }
+
+        return errors.isEmpty() ? null : StringUtils.join( errors, "\n" );
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.service.promote.validate.SourcePathIndex;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Java version of project-version-pattern.groovy: artifact versions must match 'versionPattern'.
+ */
+public class ProjectVersionPattern
+        implements ValidationRule
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Override
+    public String validate( ValidationRequest request )
+    {
+        final String versionPattern = request.getValidationParameter( "versionPattern" );
+        if ( versionPattern == null )
+        {
+            logger.warn( "No 'versionPattern' parameter specified in rule-set: {}. Cannot execute ProjectVersionPattern rule!",
+                         request.getRuleSet().getName() );
+            return null;
+        }
+
+        final Pattern pattern = Pattern.compile( versionPattern );
+        final List<String> errors = new ArrayList<>();
+        final List<SourcePathIndex.PathEntry> artifacts = request.getPathIndex().getArtifacts();
+        for ( int i = 0; i < artifacts.size(); i++ )
+        {
+            final SourcePathIndex.PathEntry entry = artifacts.get( i );
+            final String vs = entry.getArtifact().getVersionString();
+            if ( !pattern.matcher( vs ).matches() )
+            {
+                String msg = String.format( "%s does not match version pattern: '%s' (version was: '%s')",
+                                            entry.getPath(), versionPattern, vs );
+                logger.info( msg );
+                errors.add( msg );
+            }
+        }
+
+        return errors.isEmpty() ? null : StringUtils.join( errors, "\n" );
+    }
+}
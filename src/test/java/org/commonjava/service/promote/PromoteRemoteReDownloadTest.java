@@ -16,6 +16,7 @@
 package org.commonjava.service.promote;
 
 import io.quarkus.test.junit.QuarkusTest;
+import org.commonjava.service.promote.core.RemoteReDownloader;
 import org.commonjava.service.promote.model.PathsPromoteRequest;
 import org.commonjava.service.promote.model.PathsPromoteResult;
 import org.commonjava.service.promote.model.StoreKey;
@@ -80,5 +81,9 @@ public class PromoteRemoteReDownloadTest
         assertThat( completed, notNullValue() );
         assertThat( completed.size(), equalTo( 1 ) );
         assertThat( result.getError(), nullValue() );
+
+        assertThat( result.getReDownloads(), notNullValue() );
+        assertThat( result.getReDownloads().get( PATH_MISSING_BUT_CAN_BE_RE_DOWNLOAD ),
+                    equalTo( RemoteReDownloader.DOWNLOADED ) );
     }
 }
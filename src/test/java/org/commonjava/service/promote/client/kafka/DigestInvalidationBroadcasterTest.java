@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.client.kafka;
+
+import org.commonjava.service.promote.core.DigestCache;
+import org.commonjava.service.promote.model.StoreKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.commonjava.service.promote.util.ContentDigest.SHA_256;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DigestInvalidationBroadcasterTest
+{
+    private final StoreKey store = StoreKey.fromString( "maven:hosted:build-1" );
+
+    private final String path = "/org/foo/bar/1/bar-1.jar";
+
+    /**
+     * Every node gets every message on the topic, its own ones included.
+     */
+    private final List<Node> topic = new ArrayList<>();
+
+    @Test
+    public void otherNodesDropPublishedPaths()
+    {
+        Node first = new Node();
+        Node second = new Node();
+
+        first.broadcaster.publish( List.of( path ) );
+
+        assertThat( second.digestCache.get( store, path, SHA_256 ), nullValue() );
+        assertThat( second.digestCache.get( store, "/other", SHA_256 ), equalTo( "other" ) );
+        // the publishing node invalidated them itself and skips its own message
+        assertThat( first.received, equalTo( 0 ) );
+        assertThat( first.digestCache.get( store, path, SHA_256 ), equalTo( "digest" ) );
+        assertThat( second.received, equalTo( 1 ) );
+    }
+
+    @Test
+    public void bigPathSetsAreSplit()
+    {
+        Node first = new Node();
+        Node second = new Node();
+
+        List<String> paths = IntStream.range( 0, 2500 ).mapToObj( i -> "/p/" + i ).collect( Collectors.toList() );
+        paths.add( path );
+        first.broadcaster.publish( paths );
+
+        assertThat( second.received, equalTo( 3 ) );
+        assertThat( second.digestCache.get( store, path, SHA_256 ), nullValue() );
+    }
+
+    private final class Node
+    {
+        private int received;
+
+        private final DigestCache digestCache = new DigestCache( 100, 60, null )
+        {
+            @Override
+            public void invalidateLocally( Collection<String> paths )
+            {
+                received++;
+                super.invalidateLocally( paths );
+            }
+        };
+
+        private final DigestInvalidationBroadcaster broadcaster = new DigestInvalidationBroadcaster()
+        {
+            @Override
+            void send( String message )
+            {
+                topic.forEach( n -> n.broadcaster.receive( message ) );
+            }
+        };
+
+        private Node()
+        {
+            broadcaster.digestCache = digestCache;
+            digestCache.put( store, path, SHA_256, "digest", digestCache.begin( store, path ) );
+            digestCache.put( store, "/other", SHA_256, "other", digestCache.begin( store, "/other" ) );
+            topic.add( this );
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.client.kafka;
+
+import org.commonjava.service.promote.core.DigestCache;
+import org.commonjava.service.promote.core.PromotionHelper;
+import org.commonjava.service.promote.model.StoreKey;
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.commonjava.service.promote.util.ContentDigest.SHA_256;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StoreEventConsumerTest
+{
+    private final StoreKey store = StoreKey.fromString( "maven:hosted:build-1" );
+
+    private final StoreKey other = StoreKey.fromString( "maven:hosted:build-2" );
+
+    private final String path = "/org/foo/bar/1/bar-1.jar";
+
+    /**
+     * Store info and digests are cached per node, so a store event must reach the consumer of every node. Kafka gives
+     * each event to one consumer of a group, which is why each node has a group of its own.
+     */
+    @Test
+    public void everyNodeInvalidatesOnSameEvent()
+    {
+        Node first = new Node();
+        Node second = new Node();
+        String event = updateEvent( store );
+
+        first.consumer.receive( event );
+        second.consumer.receive( event );
+
+        for ( Node node : new Node[] { first, second } )
+        {
+            assertThat( node.invalidated.contains( store ), equalTo( true ) );
+            assertThat( node.digestCache.get( store, path, SHA_256 ), nullValue() );
+        }
+    }
+
+    @Test
+    public void invalidateOnlyStoresOfEvent()
+    {
+        Node node = new Node();
+        node.consumer.receive( updateEvent( store ) );
+
+        assertThat( node.invalidated, equalTo( Collections.singleton( store ) ) );
+        assertThat( node.digestCache.get( store, path, SHA_256 ), nullValue() );
+        assertThat( node.digestCache.get( other, path, SHA_256 ), notNullValue() );
+    }
+
+    @Test
+    public void ignoreUnparsableEvent()
+    {
+        Node node = new Node();
+        node.consumer.receive( "{\"storeKey\":\"" + store + "\"" );
+        node.consumer.receive( "{\"eventType\":\"PostUpdate\"}" );
+
+        assertThat( node.invalidated.isEmpty(), equalTo( true ) );
+        assertThat( node.digestCache.get( store, path, SHA_256 ), notNullValue() );
+        assertThat( node.digestCache.get( other, path, SHA_256 ), notNullValue() );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void consumerGroupIsPerInstance() throws Exception
+    {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream( "application.yaml" ))
+        {
+            Map<String, Object> node = new Yaml().load( in );
+            for ( String key : new String[] { "mp", "messaging", "incoming", StoreEventConsumer.CHANNEL_STORE_EVENT,
+                    "group" } )
+            {
+                node = (Map<String, Object>) node.get( key );
+            }
+            assertThat( String.valueOf( node.get( "id" ) ), containsString( "${HOSTNAME" ) );
+        }
+    }
+
+    /**
+     * A store update event as repository service sends it.
+     */
+    private static String updateEvent( StoreKey key )
+    {
+        return "{\"eventType\":\"PostUpdate\",\"keys\":[{\"packageType\":\"" + key.getPackageType()
+                + "\",\"storeType\":\"" + key.getType() + "\",\"storeName\":\"" + key.getName() + "\"}]}";
+    }
+
+    private final class Node
+    {
+        private final Set<StoreKey> invalidated = new HashSet<>();
+
+        private final DigestCache digestCache = new DigestCache( 100, 60, null );
+
+        private final StoreEventConsumer consumer = new StoreEventConsumer();
+
+        private Node()
+        {
+            digestCache.put( store, path, SHA_256, "digest", digestCache.begin( store, path ) );
+            digestCache.put( other, path, SHA_256, "digest", digestCache.begin( other, path ) );
+            consumer.digestCache = digestCache;
+            consumer.promotionHelper = new PromotionHelper()
+            {
+                @Override
+                public void invalidateStoreInfo( StoreKey storeKey )
+                {
+                    invalidated.add( storeKey );
+                }
+            };
+        }
+    }
+}
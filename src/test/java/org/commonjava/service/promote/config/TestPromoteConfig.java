@@ -16,10 +16,15 @@
 package org.commonjava.service.promote.config;
 
 import java.io.File;
+import java.util.Optional;
 
 public class TestPromoteConfig implements PromoteConfig {
     private File baseDir;
 
+    private int copyChunkSize = 1000;
+
+    private int copyMaxInFlight = 4;
+
     public TestPromoteConfig() {
     }
 
@@ -33,6 +38,141 @@ public class TestPromoteConfig implements PromoteConfig {
         return null;
     }
 
+    @Override
+    public int copyChunkSize() {
+        return copyChunkSize;
+    }
+
+    @Override
+    public int copyMaxInFlight() {
+        return copyMaxInFlight;
+    }
+
+    @Override
+    public int existCheckMaxInFlight() {
+        return 4;
+    }
+
+    @Override
+    public int storeCacheTtlSeconds() {
+        return 300;
+    }
+
+    @Override
+    public int storeCacheMaxSize() {
+        return 1000;
+    }
+
+    @Override
+    public long admissionMaxInFlightPaths() {
+        return 200000;
+    }
+
+    @Override
+    public long admissionMaxQueuedPaths() {
+        return 1000000;
+    }
+
+    @Override
+    public int admissionRetryAfterSeconds() {
+        return 30;
+    }
+
+    @Override
+    public int admissionMaxPoolQueueDepth() {
+        return 16;
+    }
+
+    @Override
+    public long validationFetchCacheMemoryBytes() {
+        return 1024 * 1024;
+    }
+
+    @Override
+    public int digestCacheMaxSize() {
+        return 0;
+    }
+
+    @Override
+    public int digestCacheTtlSeconds() {
+        return 600;
+    }
+
+    @Override
+    public Optional<File> digestCacheDir() {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean ruleCompileStatic() {
+        return false;
+    }
+
+    @Override
+    public Optional<File> ruleClassCacheDir() {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean ruleWatch() {
+        return false;
+    }
+
+    @Override
+    public boolean ruleNativeBuiltins() {
+        return true;
+    }
+
+    @Override
+    public int ruleForkJoinParallelism() {
+        return 16;
+    }
+
+    @Override
+    public int ruleProfileWindowMinutes() {
+        return 15;
+    }
+
+    @Override
+    public boolean ruleStreamingPomCheck() {
+        return false;
+    }
+
+    @Override
+    public boolean ruleFullPackageJsonBinding() {
+        return false;
+    }
+
+    @Override
+    public int storageMaxConcurrent() {
+        return 0;
+    }
+
+    @Override
+    public int contentMaxConcurrent() {
+        return 0;
+    }
+
+    @Override
+    public int repositoryMaxConcurrent() {
+        return 0;
+    }
+
+    @Override
+    public int downstreamAcquireTimeoutSeconds() {
+        return 300;
+    }
+
+    @Override
+    public String reservationBackend() {
+        return "memory";
+    }
+
+    @Override
+    public int reservationLeaseSeconds() {
+        return 3600;
+    }
+
     public TestPromoteConfig( File baseDir ) {
         this.baseDir = baseDir;
     }
@@ -40,4 +180,12 @@ public class TestPromoteConfig implements PromoteConfig {
     public void setBaseDir(File baseDir) {
         this.baseDir = baseDir;
     }
+
+    public void setCopyChunkSize(int copyChunkSize) {
+        this.copyChunkSize = copyChunkSize;
+    }
+
+    public void setCopyMaxInFlight(int copyMaxInFlight) {
+        this.copyMaxInFlight = copyMaxInFlight;
+    }
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.exception.PromotionOverloadException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdmissionControllerTest
+{
+    private final AdmissionController admission = new AdmissionController( 10, 10, 30 );
+
+    @Test
+    public void rejectSyncAndDeferAsyncWhenFull() throws Exception
+    {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> ret = admission.admit( 6, false, () -> first );
+
+        // sync request is rejected with retry-after
+        PromotionOverloadException e =
+                assertThrows( PromotionOverloadException.class, () -> admission.admit( 6, false, () -> first ) );
+        assertThat( e.getRetryAfterSeconds(), equalTo( 30 ) );
+
+        // async request waits, until the queue is full
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<String> deferred = admission.admit( 6, true, () -> {
+            started.set( true );
+            return CompletableFuture.completedFuture( "second" );
+        } );
+        assertThrows( PromotionOverloadException.class, () -> admission.admit( 6, true, () -> first ) );
+        assertThat( started.get(), equalTo( false ) );
+        assertThat( admission.getStats().get( "queuedPaths" ), equalTo( 6L ) );
+
+        // first done, the deferred one starts
+        first.complete( "first" );
+        assertThat( ret.get(), equalTo( "first" ) );
+        assertThat( deferred.get(), equalTo( "second" ) );
+        assertThat( started.get(), equalTo( true ) );
+
+        assertThat( admission.getStats().get( "inFlightPaths" ), equalTo( 0L ) );
+        assertThat( admission.getStats().get( "rejected" ), equalTo( 2L ) );
+    }
+
+    @Test
+    public void holdBackWhilePoolBacklogged() throws Exception
+    {
+        AdmissionController admission = new AdmissionController( 100, 100, 30, 2 );
+        AtomicInteger queueDepth = new AtomicInteger( 3 );
+        admission.registerPool( "promote-runner", queueDepth::get );
+
+        // nothing in flight, admitted anyway
+        CompletableFuture<String> first = new CompletableFuture<>();
+        admission.admit( 1, false, () -> first );
+
+        // paths fit but the pool queue is too deep
+        assertThrows( PromotionOverloadException.class, () -> admission.admit( 1, false, () -> first ) );
+        CompletableFuture<String> deferred =
+                admission.admit( 1, true, () -> CompletableFuture.completedFuture( "second" ) );
+        assertThat( admission.getStats().get( "poolQueue.promote-runner" ), equalTo( 3L ) );
+
+        queueDepth.set( 0 );
+        first.complete( "first" );
+        assertThat( deferred.get(), equalTo( "second" ) );
+    }
+
+    @Test
+    public void failDeferredWhenStartThrows() throws Exception
+    {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        admission.admit( 6, false, () -> first );
+
+        CompletableFuture<String> failing = admission.admit( 6, true, () -> {
+            throw new RejectedExecutionException( "pool is shut down" );
+        } );
+        CompletableFuture<String> next =
+                admission.admit( 4, true, () -> CompletableFuture.completedFuture( "third" ) );
+
+        // the failed start releases its weight and the next deferred one still starts
+        first.complete( "first" );
+        ExecutionException e = assertThrows( ExecutionException.class, failing::get );
+        assertThat( e.getCause(), instanceOf( RejectedExecutionException.class ) );
+        assertThat( next.get(), equalTo( "third" ) );
+        assertThat( admission.getStats().get( "inFlightPaths" ), equalTo( 0L ) );
+        assertThat( admission.getStats().get( "queuedPaths" ), equalTo( 0L ) );
+    }
+
+    @Test
+    public void oversizedRequestAdmittedWhenIdle() throws Exception
+    {
+        CompletableFuture<String> ret =
+                admission.admit( 100, false, () -> CompletableFuture.completedFuture( "big" ) );
+        assertThat( ret.get(), equalTo( "big" ) );
+    }
+}
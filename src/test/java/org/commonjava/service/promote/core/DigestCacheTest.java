@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.model.StoreKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+
+import static org.commonjava.service.promote.util.ContentDigest.SHA_1;
+import static org.commonjava.service.promote.util.ContentDigest.SHA_256;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DigestCacheTest
+{
+    private final StoreKey group = StoreKey.fromString( "maven:group:builds-untested" );
+
+    private final StoreKey remote = StoreKey.fromString( "maven:remote:central" );
+
+    private final StoreKey hosted = StoreKey.fromString( "maven:hosted:build-1" );
+
+    private final String path = "/org/foo/bar/1/bar-1.jar";
+
+    @Test
+    public void evictLeastRecentlyUsed()
+    {
+        DigestCache cache = new DigestCache( 2, 60, null );
+        cache.put( remote, "/a", SHA_256, "a", cache.begin( remote, "/a" ) );
+        cache.put( remote, "/b", SHA_256, "b", cache.begin( remote, "/b" ) );
+        assertThat( cache.get( remote, "/a", SHA_256 ), equalTo( "a" ) );
+
+        cache.put( remote, "/c", SHA_256, "c", cache.begin( remote, "/c" ) );
+        assertThat( cache.get( remote, "/a", SHA_256 ), equalTo( "a" ) );
+        assertThat( cache.get( remote, "/b", SHA_256 ), nullValue() );
+        assertThat( cache.get( remote, "/c", SHA_256 ), equalTo( "c" ) );
+    }
+
+    @Test
+    public void invalidatePathInAllStores()
+    {
+        DigestCache cache = new DigestCache( 100, 60, null );
+        cache.put( remote, path, SHA_256, "g", cache.begin( remote, path ) );
+        cache.put( hosted, path, SHA_1, "h", cache.begin( hosted, path ) );
+        cache.put( hosted, "/other", SHA_256, "o", cache.begin( hosted, "/other" ) );
+
+        cache.invalidate( List.of( path ) );
+        assertThat( cache.get( remote, path, SHA_256 ), nullValue() );
+        assertThat( cache.get( hosted, path, SHA_1 ), nullValue() );
+        assertThat( cache.get( hosted, "/other", SHA_256 ), equalTo( "o" ) );
+
+        cache.invalidate( hosted );
+        assertThat( cache.get( hosted, "/other", SHA_256 ), nullValue() );
+    }
+
+    @Test
+    public void skipDigestComputedDuringInvalidation()
+    {
+        DigestCache cache = new DigestCache( 100, 60, null );
+        long begin = cache.begin( remote, path );
+        cache.invalidate( List.of( path ) );
+        cache.put( remote, path, SHA_256, "stale", begin );
+        assertThat( cache.get( remote, path, SHA_256 ), nullValue() );
+
+        begin = cache.begin( remote, path );
+        cache.invalidate( remote );
+        cache.put( remote, path, SHA_256, "stale", begin );
+        assertThat( cache.get( remote, path, SHA_256 ), nullValue() );
+    }
+
+    @Test
+    public void keepDigestComputedDuringUnrelatedInvalidation()
+    {
+        DigestCache cache = new DigestCache( 100, 60, null );
+        long begin = cache.begin( remote, path );
+        cache.invalidate( hosted );
+        cache.invalidate( List.of( "/org/foo/baz/1/baz-1.jar" ) );
+        cache.put( remote, path, SHA_256, "g", begin );
+        assertThat( cache.get( remote, path, SHA_256 ), equalTo( "g" ) );
+    }
+
+    @Test
+    public void diskTierSurvivesRestart( @TempDir File dir )
+    {
+        DigestCache cache = new DigestCache( 100, 60, dir );
+        cache.put( remote, path, SHA_256, "g", cache.begin( remote, path ) );
+        cache.put( hosted, path, SHA_256, "h", cache.begin( hosted, path ) );
+
+        DigestCache restarted = new DigestCache( 100, 60, dir );
+        assertThat( restarted.get( remote, path, SHA_256 ), equalTo( "g" ) );
+        assertThat( restarted.get( hosted, path, SHA_256 ), equalTo( "h" ) );
+        assertThat( restarted.get( hosted, path, SHA_1 ), nullValue() );
+
+        restarted.invalidate( List.of( path ) );
+        assertThat( new DigestCache( 100, 60, dir ).get( remote, path, SHA_256 ), nullValue() );
+    }
+
+    @Test
+    public void storeInvalidationSurvivesRestart( @TempDir File dir ) throws Exception
+    {
+        DigestCache cache = new DigestCache( 100, 60, dir );
+        cache.put( hosted, path, SHA_256, "h", cache.begin( hosted, path ) );
+        Thread.sleep( 5 );
+        cache.invalidate( hosted );
+
+        // the disk entry is still there, but written before the store changed
+        assertThat( new DigestCache( 100, 60, dir ).get( hosted, path, SHA_256 ), nullValue() );
+
+        Thread.sleep( 5 );
+        cache.put( hosted, path, SHA_256, "h2", cache.begin( hosted, path ) );
+        assertThat( new DigestCache( 100, 60, dir ).get( hosted, path, SHA_256 ), equalTo( "h2" ) );
+    }
+
+    @Test
+    public void groupDigestsAreNotCached()
+    {
+        DigestCache cache = new DigestCache( 100, 60, null );
+        cache.put( group, path, SHA_256, "g", cache.begin( group, path ) );
+        assertThat( cache.get( group, path, SHA_256 ), nullValue() );
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.CONTENT;
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.STORAGE;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DownstreamLimiterTest
+{
+    @Test
+    public void permitsLimitedPerDownstream()
+    {
+        DownstreamLimiter limiter = new DownstreamLimiter( 1, 2, 0, 1 );
+
+        DownstreamLimiter.Permit permit = limiter.acquire( STORAGE );
+        // storage is used up, content is independent
+        assertThrows( IllegalStateException.class, () -> limiter.acquire( STORAGE ) );
+        try (DownstreamLimiter.Permit p1 = limiter.acquire( CONTENT ); DownstreamLimiter.Permit p2 = limiter.acquire(
+                CONTENT ))
+        {
+            assertThat( limiter.getStats().get( "content" ).get( "available" ), equalTo( 0 ) );
+        }
+        assertThat( limiter.getStats().get( "content" ).get( "available" ), equalTo( 2 ) );
+
+        // closing twice releases once
+        permit.close();
+        permit.close();
+        assertThat( limiter.getStats().get( "storage" ).get( "available" ), equalTo( 1 ) );
+
+        // no limit for repository
+        assertThat( limiter.getStats().containsKey( "repository" ), equalTo( false ) );
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.model.PathsPromoteResult;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PathConflictManagerTest
+{
+    private final PathConflictManager conflictManager = new PathConflictManager( new InMemoryPathReservationService() );
+
+    private final StoreKey target = new StoreKey( "maven", StoreType.hosted, "conflict-tgt" );
+
+    private final StoreKey otherTarget = new StoreKey( "maven", StoreType.hosted, "conflict-other" );
+
+    private final PathsPromoteResult done = new PathsPromoteResult();
+
+    private final PathsPromoteResult conflicted = new PathsPromoteResult();
+
+    @Test
+    public void overlappingPathsOfSameTarget_Conflicted()
+    {
+        PathsPromoteResult ret = conflictManager.checkAnd( paths( target, "/a", "/b" ), k -> {
+            assertThat( conflictManager.getStats().get( "inUsePaths" ), equalTo( 2L ) );
+            // same path to same target is in use
+            assertThat( check( paths( target, "/b", "/c" ) ), equalTo( conflicted ) );
+            // disjoint paths, or same paths to other target, are fine
+            assertThat( check( paths( target, "/c", "/d" ) ), equalTo( done ) );
+            assertThat( check( paths( otherTarget, "/a", "/b" ) ), equalTo( done ) );
+            // the conflicted request must not leave its partial claims behind
+            assertThat( conflictManager.getStats().get( "inUsePaths" ), equalTo( 2L ) );
+            return done;
+        }, k -> conflicted );
+
+        assertThat( ret, equalTo( done ) );
+        assertThat( conflictManager.getStats().get( "inUsePaths" ), equalTo( 0L ) );
+        assertThat( conflictManager.getStats().get( "checks" ), equalTo( 4L ) );
+        assertThat( conflictManager.getStats().get( "conflicts" ), equalTo( 1L ) );
+    }
+
+    @Test
+    public void expiredReservation_TakenOver()
+    {
+        InMemoryPathReservationService reservations = new InMemoryPathReservationService();
+        StoreKeyPaths k = paths( target, "/a", "/b" );
+
+        assertThat( reservations.reserve( target, k.getPaths(), "node-1", 3600 ), equalTo( true ) );
+        assertThat( reservations.reserve( target, k.getPaths(), "node-2", 3600 ), equalTo( false ) );
+
+        // a lease already expired behaves like a crashed node that never released
+        assertThat( reservations.reserve( otherTarget, k.getPaths(), "node-1", -1 ), equalTo( true ) );
+        assertThat( reservations.reserve( otherTarget, k.getPaths(), "node-2", 3600 ), equalTo( true ) );
+
+        // release by a non-owner does not drop the reservation
+        reservations.release( target, k.getPaths(), "node-2" );
+        assertThat( reservations.inUseCount(), equalTo( 4L ) );
+        reservations.release( target, k.getPaths(), "node-1" );
+        assertThat( reservations.inUseCount(), equalTo( 2L ) );
+    }
+
+    private PathsPromoteResult check( StoreKeyPaths k )
+    {
+        return conflictManager.checkAnd( k, p -> done, p -> conflicted );
+    }
+
+    private StoreKeyPaths paths( StoreKey key, String... paths )
+    {
+        return new StoreKeyPaths( key, new HashSet<>( Arrays.asList( paths ) ) );
+    }
+}
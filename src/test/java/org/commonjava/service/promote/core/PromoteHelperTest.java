@@ -16,10 +16,27 @@
 package org.commonjava.service.promote.core;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import org.commonjava.indy.model.core.PathStyle;
+import org.commonjava.service.promote.config.TestPromoteConfig;
+import org.commonjava.service.promote.fixture.MockStorageService;
+import org.commonjava.service.promote.model.StoreKey;
 import org.junit.jupiter.api.Test;
 
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.commonjava.service.promote.core.DownstreamLimiter.Downstream.STORAGE;
+import static org.commonjava.service.promote.core.PromotionHelper.DEFAULT_LIST_PAGE_SIZE;
 import static org.commonjava.service.promote.core.PromotionHelper.PATH_STYLE_PROPERTY;
 import static org.commonjava.service.promote.core.PromotionHelper.TIMEOUT_SECONDS_PROPERTY;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -76,4 +93,134 @@ public class PromoteHelperTest
         assertThat( map.get( TIMEOUT_SECONDS_PROPERTY ), equalTo( 0 ) );
     }
 
+    @Test
+    public void testListPathsInPages() throws Exception
+    {
+        final int size = DEFAULT_LIST_PAGE_SIZE * 2 + 5;
+        final StringBuilder sb = new StringBuilder( "[" );
+        for ( int i = 0; i < size; i++ )
+        {
+            sb.append( i > 0 ? "," : "" ).append( "\"/path/" ).append( i ).append( "\"" );
+        }
+        sb.append( "]" );
+
+        PromotionHelper helper = new PromotionHelper();
+        helper.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+        helper.storageService = new MockStorageService()
+        {
+            @Override
+            public Response list( String rawPath, boolean recursive, String fileType, int limit )
+            {
+                return Response.ok( new ByteArrayInputStream( sb.toString().getBytes() ) ).build();
+            }
+        };
+
+        final List<Integer> pageSizes = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+        int total = helper.listPaths( StoreKey.fromString( "maven:hosted:test" ), page -> {
+            pageSizes.add( page.size() );
+            paths.addAll( page );
+        } );
+
+        assertThat( total, equalTo( size ) );
+        assertThat( paths.size(), equalTo( size ) );
+        assertThat( paths.get( size - 1 ), equalTo( "/path/" + ( size - 1 ) ) );
+        assertThat( pageSizes, equalTo( List.of( DEFAULT_LIST_PAGE_SIZE, DEFAULT_LIST_PAGE_SIZE, 5 ) ) );
+    }
+
+    /**
+     * Two promotions copying while they list, with storage limited to 2 concurrent calls. Each copies its first page
+     * while the other is listing too, which deadlocks if a listing holds its permit while the page is consumed.
+     */
+    @Test
+    public void testListPathsReleasesPermitToConsumer() throws Exception
+    {
+        final DownstreamLimiter limiter = new DownstreamLimiter( 2, 0, 0, 5 );
+        PromotionHelper helper = new PromotionHelper();
+        helper.limiter = limiter;
+        helper.storageService = new MockStorageService()
+        {
+            @Override
+            public Response list( String rawPath, boolean recursive, String fileType, int limit )
+            {
+                return Response.ok( new ByteArrayInputStream( "[\"/path/1\",\"/path/2\"]".getBytes() ) ).build();
+            }
+        };
+
+        final CyclicBarrier bothListing = new CyclicBarrier( 2 );
+        final StoreKey store = StoreKey.fromString( "maven:hosted:test" );
+        final Callable<Integer> promotion = () -> helper.listPaths( store, page -> {
+            try
+            {
+                bothListing.await( 10, TimeUnit.SECONDS );
+            }
+            catch ( Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+            try (DownstreamLimiter.Permit copy = limiter.acquire( STORAGE ))
+            {
+                // copy the page
+            }
+        } );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            Future<Integer> first = executor.submit( promotion );
+            Future<Integer> second = executor.submit( promotion );
+            assertThat( first.get( 30, TimeUnit.SECONDS ), equalTo( 2 ) );
+            assertThat( second.get( 30, TimeUnit.SECONDS ), equalTo( 2 ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResolveConcreteStoresOfNestedGroups()
+    {
+        final Map<String, String> stores = Map.of(
+                "builds", "{\"constituents\": [\"maven:hosted:build-1\", \"maven:group:nested\", \"maven:remote:central\"]}",
+                "nested", "{\"constituents\": [\"maven:hosted:build-2\", \"maven:group:builds\", \"maven:hosted:build-1\"]}",
+                "build-1", "{\"path_style\": \"plain\"}",
+                "build-2", "{\"path_style\": \"hashed\"}",
+                "central", "{}" );
+
+        PromotionHelper helper = new PromotionHelper();
+        helper.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+        helper.repositoryService = ( packageType, type, name ) -> Response.ok( stores.get( name ) ).build();
+
+        List<StoreKey> resolved = helper.resolveConcreteStores( StoreKey.fromString( "maven:group:builds" ) );
+        assertThat( resolved, equalTo( List.of( StoreKey.fromString( "maven:hosted:build-1" ),
+                                                StoreKey.fromString( "maven:hosted:build-2" ),
+                                                StoreKey.fromString( "maven:remote:central" ) ) ) );
+        assertThat( helper.getPathStyle( StoreKey.fromString( "maven:hosted:build-2" ) ), equalTo( PathStyle.hashed ) );
+    }
+
+    @Test
+    public void testResolveConcreteStoresSeesNewMembersWhileCached()
+    {
+        final Map<String, String> stores = new HashMap<>( Map.of(
+                "builds", "{\"constituents\": [\"maven:hosted:build-1\"]}",
+                "build-1", "{\"path_style\": \"plain\"}",
+                "build-2", "{\"path_style\": \"plain\"}" ) );
+
+        PromotionHelper helper = new PromotionHelper();
+        helper.config = new TestPromoteConfig( null );
+        helper.init();
+        helper.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+        helper.repositoryService = ( packageType, type, name ) -> Response.ok( stores.get( name ) ).build();
+
+        StoreKey group = StoreKey.fromString( "maven:group:builds" );
+        StoreKey build1 = StoreKey.fromString( "maven:hosted:build-1" );
+        StoreKey build2 = StoreKey.fromString( "maven:hosted:build-2" );
+        assertThat( helper.resolveConcreteStores( group ), equalTo( List.of( build1 ) ) );
+
+        // membership changed without a store event reaching this node
+        stores.put( "builds", "{\"constituents\": [\"maven:hosted:build-2\", \"maven:hosted:build-1\"]}" );
+        assertThat( helper.resolveConcreteStores( group ), equalTo( List.of( build2, build1 ) ) );
+    }
+
 }
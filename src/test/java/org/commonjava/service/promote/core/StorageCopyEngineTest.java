@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.service.promote.client.storage.FileCopyRequest;
+import org.commonjava.service.promote.client.storage.FileCopyResult;
+import org.commonjava.service.promote.config.TestPromoteConfig;
+import org.commonjava.service.promote.fixture.MockStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.service.promote.fixture.MockStorageService.mockedStorageRootDir;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StorageCopyEngineTest
+{
+    private final String source = "maven:hosted:copy-src";
+
+    private final String target = "maven:hosted:copy-tgt";
+
+    private final MockStorageService storageService = new MockStorageService();
+
+    private final TestPromoteConfig config = new TestPromoteConfig();
+
+    private StorageCopyEngine engine;
+
+    private final Set<String> paths = new HashSet<>();
+
+    @BeforeEach
+    public void setup() throws IOException
+    {
+        FileUtils.deleteDirectory( new File( mockedStorageRootDir ) );
+
+        config.setCopyChunkSize( 3 );
+        config.setCopyMaxInFlight( 2 );
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 4 );
+        engine = new StorageCopyEngine( storageService, config,
+                                        new PoolWeftExecutorService( "promote-copy-executor", executor ) );
+        engine.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            String path = "/org/foo/bar/" + i + "/bar-" + i + ".jar";
+            storageService.put( source, path, new ByteArrayInputStream( ( "content " + i ).getBytes() ) );
+            paths.add( path );
+        }
+    }
+
+    @Test
+    public void copyInChunks_AllCompleted()
+    {
+        FileCopyResult result = engine.copy( newRequest( false ) );
+
+        assertThat( result.isSuccess(), equalTo( true ) );
+        assertThat( result.getCompleted(), equalTo( paths ) );
+        assertThat( result.getSkipped().isEmpty(), equalTo( true ) );
+        paths.forEach( p -> assertThat( storageService.exists( target, p ).getStatus(), equalTo( 200 ) ) );
+    }
+
+    @Test
+    public void copyInChunks_OneChunkFailed_ReportCompletedOfOtherChunks()
+    {
+        String existing = paths.iterator().next();
+        storageService.put( target, existing, new ByteArrayInputStream( "existing".getBytes() ) );
+
+        FileCopyResult result = engine.copy( newRequest( true ) );
+
+        assertThat( result.isSuccess(), equalTo( false ) );
+        assertThat( result.getMessage(), notNullValue() );
+        assertThat( result.getCompleted().contains( existing ), equalTo( false ) );
+
+        // everything reported as completed must really be in target
+        result.getCompleted().forEach( p -> assertThat( storageService.exists( target, p ).getStatus(), equalTo( 200 ) ) );
+    }
+
+    @Test
+    public void copySession_CopyPagesAsSubmitted()
+    {
+        StorageCopyEngine.CopySession session = engine.open( newRequest( false ) );
+        Set<String> page = new HashSet<>();
+        for ( String path : paths )
+        {
+            page.add( path );
+            if ( page.size() == 4 )
+            {
+                assertThat( session.submit( page ), equalTo( true ) );
+                page = new HashSet<>();
+            }
+        }
+        session.submit( page );
+        FileCopyResult result = session.finish();
+
+        assertThat( result.isSuccess(), equalTo( true ) );
+        assertThat( result.getCompleted(), equalTo( paths ) );
+        paths.forEach( p -> assertThat( storageService.exists( target, p ).getStatus(), equalTo( 200 ) ) );
+    }
+
+    @Test
+    public void copyInChunks_ChunkFailedHalfway_ReportItsCompletedPaths()
+    {
+        String poison = paths.iterator().next();
+        MockStorageService failing = new MockStorageService()
+        {
+            @Override
+            public Response copy( FileCopyRequest request )
+            {
+                if ( !request.getPaths().contains( poison ) )
+                {
+                    return super.copy( request );
+                }
+                Set<String> others = new HashSet<>( request.getPaths() );
+                others.remove( poison );
+                FileCopyRequest partial = new FileCopyRequest();
+                partial.setSourceFilesystem( request.getSourceFilesystem() );
+                partial.setTargetFilesystem( request.getTargetFilesystem() );
+                partial.setPaths( others );
+                super.copy( partial ).close();
+
+                FileCopyResult result = new FileCopyResult( false, others, new HashSet<>() );
+                result.setMessage( "Failed to copy " + poison );
+                return Response.ok( result ).build();
+            }
+        };
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 4 );
+        engine = new StorageCopyEngine( failing, config,
+                                        new PoolWeftExecutorService( "promote-copy-executor", executor ) );
+        engine.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+
+        FileCopyResult result = engine.copy( newRequest( false ) );
+
+        assertThat( result.isSuccess(), equalTo( false ) );
+        assertThat( result.getCompleted().contains( poison ), equalTo( false ) );
+
+        // nothing copied to target may be missing from the completed set, otherwise it is never rolled back
+        paths.stream()
+             .filter( p -> storageService.exists( target, p ).getStatus() == 200 )
+             .forEach( p -> assertThat( p, result.getCompleted().contains( p ), equalTo( true ) ) );
+    }
+
+    @Test
+    public void copyInChunks_ExecutorRejects_DrainAndUncount()
+    {
+        AtomicInteger executed = new AtomicInteger();
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor( 4, 4, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>() )
+                {
+                    @Override
+                    public void execute( Runnable command )
+                    {
+                        if ( executed.incrementAndGet() > 2 )
+                        {
+                            throw new RejectedExecutionException( "Copy executor is full" );
+                        }
+                        super.execute( command );
+                    }
+                };
+        engine = new StorageCopyEngine( storageService, config,
+                                        new PoolWeftExecutorService( "promote-copy-executor", executor ) );
+        engine.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+
+        FileCopyResult result = engine.copy( newRequest( false ) );
+
+        assertThat( result.isSuccess(), equalTo( false ) );
+        assertThat( engine.getQueuedChunks(), equalTo( 0 ) );
+        // the two chunks that did run are reported, so they can be rolled back
+        assertThat( result.getCompleted().size(), equalTo( 6 ) );
+        executor.shutdownNow();
+    }
+
+    private FileCopyRequest newRequest( boolean failWhenExists )
+    {
+        FileCopyRequest request = new FileCopyRequest();
+        request.setSourceFilesystem( source );
+        request.setTargetFilesystem( target );
+        request.setFailWhenExists( failWhenExists );
+        request.setPaths( paths );
+        return request;
+    }
+}
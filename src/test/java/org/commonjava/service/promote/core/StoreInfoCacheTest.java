@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.core;
+
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
+import org.junit.jupiter.api.Test;
+
+import static org.commonjava.indy.model.core.PathStyle.plain;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StoreInfoCacheTest
+{
+    @Test
+    public void cacheBoundedAndInvalidated()
+    {
+        StoreInfoCache cache = new StoreInfoCache( 300, 2 );
+        PromotionHelper.StoreInfo a = storeInfo( "a" );
+        PromotionHelper.StoreInfo b = storeInfo( "b" );
+        PromotionHelper.StoreInfo c = storeInfo( "c" );
+
+        cache.put( a );
+        cache.put( b );
+        assertThat( cache.get( a.storeKey ), sameInstance( a ) );
+
+        // full, the oldest is dropped
+        cache.put( c );
+        assertThat( cache.size(), equalTo( 2 ) );
+        assertThat( cache.get( a.storeKey ), nullValue() );
+        assertThat( cache.get( c.storeKey ), sameInstance( c ) );
+
+        cache.invalidate( c.storeKey );
+        assertThat( cache.get( c.storeKey ), nullValue() );
+        cache.invalidateAll();
+        assertThat( cache.size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void disabledCacheKeepsNothing()
+    {
+        StoreInfoCache cache = new StoreInfoCache( 0, 1000 );
+        PromotionHelper.StoreInfo a = storeInfo( "a" );
+        cache.put( a );
+        assertThat( cache.get( a.storeKey ), nullValue() );
+    }
+
+    private PromotionHelper.StoreInfo storeInfo( String name )
+    {
+        return new PromotionHelper.StoreInfo( new StoreKey( "maven", StoreType.hosted, name ), plain, 0 );
+    }
+}
@@ -0,0 +1,366 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelEachTest
+{
+    private static final int CALLERS = 16;
+
+    private static final int ITEMS = 8;
+
+    private final List<Integer> items = IntStream.range( 0, ITEMS ).boxed().collect( Collectors.toList() );
+
+    /**
+     * What paralleledEach used to do: one task per item and a blocking wait. With an action that nests another
+     * parallel loop, every pool thread ends up waiting for tasks queued behind it.
+     */
+    @Test
+    public void latchPerItemStarvesOnNestedCalls() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        ExecutorService callers = Executors.newFixedThreadPool( 1 );
+        try
+        {
+            Future<?> outer = callers.submit( () -> latchEach( pool, items, i -> latchEach( pool, items, j -> {
+            } ) ) );
+            assertThat( isDone( outer, 2 ), equalTo( false ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void nestedCallsOnSaturatedForkJoinPool() throws Exception
+    {
+        ForkJoinPool pool = new ForkJoinPool( 2 );
+        try
+        {
+            assertThat( runNested( pool ), equalTo( CALLERS * ITEMS * ITEMS ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void nestedCallsOnSaturatedFixedPool() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            assertThat( runNested( pool ), equalTo( CALLERS * ITEMS * ITEMS ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rethrowFirstErrorWhenDone()
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try
+        {
+            RuntimeException e = assertThrows( RuntimeException.class,
+                                               () -> ParallelEach.forEach( pool, items, 4, i -> {
+                                                   if ( i == 3 )
+                                                   {
+                                                       throw new IllegalStateException( "boom" );
+                                                   }
+                                               }, 10, TimeUnit.SECONDS ) );
+            assertThat( e.getMessage(), equalTo( "boom" ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rethrowErrorAsItIs()
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try
+        {
+            assertThrows( StackOverflowError.class, () -> ParallelEach.forEach( pool, items, 4, i -> {
+                if ( i == 3 )
+                {
+                    throw new StackOverflowError();
+                }
+            }, 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelStopsItemsAndReleasesThreads() throws Exception
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        ExecutorService callers = Executors.newFixedThreadPool( 1 );
+        Cancellation cancellation = new Cancellation();
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> many = IntStream.range( 0, 100 ).boxed().collect( Collectors.toList() );
+        try
+        {
+            Future<?> caller = callers.submit( () -> {
+                try (Cancellation.Scope scope = cancellation.enter())
+                {
+                    ParallelEach.forEach( pool, many, 4, i -> {
+                        started.incrementAndGet();
+                        sleep( 10000 );
+                    }, 30, TimeUnit.SECONDS );
+                }
+            } );
+            Thread.sleep( 200 );
+            cancellation.cancel( "Rule timed out" );
+
+            ExecutionException e = assertThrows( ExecutionException.class, () -> caller.get( 5, TimeUnit.SECONDS ) );
+            assertThat( e.getCause() instanceof CancellationException, equalTo( true ) );
+            assertThat( e.getCause().getMessage(), equalTo( "Rule timed out" ) );
+            assertThat( started.get() <= 4, equalTo( true ) );
+
+            // the pool threads are not left interrupted
+            pool.awaitQuiescence( 5, TimeUnit.SECONDS );
+            assertThat( pool.submit( () -> Thread.currentThread().isInterrupted() ).get(), equalTo( false ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void idleActionWaitsForCancelledThreads() throws Exception
+    {
+        Cancellation cancellation = new Cancellation();
+        CountDownLatch entered = new CountDownLatch( 1 );
+        CountDownLatch leave = new CountDownLatch( 1 );
+        AtomicInteger idle = new AtomicInteger();
+        Thread worker = new Thread( () -> {
+            try (Cancellation.Scope scope = cancellation.enter())
+            {
+                entered.countDown();
+                // ignores the interrupt, like a thread busy reading a temp file
+                while ( true )
+                {
+                    try
+                    {
+                        leave.await();
+                        break;
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        // keep going
+                    }
+                }
+            }
+        } );
+        worker.start();
+        assertThat( entered.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+
+        cancellation.cancel( "Rule timed out" );
+        cancellation.whenIdle( idle::incrementAndGet );
+        assertThat( idle.get(), equalTo( 0 ) );
+
+        leave.countDown();
+        worker.join( 5000 );
+        assertThat( idle.get(), equalTo( 1 ) );
+
+        cancellation.whenIdle( idle::incrementAndGet );
+        assertThat( idle.get(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void exitKeepsInterruptOfCancelledOuterWork()
+    {
+        Cancellation outer = new Cancellation();
+        Cancellation inner = new Cancellation();
+        try (Cancellation.Scope o = outer.enter())
+        {
+            outer.cancel( "Rule-set timed out" );
+            try (Cancellation.Scope i = inner.enter())
+            {
+                inner.cancel( "Rule timed out" );
+            }
+            assertThat( Thread.currentThread().isInterrupted(), equalTo( true ) );
+        }
+        assertThat( Thread.currentThread().isInterrupted(), equalTo( false ) );
+    }
+
+    /**
+     * The helpers add their CPU time to the profile before leaving the cancellation, so an idle action sees all of it.
+     */
+    @Test
+    public void idleActionSeesCpuTimeOfHelpers() throws Exception
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        Cancellation cancellation = new Cancellation();
+        WorkProfile profile = new WorkProfile();
+        AtomicLong cpuWhenIdle = new AtomicLong( -1 );
+        // all helpers are running before the caller finishes, none starts late
+        CountDownLatch running = new CountDownLatch( 4 );
+        try
+        {
+            try (Cancellation.Scope c = cancellation.enter(); WorkProfile.Scope p = profile.enter())
+            {
+                ParallelEach.forEach( pool, items, 4, i -> {
+                    running.countDown();
+                    await( running );
+                    spin( 20 );
+                }, 10, TimeUnit.SECONDS );
+                cancellation.whenIdle( () -> cpuWhenIdle.set( profile.getCpuNanos() ) );
+            }
+            pool.awaitQuiescence( 5, TimeUnit.SECONDS );
+            assertThat( cpuWhenIdle.get(), equalTo( profile.getCpuNanos() ) );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * More concurrent callers than pool threads, each running a parallel loop whose action runs another one - the
+     * shape of several rules using paralleledEach at once with nested closures.
+     */
+    private int runNested( ExecutorService pool ) throws Exception
+    {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool( CALLERS );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int c = 0; c < CALLERS; c++ )
+            {
+                futures.add( callers.submit( () -> ParallelEach.forEach( pool, items, 16, i -> ParallelEach.forEach(
+                        pool, items, 16, j -> {
+                            sleep( 1 );
+                            count.incrementAndGet();
+                        }, 30, TimeUnit.SECONDS ), 30, TimeUnit.SECONDS ) ) );
+            }
+            for ( Future<?> f : futures )
+            {
+                assertThat( isDone( f, 30 ), equalTo( true ) );
+            }
+        }
+        finally
+        {
+            callers.shutdownNow();
+        }
+        return count.get();
+    }
+
+    private static <T> void latchEach( ExecutorService pool, List<T> items, Consumer<T> action )
+    {
+        CountDownLatch latch = new CountDownLatch( items.size() );
+        items.forEach( e -> pool.execute( () -> {
+            try
+            {
+                action.accept( e );
+            }
+            finally
+            {
+                latch.countDown();
+            }
+        } ) );
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isDone( Future<?> future, int seconds ) throws Exception
+    {
+        try
+        {
+            future.get( seconds, TimeUnit.SECONDS );
+            return true;
+        }
+        catch ( TimeoutException e )
+        {
+            return false;
+        }
+    }
+
+    private static void spin( long millis )
+    {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( millis );
+        while ( System.nanoTime() - end < 0 )
+        {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
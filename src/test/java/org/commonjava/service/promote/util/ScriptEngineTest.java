@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ScriptEngineTest
+{
+    private static final String TYPED_RULE = "import org.commonjava.service.promote.validate.*\n"
+            + "class TypedRule implements ValidationRule {\n"
+            + "    String validate( ValidationRequest request ) {\n"
+            + "        List<String> errors = []\n"
+            + "        [1, 2].each { errors << 'e' + it }\n"
+            + "        return errors.join( ',' )\n"
+            + "    }\n"
+            + "}";
+
+    // 'noSuchMethod' can only be resolved at runtime, so it does not compile statically
+    private static final String DYNAMIC_RULE = "import org.commonjava.service.promote.validate.*\n"
+            + "class DynamicRule implements ValidationRule {\n"
+            + "    String validate( ValidationRequest request ) {\n"
+            + "        if ( request != null ) { request.noSuchMethod() }\n"
+            + "        return null\n"
+            + "    }\n"
+            + "}";
+
+    @Test
+    public void compileStatically() throws Exception
+    {
+        ValidationRule rule = new ScriptEngine( true, null ).parseScriptInstance( TYPED_RULE, ValidationRule.class );
+        assertThat( rule.validate( null ), equalTo( "e1,e2" ) );
+    }
+
+    @Test
+    public void fallbackToDynamicCompilation() throws Exception
+    {
+        ValidationRule rule = new ScriptEngine( true, null ).parseScriptInstance( DYNAMIC_RULE, ValidationRule.class );
+        assertThat( rule.validate( null ), nullValue() );
+    }
+
+    @Test
+    public void parseShippedRulesWithCompileStatic() throws Exception
+    {
+        File[] rules = new File( "data/rules" ).listFiles( ( dir, name ) -> name.endsWith( ".groovy" ) );
+        assertThat( rules.length > 0, equalTo( true ) );
+        ScriptEngine engine = new ScriptEngine( true, null );
+        for ( File rule : rules )
+        {
+            String script = FileUtils.readFileToString( rule, StandardCharsets.UTF_8 );
+            assertThat( rule.getName(), engine.parseScriptInstance( script, ValidationRule.class ), notNullValue() );
+        }
+    }
+
+    @Test
+    public void loadFromClassCache( @TempDir File dir ) throws Exception
+    {
+        new ScriptEngine( true, dir ).parseScriptInstance( TYPED_RULE, ValidationRule.class );
+        File[] cached = dir.listFiles();
+        assertThat( cached.length, equalTo( 1 ) );
+        assertThat( new File( cached[0], "main-class" ).isFile(), equalTo( true ) );
+
+        // another boot reads the classes, the source is not compiled again
+        ValidationRule rule = new ScriptEngine( true, dir ).parseScriptInstance( TYPED_RULE, ValidationRule.class );
+        assertThat( rule.validate( null ), equalTo( "e1,e2" ) );
+        assertThat( dir.listFiles().length, equalTo( 1 ) );
+    }
+
+    @Test
+    public void recompileWhenCachedClassesDoNotLink( @TempDir File dir ) throws Exception
+    {
+        new ScriptEngine( true, dir ).parseScriptInstance( TYPED_RULE, ValidationRule.class );
+        File cached = dir.listFiles()[0];
+        File main = new File( cached, "TypedRule.class" );
+        assertThat( main.isFile(), equalTo( true ) );
+        Files.write( main.toPath(), "not a class".getBytes() );
+
+        ValidationRule rule = new ScriptEngine( true, dir ).parseScriptInstance( TYPED_RULE, ValidationRule.class );
+        assertThat( rule.validate( null ), equalTo( "e1,e2" ) );
+        assertThat( main.length() > 100, equalTo( true ) );
+    }
+
+    @Test
+    public void apiFingerprintCoversReachableClasses()
+    {
+        ScriptEngine engine = new ScriptEngine();
+        String fingerprint = engine.getApiFingerprint( ValidationRule.class );
+        assertThat( new ScriptEngine().getApiFingerprint( ValidationRule.class ), equalTo( fingerprint ) );
+        // ValidationRule can not be reached from ValidationRequest, so that set of classes is a different one
+        assertThat( engine.getApiFingerprint( ValidationRequest.class ).equals( fingerprint ), equalTo( false ) );
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SlidingHistogramTest
+{
+    @Test
+    public void percentilesOfBuckets()
+    {
+        SlidingHistogram h = new SlidingHistogram( 60000, 6 );
+        for ( int i = 1; i <= 100; i++ )
+        {
+            h.record( i, 1000 );
+        }
+        SlidingHistogram.Snapshot s = h.snapshot( 1000 );
+        assertThat( s.getCount(), equalTo( 100L ) );
+        assertThat( s.getMean(), equalTo( 50L ) );
+        assertThat( s.getPercentile( 0.5 ), equalTo( 50L ) );
+        assertThat( s.getPercentile( 0.95 ), equalTo( 100L ) );
+        assertThat( s.getMax(), equalTo( 100L ) );
+
+        h.record( 5_000_000, 1000 );
+        assertThat( h.snapshot( 1000 ).getPercentile( 1 ), equalTo( 5_000_000L ) );
+    }
+
+    @Test
+    public void oldValuesSlideOut()
+    {
+        SlidingHistogram h = new SlidingHistogram( 60000, 6 );
+        h.record( 500, 1000 );
+        h.record( 20, 35000 );
+        assertThat( h.snapshot( 35000 ).getCount(), equalTo( 2L ) );
+
+        // the first slice is out of the window, the second is not
+        assertThat( h.snapshot( 65000 ).getCount(), equalTo( 1L ) );
+        assertThat( h.snapshot( 65000 ).getMax(), equalTo( 20L ) );
+
+        // a slice reused for a later time drops what it had
+        h.record( 7, 121000 );
+        assertThat( h.snapshot( 121000 ).getCount(), equalTo( 1L ) );
+        assertThat( h.snapshot( 121000 ).getMax(), equalTo( 7L ) );
+    }
+}
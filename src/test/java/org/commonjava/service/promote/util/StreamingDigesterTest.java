@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.commonjava.service.promote.util.ContentDigest.MD5;
+import static org.commonjava.service.promote.util.ContentDigest.SHA_1;
+import static org.commonjava.service.promote.util.ContentDigest.SHA_256;
+import static org.commonjava.service.promote.util.ContentDigest.SHA_512;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StreamingDigesterTest
+{
+    @Test
+    public void allDigestsInOnePass() throws Exception
+    {
+        // bigger than the read buffer
+        byte[] data = new byte[200 * 1024 + 13];
+        new Random( 42 ).nextBytes( data );
+
+        DigestBundle bundle = StreamingDigester.digest( new ByteArrayInputStream( data ),
+                                                        EnumSet.allOf( ContentDigest.class ) );
+
+        assertThat( bundle.getSize(), equalTo( (long) data.length ) );
+        for ( ContentDigest d : ContentDigest.values() )
+        {
+            assertThat( d.name(), bundle.get( d ), equalTo( new DigestUtils( d.digestName() ).digestAsHex( data ) ) );
+        }
+    }
+
+    @Test
+    public void onlyRequestedDigests() throws Exception
+    {
+        DigestBundle bundle = StreamingDigester.digest( new ByteArrayInputStream( new byte[0] ),
+                                                        StreamingDigester.withCommon( SHA_512 ) );
+
+        assertThat( bundle.getSize(), equalTo( 0L ) );
+        assertThat( bundle.getDigests().keySet(), equalTo( EnumSet.of( MD5, SHA_1, SHA_256, SHA_512 ) ) );
+        assertThat( bundle.get( SHA_256 ), equalTo( DigestUtils.sha256Hex( new byte[0] ) ) );
+        assertThat( bundle.get( ContentDigest.SHA_384 ), nullValue() );
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.indy.model.core.PathStyle;
+import org.commonjava.service.promote.client.content.ContentService;
+import org.commonjava.service.promote.config.TestPromoteConfig;
+import org.commonjava.service.promote.core.ContentDigester;
+import org.commonjava.service.promote.core.DigestCache;
+import org.commonjava.service.promote.core.DownstreamLimiter;
+import org.commonjava.service.promote.core.PromotionHelper;
+import org.commonjava.service.promote.model.PathsPromoteRequest;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.StoreType;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+import org.commonjava.service.promote.util.ContentDigest;
+import org.commonjava.service.promote.util.DigestBundle;
+import org.commonjava.service.promote.util.ScriptEngine;
+import org.commonjava.service.promote.util.StreamingDigester;
+import org.commonjava.service.promote.validate.rules.BuiltinRules;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * The built-in rules that read content or check existence give the same errors as their scripts. The content and
+ * repository services are mocked: the target is a group of a hosted store, checked in batch against storage, and a
+ * remote store, checked path by path via content service.
+ */
+public class BuiltinRulesServicesTest
+{
+    private static final File RULES_DIR = new File( "data/rules" );
+
+    private final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 4 );
+
+    /**
+     * Content of the concrete stores by path. A null content means storage lists the path but it can not be retrieved.
+     */
+    private final Map<StoreKey, Map<String, String>> contents = new HashMap<>();
+
+    private final Map<StoreKey, List<StoreKey>> groups = new HashMap<>();
+
+    private final ContentService contentService = new ContentService()
+    {
+        @Override
+        public Response retrieve( String packageName, String type, String name, String path )
+        {
+            String content = find( new StoreKey( packageName, StoreType.get( type ), name ), path );
+            if ( content == null )
+            {
+                return Response.status( 404 ).build();
+            }
+            return Response.status( 200 )
+                           .entity( new ByteArrayInputStream( content.getBytes( StandardCharsets.UTF_8 ) ) )
+                           .build();
+        }
+
+        @Override
+        public Response exists( String packageName, String type, String name, String path )
+        {
+            StoreKey store = new StoreKey( packageName, StoreType.get( type ), name );
+            return Response.status( contents.getOrDefault( store, Collections.emptyMap() ).containsKey( path ) ?
+                                            200 :
+                                            404 ).build();
+        }
+    };
+
+    private final ContentDigester contentDigester = new ContentDigester()
+    {
+        @Override
+        public String getChecksumFile( StoreKey key, String path, ContentDigest digest )
+        {
+            return null;
+        }
+
+        @Override
+        public String digest( StoreKey key, String path, ContentDigest digest ) throws Exception
+        {
+            String content = find( key, path );
+            if ( content == null )
+            {
+                return null;
+            }
+            return StreamingDigester.digest( new ByteArrayInputStream( content.getBytes( StandardCharsets.UTF_8 ) ),
+                                             Collections.singleton( digest ) ).get( digest );
+        }
+    };
+
+    private final PromotionHelper promotionHelper = new PromotionHelper()
+    {
+        @Override
+        public List<StoreKey> resolveConcreteStores( StoreKey storeKey )
+        {
+            return groups.getOrDefault( storeKey, Collections.singletonList( storeKey ) );
+        }
+
+        @Override
+        public PathStyle getPathStyle( StoreKey storeKey )
+        {
+            return PathStyle.plain;
+        }
+
+        @Override
+        public Set<String> getMissing( StoreKey storeKey, Collection<String> paths, PathStyle pathStyle )
+        {
+            Map<String, String> stored = contents.getOrDefault( storeKey, Collections.emptyMap() );
+            return paths.stream().filter( p -> !stored.containsKey( p ) ).collect( Collectors.toSet() );
+        }
+    };
+
+    private final PromotionValidationTools tools = tools( contentDigester );
+
+    @AfterEach
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void noPreExistingPathsSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+        StoreKey target = group( "maven:group:builds", "maven:hosted:released", "maven:remote:central" );
+        put( source, "/org/foo/same/1/same-1.jar", "same" );
+        put( source, "/org/foo/changed/1/changed-1.jar", "new" );
+        put( source, "/org/foo/lost/1/lost-1.pom", "lost" );
+        put( source, "/org/foo/remote/1/remote-1.pom", "new" );
+        put( source, "/org/foo/new/1/new-1.jar", "new" );
+        put( source, "/org/foo/same/maven-metadata.xml", "new" );
+        put( StoreKey.fromString( "maven:hosted:released" ), "/org/foo/same/1/same-1.jar", "same" );
+        put( StoreKey.fromString( "maven:hosted:released" ), "/org/foo/changed/1/changed-1.jar", "old" );
+        put( StoreKey.fromString( "maven:hosted:released" ), "/org/foo/lost/1/lost-1.pom", null );
+        put( StoreKey.fromString( "maven:hosted:released" ), "/org/foo/same/maven-metadata.xml", "old" );
+        put( StoreKey.fromString( "maven:remote:central" ), "/org/foo/remote/1/remote-1.pom", "old" );
+
+        assertSameErrors( "no-pre-existing-paths", request( source, target ) );
+    }
+
+    /**
+     * Another validation against the same group retrieves nothing from its constituents: their digests are cached,
+     * while the digests of the group itself are not.
+     */
+    @Test
+    public void noPreExistingPathsCachesDigestsOfConstituents() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+        StoreKey target = group( "maven:group:builds", "maven:hosted:released", "maven:remote:central" );
+        put( source, "/org/foo/same/1/same-1.jar", "same" );
+        put( source, "/org/foo/changed/1/changed-1.jar", "new" );
+        put( source, "/org/foo/remote/1/remote-1.pom", "new" );
+        put( StoreKey.fromString( "maven:hosted:released" ), "/org/foo/same/1/same-1.jar", "same" );
+        put( StoreKey.fromString( "maven:hosted:released" ), "/org/foo/changed/1/changed-1.jar", "old" );
+        put( StoreKey.fromString( "maven:remote:central" ), "/org/foo/remote/1/remote-1.pom", "old" );
+
+        final List<StoreKey> retrieved = Collections.synchronizedList( new ArrayList<>() );
+        final PromotionValidationTools cachingTools = tools( new ContentDigester( new DigestCache( 100, 60, null ) )
+        {
+            @Override
+            public String getChecksumFile( StoreKey key, String path, ContentDigest digest )
+            {
+                return null;
+            }
+
+            @Override
+            public DigestBundle digestAll( StoreKey key, String path, Set<ContentDigest> digests ) throws Exception
+            {
+                retrieved.add( key );
+                String content = find( key, path );
+                if ( content == null )
+                {
+                    return null;
+                }
+                return StreamingDigester.digest( new ByteArrayInputStream( content.getBytes( StandardCharsets.UTF_8 ) ),
+                                                 digests );
+            }
+        } );
+
+        String script = FileUtils.readFileToString( new File( RULES_DIR, "no-pre-existing-paths.groovy" ),
+                                                    StandardCharsets.UTF_8 );
+        ValidationRule builtin = BuiltinRules.get( "no-pre-existing-paths", script );
+        ValidationRule scripted = new ScriptEngine().parseScriptInstance( script, ValidationRule.class );
+
+        Set<String> errors = lines( builtin.validate( request( cachingTools, source, target ) ) );
+        assertThat( errors.size(), equalTo( 2 ) );
+        assertThat( new HashSet<>( retrieved ), equalTo( new HashSet<>(
+                Arrays.asList( StoreKey.fromString( "maven:hosted:released" ),
+                               StoreKey.fromString( "maven:remote:central" ) ) ) ) );
+
+        retrieved.clear();
+        assertThat( lines( builtin.validate( request( cachingTools, source, target ) ) ), equalTo( errors ) );
+        assertThat( lines( scripted.validate( request( cachingTools, source, target ) ) ), equalTo( errors ) );
+        assertThat( retrieved, equalTo( Collections.emptyList() ) );
+    }
+
+    @Test
+    public void npmNoPreExistingPathsSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "npm:hosted:build-1" );
+        StoreKey target = group( "npm:group:builds", "npm:hosted:released", "npm:remote:npmjs" );
+        put( source, "/jquery/-/jquery-1.0.0.tgz", "new" );
+        put( source, "/jquery/package.json", "new" );
+        put( source, "/@scope/lib/-/lib-1.0.0.tgz", "new" );
+        put( source, "/lodash/-/lodash-1.0.0.tgz", "new" );
+        put( StoreKey.fromString( "npm:hosted:released" ), "/jquery/-/jquery-1.0.0.tgz", "old" );
+        put( StoreKey.fromString( "npm:remote:npmjs" ), "/@scope/lib/-/lib-1.0.0.tgz", "old" );
+
+        assertSameErrors( "npm-no-pre-existing-paths", request( source, target ) );
+    }
+
+    @Test
+    public void parsablePomSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+        StoreKey target = StoreKey.fromString( "maven:hosted:released" );
+        put( source, "/org/foo/valid/1/valid-1.pom",
+             "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId><artifactId>valid</artifactId>"
+                     + "<version>1</version></project>" );
+        put( source, "/org/foo/invalid/1/invalid-1.pom", "This is not parsable" );
+        put( source, "/org/foo/valid/1/valid-1.jar", "jar" );
+
+        assertSameErrors( "parsable-pom", request( source, target, "/org/foo/missing/1/missing-1.pom" ) );
+    }
+
+    @Test
+    public void npmParsablePackageMetaSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "npm:hosted:build-1" );
+        StoreKey target = StoreKey.fromString( "npm:hosted:released" );
+        put( source, "/valid/package.json", "{\"name\": \"valid\", \"version\": \"1.0.0\"}" );
+        put( source, "/invalid/package.json", "{ not json" );
+        put( source, "/valid/-/valid-1.0.0.tgz", "tgz" );
+
+        assertSameErrors( "npm-parsable-package-meta", request( source, target, "/missing/package.json" ) );
+    }
+
+    private void assertSameErrors( String ruleName, ValidationRequest request ) throws Exception
+    {
+        String script = FileUtils.readFileToString( new File( RULES_DIR, ruleName + ".groovy" ),
+                                                    StandardCharsets.UTF_8 );
+        ValidationRule scripted = new ScriptEngine().parseScriptInstance( script, ValidationRule.class );
+        ValidationRule builtin = BuiltinRules.get( ruleName, script );
+        assertThat( builtin, notNullValue() );
+
+        Set<String> expected = lines( scripted.validate( request ) );
+        assertThat( ruleName + " found no errors, fixture is useless", expected.isEmpty(), equalTo( false ) );
+        assertThat( ruleName, lines( builtin.validate( request ) ), equalTo( expected ) );
+    }
+
+    /**
+     * Promote all the paths deployed to the source, and the extra paths that are not there.
+     */
+    private ValidationRequest request( StoreKey source, StoreKey target, String... missingPaths )
+    {
+        return request( tools, source, target, missingPaths );
+    }
+
+    private ValidationRequest request( PromotionValidationTools tools, StoreKey source, StoreKey target,
+                                       String... missingPaths )
+    {
+        Set<String> paths = new HashSet<>( contents.get( source ).keySet() );
+        paths.addAll( Arrays.asList( missingPaths ) );
+        Map<String, String> params = new HashMap<>();
+        params.put( "availableInStores", target.toString() );
+        ValidationRuleSet ruleSet = new ValidationRuleSet( "test", target.toString(), Collections.emptyList(), params );
+        return new ValidationRequest( new PathsPromoteRequest( source, target, paths ), ruleSet, tools );
+    }
+
+    private PromotionValidationTools tools( ContentDigester contentDigester )
+    {
+        PromotionValidationTools ret =
+                new PromotionValidationTools( contentDigester, executor, new TestPromoteConfig() );
+        ret.contentService = contentService;
+        ret.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+        ret.promotionHelper = promotionHelper;
+        return ret;
+    }
+
+    private StoreKey group( String group, String... members )
+    {
+        StoreKey key = StoreKey.fromString( group );
+        groups.put( key, Arrays.stream( members ).map( StoreKey::fromString ).collect( Collectors.toList() ) );
+        return key;
+    }
+
+    private void put( StoreKey store, String path, String content )
+    {
+        contents.computeIfAbsent( store, k -> new HashMap<>() ).put( path, content );
+    }
+
+    /**
+     * Content of the path in the store, or in the first member of the group that has it.
+     */
+    private String find( StoreKey store, String path )
+    {
+        for ( StoreKey concrete : groups.getOrDefault( store, Collections.singletonList( store ) ) )
+        {
+            String content = contents.getOrDefault( concrete, Collections.emptyMap() ).get( path );
+            if ( content != null )
+            {
+                return content;
+            }
+        }
+        return null;
+    }
+
+    private Set<String> lines( String errors )
+    {
+        return errors == null ? Collections.emptySet() : new HashSet<>( Arrays.asList( errors.split( "\n" ) ) );
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.util.ContentDigest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ContentFetchCacheTest
+{
+    private final StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+
+    private final String path = "/org/foo/bar/1/bar-1.pom";
+
+    private final byte[] data = "<project>bar</project>".getBytes();
+
+    @Test
+    public void concurrentReadersShareOneFetch() throws Exception
+    {
+        ContentFetchCache cache = new ContentFetchCache( 1024 );
+        AtomicInteger fetched = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch( 1 );
+        ContentFetchCache.Fetcher fetcher = reader -> {
+            fetched.incrementAndGet();
+            release.await( 10, TimeUnit.SECONDS );
+            reader.read( new ByteArrayInputStream( data ) );
+            return true;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        List<Future<ContentFetchCache.Content>> futures = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            futures.add( executor.submit( () -> cache.get( source, path, fetcher ) ) );
+        }
+        release.countDown();
+        for ( Future<ContentFetchCache.Content> f : futures )
+        {
+            assertThat( read( f.get() ), equalTo( new String( data ) ) );
+        }
+        executor.shutdown();
+
+        assertThat( fetched.get(), equalTo( 1 ) );
+        assertThat( cache.getMemoryUsed(), equalTo( (long) data.length ) );
+        cache.close();
+    }
+
+    @Test
+    public void spillOverBudgetToTempFile() throws Exception
+    {
+        ContentFetchCache cache = new ContentFetchCache( 4 );
+        ContentFetchCache.Content content = cache.get( source, path, reader -> {
+            reader.read( new ByteArrayInputStream( data ) );
+            return true;
+        } );
+
+        assertThat( content.isSpilled(), equalTo( true ) );
+        assertThat( content.size(), equalTo( (long) data.length ) );
+        assertThat( cache.getMemoryUsed(), equalTo( 0L ) );
+        assertThat( content.digest( ContentDigest.SHA_256 ), equalTo( DigestUtils.sha256Hex( data ) ) );
+
+        cache.close();
+        assertThrows( IOException.class, content::openStream );
+    }
+
+    @Test
+    public void budgetSharedByCaches() throws Exception
+    {
+        ContentFetchCache.MemoryBudget budget = new ContentFetchCache.MemoryBudget( data.length + 4 );
+        ContentFetchCache first = new ContentFetchCache( budget );
+        ContentFetchCache second = new ContentFetchCache( budget );
+        ContentFetchCache.Fetcher fetcher = reader -> {
+            reader.read( new ByteArrayInputStream( data ) );
+            return true;
+        };
+
+        assertThat( first.get( source, path, fetcher ).isSpilled(), equalTo( false ) );
+        assertThat( budget.getUsed(), equalTo( (long) data.length ) );
+
+        // the other validation gets what is left of the budget, not a budget of its own
+        ContentFetchCache.Content spilled = second.get( source, path, fetcher );
+        assertThat( spilled.isSpilled(), equalTo( true ) );
+        assertThat( second.getMemoryUsed(), equalTo( 0L ) );
+        second.close();
+
+        first.close();
+        assertThat( budget.getUsed(), equalTo( 0L ) );
+        assertThat( new ContentFetchCache( budget ).get( source, path, fetcher ).isSpilled(), equalTo( false ) );
+    }
+
+    @Test
+    public void missingIsCachedButFailureIsNot() throws Exception
+    {
+        ContentFetchCache cache = new ContentFetchCache( 1024 );
+        AtomicInteger fetched = new AtomicInteger();
+
+        assertThat( cache.get( source, path, reader -> {
+            fetched.incrementAndGet();
+            return false;
+        } ).exists(), equalTo( false ) );
+        assertThat( cache.get( source, path, reader -> {
+            fetched.incrementAndGet();
+            return false;
+        } ).digest( ContentDigest.SHA_256 ), equalTo( null ) );
+        assertThat( fetched.get(), equalTo( 1 ) );
+
+        String other = "/org/foo/bar/1/bar-1.jar";
+        assertThrows( IOException.class, () -> cache.get( source, other, reader -> {
+            throw new IOException( "Connection reset" );
+        } ) );
+        assertThat( cache.get( source, other, reader -> {
+            reader.read( new ByteArrayInputStream( data ) );
+            return true;
+        } ).exists(), equalTo( true ) );
+        cache.close();
+    }
+
+    private String read( ContentFetchCache.Content content ) throws IOException
+    {
+        try (InputStream is = content.openStream())
+        {
+            return IOUtils.toString( is, Charset.defaultCharset() );
+        }
+    }
+}
@@ -32,7 +32,10 @@ import java.io.FileOutputStream;
 import java.nio.charset.Charset;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class PromoteValidationsManagerTest
@@ -77,4 +80,41 @@ public class PromoteValidationsManagerTest
         assertThat( ruleSet, notNullValue() );
         assertThat( ruleSet.matchesKey( "hosted:repo" ), equalTo( true ) );
     }
+
+    @Test
+    public void testReloadOnlyChangedRules()
+            throws Exception
+    {
+        temp.newFolder( "data", "rules" );
+        writeRule( "a.groovy", "a" );
+        writeRule( "b.groovy", "b" );
+
+        promoteValidations = new PromoteValidationsManager( promoteFileManager, config, parser );
+        ValidationRegistry before = promoteValidations.getRegistry();
+
+        writeRule( "b.groovy", "b2" );
+        writeRule( "c.groovy", "syntax error {" );
+        promoteValidations.reload();
+        ValidationRegistry after = promoteValidations.getRegistry();
+
+        assertThat( after.getVersion(), equalTo( before.getVersion() + 1 ) );
+        assertThat( after.getRuleMappingNamed( "a" ), sameInstance( before.getRuleMappingNamed( "a" ) ) );
+        assertThat( after.getRuleMappingNamed( "b" ), not( sameInstance( before.getRuleMappingNamed( "b" ) ) ) );
+        assertThat( after.getRuleMappingNamed( "b" ).getRule().validate( null ), equalTo( "b2" ) );
+        assertThat( after.getRuleMappingNamed( "c" ), nullValue() );
+
+        // the old snapshot is not touched
+        assertThat( before.getRuleMappingNamed( "b" ).getRule().validate( null ), equalTo( "b" ) );
+    }
+
+    private void writeRule( String name, String result )
+            throws Exception
+    {
+        String script = result.contains( "{" ) ? result : "class Rule implements ValidationRule {\n"
+                + "    String validate( ValidationRequest request ) { return '" + result + "' }\n}";
+        try (FileOutputStream out = new FileOutputStream( new File( config.baseDir(), "rules/" + name ) ))
+        {
+            IOUtils.write( script, out, Charset.defaultCharset() );
+        }
+    }
 }
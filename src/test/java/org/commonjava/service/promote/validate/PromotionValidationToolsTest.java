@@ -17,17 +17,36 @@ package org.commonjava.service.promote.validate;
 
 import groovy.lang.Closure;
 import org.commonjava.service.promote.config.PromoteConfig;
+import org.commonjava.service.promote.client.content.ContentService;
 import org.commonjava.service.promote.config.TestPromoteConfig;
+import org.commonjava.service.promote.core.DownstreamLimiter;
+import org.commonjava.service.promote.model.PathsPromoteRequest;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.ValidationRuleSet;
 import org.junit.jupiter.api.Test;
 
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PromotionValidationToolsTest
@@ -86,6 +105,137 @@ public class PromotionValidationToolsTest
         verifyIt( errors );
     }
 
+    /**
+     * missingInBatch called from paralleledEach actions on a small pool, with no fork-join backend. The checks must not
+     * wait for pool threads that are all busy running the actions.
+     */
+    @Test
+    public void missingInBatchInsideParalleledEach() throws Exception
+    {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 2 );
+        PromotionValidationTools tools = new PromotionValidationTools( null, executor, config );
+        tools.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+        tools.contentService = new ContentService()
+        {
+            @Override
+            public Response retrieve( String packageName, String type, String name, String path )
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Response exists( String packageName, String type, String name, String path )
+            {
+                return Response.status( path.endsWith( ".jar" ) ? 404 : 200 ).build();
+            }
+        };
+
+        StoreKey store = StoreKey.fromString( "maven:hosted:build-1" );
+        List<String> paths = IntStream.range( 0, 8 )
+                                      .mapToObj( i -> "/org/foo/bar/" + i + ( i % 2 == 0 ? "/bar.jar" : "/bar.pom" ) )
+                                      .collect( Collectors.toList() );
+        Set<String> missing = ConcurrentHashMap.newKeySet();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try
+        {
+            caller.submit( () -> tools.paralleledEach( Arrays.asList( 1, 2, 3, 4 ), i -> {
+                try
+                {
+                    missing.addAll( tools.missingInBatch( store, paths ) );
+                }
+                catch ( Exception e )
+                {
+                    throw new RuntimeException( e );
+                }
+            } ) ).get( 30, TimeUnit.SECONDS );
+        }
+        finally
+        {
+            caller.shutdownNow();
+            executor.shutdownNow();
+        }
+        assertThat( missing.size(), equalTo( 4 ) );
+        assertTrue( missing.stream().allMatch( p -> p.endsWith( ".jar" ) ) );
+    }
+
+    /**
+     * Strict MavenXpp3Reader unless the streaming check is turned on. The two reject different POMs: unknown elements
+     * only fail the strict one, missing coordinates only the streaming one.
+     */
+    @Test
+    public void readLocalPomStrictUnlessStreamingIsOn()
+    {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 2 );
+        PromoteConfig streamingConfig = new TestPromoteConfig( null )
+        {
+            @Override
+            public boolean ruleStreamingPomCheck()
+            {
+                return true;
+            }
+        };
+        String valid = "/org/foo/valid/1/valid-1.pom";
+        String unknown = "/org/foo/unknown/1/unknown-1.pom";
+        String noCoords = "/org/foo/nocoords/1/nocoords-1.pom";
+        String invalid = "/org/foo/invalid/1/invalid-1.pom";
+        Map<String, String> poms = new HashMap<>();
+        poms.put( valid, "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId>"
+                + "<artifactId>valid</artifactId><version>1</version></project>" );
+        poms.put( unknown, "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId>"
+                + "<artifactId>unknown</artifactId><version>1</version><unknown>x</unknown></project>" );
+        poms.put( noCoords, "<project><modelVersion>4.0.0</modelVersion></project>" );
+        poms.put( invalid, "This is not parsable" );
+        try
+        {
+            ValidationRequest strict = pomRequest( new PromotionValidationTools( null, executor, config ), poms );
+            assertDoesNotThrow( () -> readLocalPom( strict, valid ) );
+            assertDoesNotThrow( () -> readLocalPom( strict, noCoords ) );
+            assertThrows( Exception.class, () -> readLocalPom( strict, unknown ) );
+            assertThrows( Exception.class, () -> readLocalPom( strict, invalid ) );
+
+            ValidationRequest streaming =
+                    pomRequest( new PromotionValidationTools( null, executor, streamingConfig ), poms );
+            assertDoesNotThrow( () -> readLocalPom( streaming, valid ) );
+            assertDoesNotThrow( () -> readLocalPom( streaming, unknown ) );
+            assertThrows( PromotionValidationException.class, () -> readLocalPom( streaming, noCoords ) );
+            assertThrows( Exception.class, () -> readLocalPom( streaming, invalid ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void readLocalPom( ValidationRequest request, String path ) throws Exception
+    {
+        request.getTools().readLocalPom( path, request );
+    }
+
+    private ValidationRequest pomRequest( PromotionValidationTools tools, Map<String, String> poms )
+    {
+        tools.limiter = new DownstreamLimiter( 0, 0, 0, 0 );
+        tools.contentService = new ContentService()
+        {
+            @Override
+            public Response retrieve( String packageName, String type, String name, String path )
+            {
+                byte[] pom = poms.get( path ).getBytes( StandardCharsets.UTF_8 );
+                return Response.status( 200 ).entity( new ByteArrayInputStream( pom ) ).build();
+            }
+
+            @Override
+            public Response exists( String packageName, String type, String name, String path )
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+        StoreKey target = StoreKey.fromString( "maven:hosted:target" );
+        ValidationRuleSet ruleSet =
+                new ValidationRuleSet( "test", target.toString(), Collections.emptyList(), Collections.emptyMap() );
+        return new ValidationRequest( new PathsPromoteRequest( source, target, poms.keySet() ), ruleSet, tools );
+    }
+
     private void verifyIt( List<String> errors )
     {
         assertThat( errors.size(), equalTo( 3 ) );
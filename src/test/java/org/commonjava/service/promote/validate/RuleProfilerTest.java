@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import io.opentelemetry.api.OpenTelemetry;
+import org.commonjava.service.promote.util.WorkProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RuleProfilerTest
+{
+    private final RuleProfiler profiler = new RuleProfiler( TimeUnit.MINUTES.toMillis( 15 ), OpenTelemetry.noop() );
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void slowestFirstAndOutliers()
+    {
+        for ( int i = 0; i < RuleProfiler.OUTLIER_MIN_RUNS; i++ )
+        {
+            profiler.record( "maven-pnc-builds", "parsable-pom", RuleProfiler.OK, 100, new WorkProfile(), 10 );
+            profiler.record( "maven-pnc-builds", "no-snapshot-paths", RuleProfiler.OK, 2, new WorkProfile(), 10 );
+        }
+        profiler.record( "maven-pnc-builds", "parsable-pom", RuleProfiler.ERROR, 150, new WorkProfile(), 10 );
+        profiler.record( "maven-pnc-builds", "no-snapshot-paths", RuleProfiler.OK, 40, new WorkProfile(), 10 );
+        profiler.record( "maven-pnc-builds", "no-pre-existing-paths", RuleProfiler.TIMEOUT, 30, new WorkProfile(), 10 );
+        profiler.recordRuleSet( "maven-pnc-builds", 200 );
+
+        Map<String, Object> stats = profiler.getStats();
+        List<Map<String, Object>> slowest = (List<Map<String, Object>>) stats.get( "slowestRules" );
+        assertThat( slowest.get( 0 ).get( "rule" ), equalTo( "parsable-pom" ) );
+        assertThat( ( (Map<String, Long>) slowest.get( 0 ).get( "outcomes" ) ).get( RuleProfiler.ERROR ),
+                    equalTo( 1L ) );
+        assertThat( ( (Map<String, Object>) stats.get( "ruleSets" ) ).containsKey( "maven-pnc-builds" ),
+                    equalTo( true ) );
+
+        // 40ms is over 3x the usual 2ms, 150ms is not over 3x the usual 100ms; timeouts always count
+        List<Map<String, Object>> outliers = (List<Map<String, Object>>) stats.get( "outliers" );
+        assertThat( outliers.size(), equalTo( 2 ) );
+        assertThat( outliers.get( 0 ).get( "rule" ), equalTo( "no-pre-existing-paths" ) );
+        assertThat( outliers.get( 1 ).get( "rule" ), equalTo( "no-snapshot-paths" ) );
+    }
+}
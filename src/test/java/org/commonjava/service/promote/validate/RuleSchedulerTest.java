@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.service.promote.model.PathsPromoteRequest;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RuleSchedulerTest
+{
+    private final List<String> rules =
+            Arrays.asList( "no-pre-existing-paths.groovy", "parsable-pom.groovy", "project-version-pattern.groovy",
+                           "npm-version-pattern.groovy" );
+
+    @Test
+    public void orderByDeclaredThenMeasuredCost()
+    {
+        RuleScheduler scheduler = new RuleScheduler();
+        ValidationRuleSet set = new ValidationRuleSet( "test", ".*", rules, null );
+        set.setRuleCosts( Collections.singletonMap( "parsable-pom", 500L ) );
+
+        // nothing is known except the declared one, the rest keep the rule-set order
+        assertThat( scheduler.order( set, rules ),
+                    equalTo( Arrays.asList( "parsable-pom.groovy", "no-pre-existing-paths.groovy",
+                                            "project-version-pattern.groovy", "npm-version-pattern.groovy" ) ) );
+
+        scheduler.record( "no-pre-existing-paths.groovy", 30000 );
+        scheduler.record( "project-version-pattern.groovy", 2 );
+        assertThat( scheduler.order( set, rules ),
+                    equalTo( Arrays.asList( "project-version-pattern.groovy", "parsable-pom.groovy",
+                                            "no-pre-existing-paths.groovy", "npm-version-pattern.groovy" ) ) );
+    }
+
+    @Test
+    public void measuredCostIsSmoothed()
+    {
+        RuleScheduler scheduler = new RuleScheduler();
+        ValidationRuleSet set = new ValidationRuleSet( "test", ".*", rules, null );
+        scheduler.record( "parsable-pom.groovy", 100 );
+        scheduler.record( "parsable-pom.groovy", 600 );
+        assertThat( scheduler.getExpectedCost( set, "parsable-pom.groovy" ), equalTo( 200L ) );
+        assertThat( scheduler.getExpectedCost( set, "npm-version-pattern.groovy" ),
+                    equalTo( RuleScheduler.UNKNOWN_COST ) );
+    }
+
+    @Test
+    public void requestOverridesRuleSetFailFast()
+    {
+        RuleScheduler scheduler = new RuleScheduler();
+        ValidationRuleSet set = new ValidationRuleSet( "test", ".*", rules, null );
+        PathsPromoteRequest request = new PathsPromoteRequest( StoreKey.fromString( "maven:hosted:a" ),
+                                                               StoreKey.fromString( "maven:hosted:b" ) );
+        assertThat( scheduler.isFailFast( set, request ), equalTo( false ) );
+
+        set.setFailFast( true );
+        assertThat( scheduler.isFailFast( set, request ), equalTo( true ) );
+
+        request.setFailFast( false );
+        assertThat( scheduler.isFailFast( set, request ), equalTo( false ) );
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RuleSetMatcherTest
+{
+    private final ValidationRuleSet exact = ruleSet( "exact", "maven:hosted:pnc-builds" );
+
+    private final ValidationRuleSet deprecated = ruleSet( "deprecated", "hosted:temp" );
+
+    private final ValidationRuleSet regex = ruleSet( "regex", "maven:[^:]+:pnc-.*" );
+
+    private final ValidationRuleSet npm = ruleSet( "npm", "npm:.*" );
+
+    @Test
+    public void firstMatchInOrderWins()
+    {
+        RuleSetMatcher matcher = new RuleSetMatcher( Arrays.asList( regex, exact, deprecated, npm ) );
+        assertThat( matcher.match( StoreKey.fromString( "maven:hosted:pnc-builds" ) ), sameInstance( regex ) );
+
+        matcher = new RuleSetMatcher( Arrays.asList( exact, regex, deprecated, npm ) );
+        assertThat( matcher.match( StoreKey.fromString( "maven:hosted:pnc-builds" ) ), sameInstance( exact ) );
+        assertThat( matcher.match( StoreKey.fromString( "maven:group:pnc-other" ) ), sameInstance( regex ) );
+        assertThat( matcher.match( StoreKey.fromString( "maven:hosted:temp" ) ), sameInstance( deprecated ) );
+        assertThat( matcher.match( StoreKey.fromString( "npm:hosted:other" ) ), sameInstance( npm ) );
+        assertThat( matcher.match( StoreKey.fromString( "maven:hosted:other" ) ), nullValue() );
+    }
+
+    @Test
+    public void sameResultAsMatchesKey()
+    {
+        RuleSetMatcher matcher = new RuleSetMatcher( Arrays.asList( exact, deprecated, regex, npm ) );
+        for ( String key : Arrays.asList( "maven:hosted:pnc-builds", "maven:remote:pnc-x", "maven:hosted:temp",
+                                          "npm:group:a", "generic-http:hosted:b" ) )
+        {
+            StoreKey storeKey = StoreKey.fromString( key );
+            String deprecatedKey = storeKey.getType().singularEndpointName() + ":" + storeKey.getName();
+            ValidationRuleSet expected = null;
+            for ( ValidationRuleSet rs : Arrays.asList( exact, deprecated, regex, npm ) )
+            {
+                if ( rs.matchesKey( key ) || rs.matchesKey( deprecatedKey ) )
+                {
+                    expected = rs;
+                    break;
+                }
+            }
+            // ask twice, the second one is answered from the memo
+            assertThat( key, matcher.match( storeKey ), equalTo( expected ) );
+            assertThat( key, matcher.match( storeKey ), equalTo( expected ) );
+        }
+    }
+
+    @Test
+    public void literalPatterns()
+    {
+        assertThat( RuleSetMatcher.isLiteral( "maven:hosted:pnc-builds" ), equalTo( true ) );
+        assertThat( RuleSetMatcher.isLiteral( "maven:hosted:pnc.builds" ), equalTo( false ) );
+        assertThat( RuleSetMatcher.isLiteral( "maven:[^:]+:pnc" ), equalTo( false ) );
+        assertThat( RuleSetMatcher.isLiteral( null ), equalTo( false ) );
+    }
+
+    private static ValidationRuleSet ruleSet( String name, String pattern )
+    {
+        return new ValidationRuleSet( name, pattern, null, null );
+    }
+}
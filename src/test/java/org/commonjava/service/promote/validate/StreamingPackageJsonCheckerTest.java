@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingPackageJsonCheckerTest
+{
+    private final JsonFactory factory = new JsonFactory();
+
+    @Test
+    public void readSummary() throws Exception
+    {
+        PackageJsonSummary summary = check( "{\"name\":\"foo\",\"description\":\"Foo\",\"maintainers\":[{\"name\":\"a\"}],"
+                                                    + "\"dist-tags\":{\"latest\":\"1.1.0\"},\"versions\":{"
+                                                    + "\"1.0.0\":{\"name\":\"foo\",\"dependencies\":{\"bar\":\"^1\"}},"
+                                                    + "\"1.1.0\":{\"name\":\"foo\",\"scripts\":{}}}}" );
+        assertThat( summary.getName(), equalTo( "foo" ) );
+        assertThat( summary.getDistTags().get( "latest" ), equalTo( "1.1.0" ) );
+        assertThat( summary.getVersions(), equalTo( List.of( "1.0.0", "1.1.0" ) ) );
+    }
+
+    @Test
+    public void readShippedTestPackage() throws Exception
+    {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream( "npm-parsable-pkg-meta/package.json" ))
+        {
+            PackageJsonSummary summary = StreamingPackageJsonChecker.check( factory, is );
+            assertThat( summary.getName(), equalTo( "valid" ) );
+            assertThat( summary.getVersions().contains( "1.5" ), equalTo( true ) );
+        }
+    }
+
+    @Test
+    public void rejectMalformed()
+    {
+        assertThrows( JsonParseException.class, () -> check( "This is not parsable" ) );
+        assertThrows( JsonParseException.class, () -> check( "{\"name\":\"foo\",\"versions\":{\"1.0.0\":{}}" ) );
+        assertThrows( JsonParseException.class, () -> check( "[{\"name\":\"foo\"}]" ) );
+        assertThrows( JsonParseException.class, () -> check( "{\"name\":\"foo\"} {}" ) );
+    }
+
+    @Test
+    public void rejectWrongTypes()
+    {
+        assertThrows( JsonParseException.class, () -> check( "{\"name\":[\"foo\"]}" ) );
+        assertThrows( JsonParseException.class, () -> check( "{\"dist-tags\":{\"latest\":1}}" ) );
+        assertThrows( JsonParseException.class, () -> check( "{\"versions\":{\"1.0.0\":\"foo\"}}" ) );
+    }
+
+    private PackageJsonSummary check( String json ) throws IOException
+    {
+        return StreamingPackageJsonChecker.check( factory, new ByteArrayInputStream(
+                json.getBytes( StandardCharsets.UTF_8 ) ) );
+    }
+}
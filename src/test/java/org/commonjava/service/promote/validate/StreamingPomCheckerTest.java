@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate;
+
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingPomCheckerTest
+{
+    @Test
+    public void acceptValidPom()
+    {
+        assertDoesNotThrow( () -> check( "<?xml version=\"1.0\"?>\n<project><modelVersion>4.0.0</modelVersion>"
+                                                 + "<groupId>org.foo</groupId><artifactId>bar</artifactId>"
+                                                 + "<version>1</version><name>Bar &copy; Foo</name>"
+                                                 + "<dependencies><dependency><groupId>x</groupId>"
+                                                 + "<artifactId>y</artifactId><version>2</version></dependency>"
+                                                 + "</dependencies></project>" ) );
+    }
+
+    @Test
+    public void inheritCoordinatesFromParent()
+    {
+        assertDoesNotThrow( () -> check( "<project><parent><groupId>org.foo</groupId><artifactId>parent</artifactId>"
+                                                 + "<version>1</version></parent><artifactId>bar</artifactId>"
+                                                 + "</project>" ) );
+    }
+
+    @Test
+    public void rejectMalformed()
+    {
+        assertThrows( XmlPullParserException.class, () -> check( "This is not parsable" ) );
+        assertThrows( XmlPullParserException.class, () -> check(
+                "<project><groupId>org.foo</groupId><artifactId>bar</artifactId><version>1</version>"
+                        + "<dependencies></project>" ) );
+        assertThrows( XmlPullParserException.class, () -> check( "<settings><artifactId>bar</artifactId></settings>" ) );
+        assertThrows( XmlPullParserException.class, () -> check(
+                "<project><groupId>org.foo</groupId><artifactId>bar</artifactId><artifactId>baz</artifactId>"
+                        + "<version>1</version></project>" ) );
+    }
+
+    @Test
+    public void rejectMissingCoordinates()
+    {
+        assertThrows( PromotionValidationException.class, () -> check(
+                "<project><groupId>org.foo</groupId><version>1</version>"
+                        + "<dependencies><dependency><artifactId>y</artifactId></dependency></dependencies>"
+                        + "</project>" ) );
+        assertThrows( PromotionValidationException.class,
+                      () -> check( "<project><artifactId>bar</artifactId><version>1</version></project>" ) );
+    }
+
+    private void check( String pom ) throws Exception
+    {
+        StreamingPomChecker.check( new ByteArrayInputStream( pom.getBytes( StandardCharsets.UTF_8 ) ) );
+    }
+}
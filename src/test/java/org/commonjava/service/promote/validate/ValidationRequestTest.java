@@ -16,11 +16,17 @@
 package org.commonjava.service.promote.validate;
 
 import org.commonjava.service.promote.model.PathsPromoteRequest;
+import org.commonjava.service.promote.model.StoreKey;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ValidationRequestTest {
@@ -48,4 +54,50 @@ public class ValidationRequestTest {
         assertTrue(sourcePaths.size() == 3);
         assertTrue( sourcePaths.containsAll(paths));
     }
+
+    @Test
+    public void testGetSourcePathsReturnsCopies()
+    {
+        PathsPromoteRequest promoteRequest = new PathsPromoteRequest();
+        promoteRequest.setPaths( new HashSet<>( Arrays.asList( "a/normal/path", "a/maven-metadata.xml" ) ) );
+        ValidationRequest validationRequest = new ValidationRequest( promoteRequest, null, null );
+
+        // rules may change what they get, e.g. removeAll, without affecting other rules
+        Set<String> sourcePaths = validationRequest.getSourcePaths();
+        sourcePaths.add( "another/path" );
+        validationRequest.getSourcePaths( true, false ).clear();
+
+        assertEquals( 1, validationRequest.getSourcePaths().size() );
+        assertEquals( 2, validationRequest.getSourcePaths( true, false ).size() );
+        assertEquals( 1, validationRequest.getPathIndex().getSourcePathsView().size() );
+        assertThrows( UnsupportedOperationException.class,
+                      () -> validationRequest.getPathIndex().getSourcePathsView().add( "another/path" ) );
+    }
+
+    @Test
+    public void testPathIndexFacets()
+    {
+        PathsPromoteRequest promoteRequest = new PathsPromoteRequest( StoreKey.fromString( "maven:hosted:build-1" ),
+                                                                      StoreKey.fromString( "maven:hosted:pnc-builds" ),
+                                                                      "/org/foo/bar/1.0/bar-1.0.pom",
+                                                                      "/org/foo/bar/1.0/bar-1.0-sources.jar",
+                                                                      "/org/foo/bar/1.0/bar-1.0.jar.sha1",
+                                                                      "/org/foo/bar/maven-metadata.xml",
+                                                                      "/org/foo/bar/README" );
+        ValidationRequest validationRequest = new ValidationRequest( promoteRequest, null, null );
+        SourcePathIndex index = validationRequest.getPathIndex();
+
+        assertSame( index, validationRequest.getPathIndex() );
+        assertEquals( 3, index.getEntries().size() );
+        assertEquals( 2, index.getArtifacts().size() );
+        assertEquals( 1, index.getPoms().size() );
+        assertTrue( index.getNpmPackages().isEmpty() );
+
+        SourcePathIndex.PathEntry jar = index.get( "/org/foo/bar/1.0/bar-1.0-sources.jar" );
+        assertEquals( "1.0", jar.getArtifact().getVersionString() );
+        assertEquals( "sources", jar.getArtifact().getClassifier() );
+        assertTrue( index.get( "/org/foo/bar/1.0/bar-1.0.jar.sha1" ).isChecksum() );
+        assertNull( index.get( "/org/foo/bar/1.0/bar-1.0.jar.sha1" ).getArtifact() );
+        assertNull( index.get( "/org/foo/bar/README" ).getArtifact() );
+    }
 }
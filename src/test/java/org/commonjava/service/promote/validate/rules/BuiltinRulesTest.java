@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2022 Red Hat, Inc. (https://github.com/Commonjava/service-parent)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.service.promote.validate.rules;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.service.promote.config.TestPromoteConfig;
+import org.commonjava.service.promote.model.PathsPromoteRequest;
+import org.commonjava.service.promote.model.StoreKey;
+import org.commonjava.service.promote.model.ValidationRuleSet;
+import org.commonjava.service.promote.util.ScriptEngine;
+import org.commonjava.service.promote.validate.PromotionValidationTools;
+import org.commonjava.service.promote.validate.ValidationRequest;
+import org.commonjava.service.promote.validate.ValidationRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BuiltinRulesTest
+{
+    private static final File RULES_DIR = new File( "data/rules" );
+
+    private final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 4 );
+
+    private final PromotionValidationTools tools =
+            new PromotionValidationTools( null, executor, new TestPromoteConfig() );
+
+    @AfterEach
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shippedScriptsMatchBuiltins() throws Exception
+    {
+        for ( Map.Entry<String, String> et : BuiltinRules.getScriptHashes().entrySet() )
+        {
+            String script = readScript( et.getKey() );
+            assertThat( et.getKey(), BuiltinRules.hash( script ), equalTo( et.getValue() ) );
+            assertThat( BuiltinRules.get( et.getKey(), script.replace( "\n", "\r\n" ) ), notNullValue() );
+        }
+    }
+
+    @Test
+    public void editedScriptIsNotReplaced() throws Exception
+    {
+        String script = readScript( "parsable-pom" );
+        assertThat( BuiltinRules.get( "parsable-pom", script ), instanceOf( ParsablePom.class ) );
+        assertThat( BuiltinRules.get( "parsable-pom", script + "\n// changed" ), nullValue() );
+        assertThat( BuiltinRules.get( "my-parsable-pom", script ), nullValue() );
+    }
+
+    @Test
+    public void projectVersionPatternSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+        ValidationRequest request = request( source, "^\\d+\\.\\d+(\\.\\d+)?\\.redhat-\\d+$", null,
+                                             "/org/foo/bar/1.0.redhat-00001/bar-1.0.redhat-00001.pom",
+                                             "/org/foo/bar/1.0.redhat-00001/bar-1.0.redhat-00001.jar",
+                                             "/org/foo/bar/1.0/bar-1.0.pom", "/org/foo/bar/1.0/bar-1.0.jar",
+                                             "/org/foo/bar/1.0/bar-1.0.jar.sha1", "/org/foo/bar/maven-metadata.xml" );
+        assertSameErrors( "project-version-pattern", request );
+    }
+
+    @Test
+    public void noSnapshotPathsSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "maven:hosted:build-1" );
+        ValidationRequest request = request( source, null, null, "/org/foo/bar/1.0/bar-1.0.pom",
+                                             "/org/foo/bar/1.1-SNAPSHOT/bar-1.1-SNAPSHOT.pom",
+                                             "/org/foo/bar/1.1-SNAPSHOT/bar-1.1-20220101.101010-1.pom",
+                                             "/org/foo/bar/1.1-SNAPSHOT/bar-1.1-SNAPSHOT.jar" );
+        assertSameErrors( "no-snapshot-paths", request );
+    }
+
+    @Test
+    public void npmVersionPatternSameAsScript() throws Exception
+    {
+        StoreKey source = StoreKey.fromString( "npm:hosted:build-1" );
+        ValidationRequest request = request( source, "\\d+\\.\\d+\\.\\d+-redhat-\\d{5}", "\\d+\\.\\d+\\.\\d+",
+                                             "/valid/-/valid-1.0.0-redhat-00001.tgz", "/invalid/-/invalid-1.tgz",
+                                             "/@redhat/valid/-/valid-1.0.0.tgz", "/@redhat/invalid/-/invalid-1.tgz",
+                                             "/@scoped/invalid/-/invalid-1.0.0.tgz", "/invalid/package.json" );
+        assertSameErrors( "npm-version-pattern", request );
+    }
+
+    private void assertSameErrors( String ruleName, ValidationRequest request ) throws Exception
+    {
+        String script = readScript( ruleName );
+        ValidationRule scripted = new ScriptEngine().parseScriptInstance( script, ValidationRule.class );
+        ValidationRule builtin = BuiltinRules.get( ruleName, script );
+        assertThat( builtin, notNullValue() );
+
+        Set<String> expected = lines( scripted.validate( request ) );
+        assertThat( ruleName + " found no errors, fixture is useless", expected.isEmpty(), equalTo( false ) );
+        assertThat( ruleName, lines( builtin.validate( request ) ), equalTo( expected ) );
+    }
+
+    private ValidationRequest request( StoreKey source, String versionPattern, String scopedVersionPattern,
+                                       String... paths )
+    {
+        StoreKey target = new StoreKey( source.getPackageType(), source.getType(), "target" );
+        Map<String, String> params = new HashMap<>();
+        params.put( "availableInStores", target.toString() );
+        params.put( "validScope", "redhat" );
+        if ( versionPattern != null )
+        {
+            params.put( "versionPattern", versionPattern );
+        }
+        if ( scopedVersionPattern != null )
+        {
+            params.put( "scopedVersionPattern", scopedVersionPattern );
+        }
+        ValidationRuleSet ruleSet = new ValidationRuleSet( "test", target.toString(), Collections.emptyList(), params );
+        PathsPromoteRequest promoteRequest =
+                new PathsPromoteRequest( source, target, new HashSet<>( Arrays.asList( paths ) ) );
+        return new ValidationRequest( promoteRequest, ruleSet, tools );
+    }
+
+    private Set<String> lines( String errors )
+    {
+        return errors == null ? Collections.emptySet() : new HashSet<>( Arrays.asList( errors.split( "\n" ) ) );
+    }
+
+    private String readScript( String ruleName ) throws Exception
+    {
+        return FileUtils.readFileToString( new File( RULES_DIR, ruleName + ".groovy" ), StandardCharsets.UTF_8 );
+    }
+}